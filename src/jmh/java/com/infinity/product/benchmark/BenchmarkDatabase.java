@@ -0,0 +1,56 @@
+package com.infinity.product.benchmark;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.repository.ProductRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Embedded H2 databases for the benchmarks, created from the application schema.sql.
+ **/
+final class BenchmarkDatabase {
+
+    private static final int SEED_CHUNK_SIZE = 10_000;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Creates a pooled data source on a new, empty in-memory database.
+     */
+    static HikariDataSource create() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:benchmark-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        return dataSource;
+    }
+
+    /**
+     * Inserts the specified number of products, their ids run from 1 to rows.
+     */
+    static void seed(ProductRepository repository, int rows) {
+        List<Product> chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+        for (int i = 1; i <= rows; i++) {
+            chunk.add(new Product(null, "Product " + i, i % 1000, 1));
+            if (chunk.size() == SEED_CHUNK_SIZE || i == rows) {
+                repository.saveAll(chunk);
+                chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Drops the database behind the specified data source and closes it.
+     */
+    static void drop(HikariDataSource dataSource) {
+        new JdbcTemplate(dataSource).execute("drop all objects");
+        dataSource.close();
+    }
+}
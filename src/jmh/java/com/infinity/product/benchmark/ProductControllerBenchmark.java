@@ -0,0 +1,88 @@
+package com.infinity.product.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.infinity.product.config.ProductProperties;
+import com.infinity.product.controller.ProductController;
+import com.infinity.product.repository.ProductRepository;
+import com.infinity.product.repository.ProductRepositoryImpl;
+import com.infinity.product.service.ProductSearchIndex;
+import com.infinity.product.service.ProductService;
+import com.infinity.product.service.ProductServiceImpl;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * End to end benchmarks through ProductController, the service and the JDBC repository,
+ * using MockMvc so that the Spring MVC dispatch and JSON conversion are included but not the network.
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductControllerBenchmark {
+
+    private static final int ROWS = 10_000;
+    private static final int UPDATED_ID = 1;
+
+    private HikariDataSource dataSource;
+    private MockMvc mockMvc;
+    private int updatedVersion = 1;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = BenchmarkDatabase.create();
+        ProductRepository repository = new ProductRepositoryImpl(new JdbcTemplate(dataSource), dataSource, event -> { });
+        BenchmarkDatabase.seed(repository, ROWS);
+        ProductService service = new ProductServiceImpl(repository, new ProductProperties(), Optional.empty(), Optional.empty(),
+                Optional.of(new ProductSearchIndex(repository)), new SimpleMeterRegistry());
+        mockMvc = MockMvcBuilders.standaloneSetup(new ProductController(service, new ObjectMapper())).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.drop(dataSource);
+    }
+
+    @Benchmark
+    public MvcResult getProduct() throws Exception {
+        return mockMvc.perform(get("/product/{id}", ThreadLocalRandom.current().nextInt(1, ROWS + 1))).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getProducts() throws Exception {
+        return mockMvc.perform(get("/products").param("limit", "100")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult createProduct() throws Exception {
+        return mockMvc.perform(post("/product")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Created product\",\"quantity\":1}")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult updateProduct() throws Exception {
+        MvcResult result = mockMvc.perform(put("/product/{id}", UPDATED_ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("If-Match", updatedVersion)
+                .content("{\"name\":\"Updated product\",\"quantity\":1}")).andReturn();
+        updatedVersion++;
+        return result;
+    }
+}
@@ -0,0 +1,77 @@
+package com.infinity.product.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.infinity.product.domain.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the Jackson serialization of products, as done for every controller response,
+ * in JSON and in the binary CBOR and Smile formats. The payload size of each format is printed at setup.
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductJsonBenchmark {
+
+    @Param({"100", "1000"})
+    int listSize;
+
+    private ObjectMapper objectMapper;
+    private ObjectMapper cborMapper;
+    private ObjectMapper smileMapper;
+    private Product product;
+    private List<Product> products;
+    private byte[] productJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = new ObjectMapper();
+        product = new Product(1, "Product name", 10, 1);
+        products = new ArrayList<>(listSize);
+        for (int i = 1; i <= listSize; i++) {
+            products.add(new Product(i, "Product name " + i, i, 1));
+        }
+        productJson = objectMapper.writeValueAsBytes(product);
+        cborMapper = objectMapper.copyWith(new CBORFactory());
+        smileMapper = objectMapper.copyWith(new SmileFactory());
+        System.out.printf("Payload of %d products: json=%d cbor=%d smile=%d bytes%n", listSize,
+                objectMapper.writeValueAsBytes(products).length,
+                cborMapper.writeValueAsBytes(products).length,
+                smileMapper.writeValueAsBytes(products).length);
+    }
+
+    @Benchmark
+    public byte[] serializeProduct() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public byte[] serializeProductList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public Product deserializeProduct() throws Exception {
+        return objectMapper.readValue(productJson, Product.class);
+    }
+
+    @Benchmark
+    public byte[] serializeProductListCbor() throws JsonProcessingException {
+        return cborMapper.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public byte[] serializeProductListSmile() throws JsonProcessingException {
+        return smileMapper.writeValueAsBytes(products);
+    }
+}
@@ -0,0 +1,182 @@
+package com.infinity.product.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Closed-loop HTTP load test against a running product service, reporting throughput and latency percentiles.
+ * Run it once against an instance started with product.threads.virtual=false and once with it set to true
+ * (with product.bulkhead.enabled=true), using the same database latency, to compare both execution modes.
+ *
+ * Each worker mixes point reads of GET /product/{id}, which the caches mostly answer, with pages of
+ * GET /products?sort=name after a random product, which reach the database, and read-modify-write updates
+ * (GET then PUT /product/{id} with its ETag), which hold a connection for a transaction. The uncached calls are
+ * the ones that contend for the bulkhead and the connection pool, so their percentiles are reported apart.
+ * Conflicts of concurrent updates of the same product are counted, not reported as errors.
+ *
+ * Usage: ProductLoadTest [baseUrl] [concurrency] [durationSeconds] [maxId] [writePercent] [scanPercent]
+ **/
+public class ProductLoadTest {
+
+    private enum Operation { READ, SCAN, WRITE }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 30);
+        int maxId = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        int writePercent = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+        int scanPercent = args.length > 5 ? Integer.parseInt(args[5]) : 5;
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        List<Future<Map<Operation, Result>>> futures = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(workers.submit(() -> run(client, baseUrl, maxId, writePercent, scanPercent, deadline)));
+        }
+
+        Map<Operation, List<long[]>> latencies = new EnumMap<>(Operation.class);
+        Map<Operation, long[]> counts = new EnumMap<>(Operation.class);
+        for (Future<Map<Operation, Result>> future : futures) {
+            future.get().forEach((operation, result) -> {
+                latencies.computeIfAbsent(operation, o -> new ArrayList<>())
+                        .add(Arrays.copyOf(result.latencies, result.count));
+                long[] total = counts.computeIfAbsent(operation, o -> new long[3]);
+                total[0] += result.count;
+                total[1] += result.errors;
+                total[2] += result.conflicts;
+            });
+        }
+        workers.shutdown();
+
+        long requests = counts.values().stream().mapToLong(total -> total[0]).sum();
+        long errors = counts.values().stream().mapToLong(total -> total[1]).sum();
+        System.out.printf("requests=%d errors=%d throughput=%.1f req/s%n",
+                requests, errors, requests / (double) duration.toSeconds());
+        print("all", latencies.values().stream().flatMap(List::stream).toList());
+        for (Operation operation : Operation.values()) {
+            long[] total = counts.get(operation);
+            if (total == null)
+                continue;
+            System.out.printf("%s: requests=%d errors=%d conflicts=%d%n",
+                    operation.name().toLowerCase(), total[0], total[1], total[2]);
+            print(operation.name().toLowerCase(), latencies.get(operation));
+        }
+    }
+
+    private static Map<Operation, Result> run(HttpClient client, String baseUrl, int maxId, int writePercent,
+                                              int scanPercent, long deadline) {
+        Map<Operation, Result> results = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values())
+            results.put(operation, new Result());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            int id = random.nextInt(1, maxId + 1);
+            int draw = random.nextInt(100);
+            if (draw < writePercent) {
+                update(client, baseUrl, id, results.get(Operation.WRITE));
+            } else if (draw < writePercent + scanPercent) {
+                URI uri = URI.create(baseUrl + "/products?sort=name&limit=100&after=" + id);
+                send(client, HttpRequest.newBuilder(uri).GET().build(), results.get(Operation.SCAN));
+            } else {
+                URI uri = URI.create(baseUrl + "/product/" + id);
+                send(client, HttpRequest.newBuilder(uri).GET().build(), results.get(Operation.READ));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Reads the product for its version, then updates its quantity with it. Only the update is measured.
+     */
+    private static void update(HttpClient client, String baseUrl, int id, Result result) {
+        URI uri = URI.create(baseUrl + "/product/" + id);
+        HttpResponse<String> read;
+        long start = System.nanoTime();
+        try {
+            read = client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofString());
+        } catch (Exception e) {
+            // Counted as a failed update, so that errors never outnumber requests
+            result.errors++;
+            result.record(System.nanoTime() - start);
+            return;
+        }
+        if (read.statusCode() != 200 || read.headers().firstValue("ETag").isEmpty())
+            return;
+
+        String body;
+        try {
+            ObjectNode product = (ObjectNode) MAPPER.readTree(read.body());
+            product.put("quantity", ThreadLocalRandom.current().nextInt(1000));
+            body = MAPPER.writeValueAsString(product);
+        } catch (Exception e) {
+            result.errors++;
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .header("If-Match", read.headers().firstValue("ETag").get())
+                .PUT(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        send(client, request, result);
+    }
+
+    private static void send(HttpClient client, HttpRequest request, Result result) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() == 409)
+                result.conflicts++;
+            else if (response.statusCode() >= 500)
+                result.errors++;
+        } catch (Exception e) {
+            result.errors++;
+        }
+        result.record(System.nanoTime() - start);
+    }
+
+    private static void print(String name, List<long[]> latencies) {
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%s: p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms%n", name,
+                percentile(all, 0.50), percentile(all, 0.95), percentile(all, 0.99), percentile(all, 1.0));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0)
+            return 0;
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static class Result {
+        long[] latencies = new long[1024];
+        int count;
+        long errors;
+        long conflicts;
+
+        void record(long nanos) {
+            if (count == latencies.length)
+                latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = nanos;
+        }
+    }
+}
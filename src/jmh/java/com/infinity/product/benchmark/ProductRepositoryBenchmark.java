@@ -0,0 +1,72 @@
+package com.infinity.product.benchmark;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.WriteResult;
+import com.infinity.product.repository.ProductRepository;
+import com.infinity.product.repository.ProductRepositoryImpl;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the JDBC repository, including its row mapping, against embedded H2 at several table sizes.
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class ProductRepositoryBenchmark {
+
+    private static final int UPDATED_ID = 1;
+
+    @Param({"1000", "100000", "1000000"})
+    int rows;
+
+    private HikariDataSource dataSource;
+    private ProductRepository repository;
+    private int updatedVersion;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = BenchmarkDatabase.create();
+        repository = new ProductRepositoryImpl(new JdbcTemplate(dataSource), dataSource, event -> { });
+        BenchmarkDatabase.seed(repository, rows);
+        updatedVersion = repository.findById(UPDATED_ID).orElseThrow().getVersion();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.drop(dataSource);
+    }
+
+    @Benchmark
+    public Optional<Product> findById() {
+        return repository.findById(ThreadLocalRandom.current().nextInt(1, rows + 1));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Product> findAll() {
+        return repository.findAll();
+    }
+
+    @Benchmark
+    public Product save() {
+        return repository.save(new Product(null, "Saved product", 1, 1));
+    }
+
+    @Benchmark
+    public WriteResult update() {
+        Product product = new Product(UPDATED_ID, "Updated product", updatedVersion % 1000, updatedVersion);
+        WriteResult result = repository.update(product);
+        updatedVersion = product.getVersion();
+        return result;
+    }
+}
@@ -0,0 +1,65 @@
+package com.infinity.product.benchmark;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.repository.ProductRepository;
+import com.infinity.product.repository.ProductRepositoryImpl;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the row mapping of findAll with the previous mapping, which selected every column and read them
+ * by label through the setters. Run with the gc profiler (the default of the benchmark profile) and compare
+ * gc.alloc.rate.norm, the bytes allocated per call, along with the time.
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class RowMapperBenchmark {
+
+    private static final RowMapper<Product> BY_LABEL_ROW_MAPPER = (rs, rowNum) -> {
+        Product product = new Product();
+        product.setId(rs.getInt("id"));
+        product.setName(rs.getString("name"));
+        product.setQuantity(rs.getInt("quantity"));
+        product.setVersion(rs.getInt("version"));
+        return product;
+    };
+
+    @Param({"1000", "1000000"})
+    int rows;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private ProductRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = BenchmarkDatabase.create();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        repository = new ProductRepositoryImpl(jdbcTemplate, dataSource, event -> { });
+        BenchmarkDatabase.seed(repository, rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.drop(dataSource);
+    }
+
+    @Benchmark
+    public List<Product> byLabel() {
+        return jdbcTemplate.query("select * from products", BY_LABEL_ROW_MAPPER);
+    }
+
+    @Benchmark
+    public List<Product> byIndex() {
+        return repository.findAll();
+    }
+}
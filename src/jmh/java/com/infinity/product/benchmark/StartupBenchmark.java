@@ -0,0 +1,121 @@
+package com.infinity.product.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures the cold start of the product service: the time from launching the process until its health endpoint
+ * answers 200, and the resident memory (VmRSS, Linux only) of the process at that point and after a warm-up of
+ * reads. Run it once with the JVM build and once with the native image, on the same database, to compare them.
+ *
+ * Usage: StartupBenchmark [runs] [baseUrl] command...
+ * e.g. StartupBenchmark 10 http://localhost:8080 target/product-service
+ *      StartupBenchmark 10 http://localhost:8080 java -Dspring.aot.enabled=true -jar target/product-service.jar
+ **/
+public class StartupBenchmark {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(120);
+    private static final int WARM_UP_REQUESTS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: StartupBenchmark [runs] [baseUrl] command...");
+            System.exit(1);
+        }
+        int runs = Integer.parseInt(args[0]);
+        String baseUrl = args[1];
+        List<String> command = Arrays.asList(args).subList(2, args.length);
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        long[] startupMillis = new long[runs];
+        long[] startupRssKb = new long[runs];
+        long[] warmRssKb = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            builder.environment().putIfAbsent("SPRING_PROFILES_ACTIVE", "native");
+            builder.environment().putIfAbsent("SPRING_CLOUD_CONFIG_ENABLED", "false");
+
+            long start = System.nanoTime();
+            Process process = builder.start();
+            try {
+                awaitHealthy(client, baseUrl, process);
+                startupMillis[run] = Duration.ofNanos(System.nanoTime() - start).toMillis();
+                startupRssKb[run] = rssKb(process.pid());
+                for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+                    get(client, baseUrl + "/product/" + (i % 100 + 1));
+                }
+                warmRssKb[run] = rssKb(process.pid());
+            } finally {
+                process.destroy();
+                process.waitFor();
+            }
+            System.out.printf("run=%d startup=%dms rss=%dMB warmRss=%dMB%n", run + 1, startupMillis[run],
+                    startupRssKb[run] / 1024, warmRssKb[run] / 1024);
+        }
+
+        System.out.printf("startup median=%dms min=%dms max=%dms%n",
+                median(startupMillis), min(startupMillis), max(startupMillis));
+        System.out.printf("rss median=%dMB warm rss median=%dMB%n",
+                median(startupRssKb) / 1024, median(warmRssKb) / 1024);
+    }
+
+    private static void awaitHealthy(HttpClient client, String baseUrl, Process process) throws Exception {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive())
+                throw new IllegalStateException("The service exited with " + process.exitValue());
+            if (get(client, baseUrl + "/actuator/health") == 200)
+                return;
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("The service was not healthy after " + STARTUP_TIMEOUT);
+    }
+
+    private static int get(HttpClient client, String url) throws InterruptedException {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(5)).GET().build();
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            // Not listening yet
+            return -1;
+        }
+    }
+
+    /**
+     * Reads the resident set size of the process, the memory it actually occupies, in KB.
+     * Returns -1 where /proc is not available.
+     */
+    private static long rssKb(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status))
+            return -1;
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:"))
+                return Long.parseLong(line.replaceAll("\\D", ""));
+        }
+        return -1;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static long min(long[] values) {
+        return Arrays.stream(values).min().orElse(0);
+    }
+
+    private static long max(long[] values) {
+        return Arrays.stream(values).max().orElse(0);
+    }
+}
@@ -0,0 +1,47 @@
+package com.infinity.product.config;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+
+/**
+ * Connection pool metrics used to size the pool against real load.
+ * Boot already exports the Hikari pool state (hikaricp.connections.active, .pending, .max) and the time
+ * spent waiting for a connection (hikaricp.connections.acquire); this adds the saturation of the pool,
+ * the share of its connections in use, which is what the pool size and the bulkhead are tuned on.
+ **/
+@Configuration
+@ConditionalOnClass(HikariDataSource.class)
+@Profile("!reactive")
+public class DataSourceMetricsConfiguration {
+
+    @Bean
+    public MeterBinder connectionPoolSaturationMetrics(DataSource dataSource) {
+        return registry -> {
+            HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class, HikariDataSource.class);
+            if (hikari == null)
+                return;
+            Gauge.builder("product.datasource.saturation", hikari, DataSourceMetricsConfiguration::saturation)
+                    .description("Share of the connections of the pool in use, from 0 to 1")
+                    .tag("pool", String.valueOf(hikari.getPoolName()))
+                    .register(registry);
+        };
+    }
+
+    private static double saturation(HikariDataSource dataSource) {
+        // The pool is started lazily, on the first connection
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null)
+            return 0;
+        return (double) pool.getActiveConnections() / dataSource.getMaximumPoolSize();
+    }
+}
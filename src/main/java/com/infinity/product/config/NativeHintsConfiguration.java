@@ -0,0 +1,22 @@
+package com.infinity.product.config;
+
+import com.infinity.product.domain.BatchItemResult;
+import com.infinity.product.domain.ImportSummary;
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.ProductChange;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.domain.StockAdjustment;
+import com.infinity.product.domain.WriteTicket;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Reflection hints for the types that Jackson and the data binder read and write, for native images.
+ * The types returned directly by controllers are found by AOT on its own, but not those wrapped in
+ * HATEOAS models, deferred results, emitted events or streamed by hand, so all of them are listed here.
+ **/
+@Configuration(proxyBeanMethods = false)
+@RegisterReflectionForBinding({Product.class, ProductQuery.class, ProductChange.class, BatchItemResult.class,
+        StockAdjustment.class, WriteTicket.class, ImportSummary.class, ImportSummary.RowError.class})
+public class NativeHintsConfiguration {
+}
@@ -0,0 +1,574 @@
+package com.infinity.product.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tuning properties of the product service, bound from the "product" prefix.
+ **/
+@ConfigurationProperties(prefix = "product")
+public class ProductProperties {
+
+    private final Cache cache = new Cache();
+    private final InMemory inMemory = new InMemory();
+    private final Batch batch = new Batch();
+    private final Threads threads = new Threads();
+    private final Bulkhead bulkhead = new Bulkhead();
+    private final Stock stock = new Stock();
+    private final WriteBehind writeBehind = new WriteBehind();
+    private final Changes changes = new Changes();
+    private final ResponseCache responseCache = new ResponseCache();
+    private final RateLimit rateLimit = new RateLimit();
+    private final Snapshot snapshot = new Snapshot();
+    private final Sharding sharding = new Sharding();
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public InMemory getInMemory() {
+        return inMemory;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public Threads getThreads() {
+        return threads;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public Stock getStock() {
+        return stock;
+    }
+
+    public WriteBehind getWriteBehind() {
+        return writeBehind;
+    }
+
+    public Changes getChanges() {
+        return changes;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public Sharding getSharding() {
+        return sharding;
+    }
+
+    /**
+     * In-process cache of products in front of the repository.
+     */
+    public static class Cache {
+
+        private boolean enabled = true;
+        private int maximumSize = 10_000;
+        private Duration timeToLive = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(int maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+    }
+
+    /**
+     * Copy of the whole catalog in memory, serving point reads and full listings without the database.
+     */
+    public static class InMemory {
+
+        private boolean enabled = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    /**
+     * Bulk create, update and delete operations.
+     */
+    public static class Batch {
+
+        private int chunkSize = 500;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    /**
+     * Threads that handle requests.
+     */
+    public static class Threads {
+
+        /**
+         * Run Tomcat requests and async responses on virtual threads, requires a Java 21 runtime.
+         */
+        private boolean virtual = false;
+
+        public boolean isVirtual() {
+            return virtual;
+        }
+
+        public void setVirtual(boolean virtual) {
+            this.virtual = virtual;
+        }
+    }
+
+    /**
+     * Bulkhead limiting concurrent repository calls, it should match the JDBC pool size.
+     */
+    public static class Bulkhead {
+
+        private boolean enabled = false;
+        private int maxConcurrentCalls = 10;
+        private Duration maxWait = Duration.ofSeconds(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxConcurrentCalls() {
+            return maxConcurrentCalls;
+        }
+
+        public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+
+    /**
+     * Coalescing of stock adjustments. When enabled, unfloored adjustments are accumulated in memory
+     * and applied to the database in one batch per flush interval.
+     */
+    public static class Stock {
+
+        private boolean coalesce = false;
+        private Duration flushInterval = Duration.ofMillis(100);
+        private int maxTrackedProducts = 10_000;
+
+        public boolean isCoalesce() {
+            return coalesce;
+        }
+
+        public void setCoalesce(boolean coalesce) {
+            this.coalesce = coalesce;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public int getMaxTrackedProducts() {
+            return maxTrackedProducts;
+        }
+
+        public void setMaxTrackedProducts(int maxTrackedProducts) {
+            this.maxTrackedProducts = maxTrackedProducts;
+        }
+    }
+
+    /**
+     * Write-behind mode, in which creations and updates are queued, acknowledged with 202,
+     * and written to the database in batches by a background flusher.
+     */
+    public static class WriteBehind {
+
+        private boolean enabled = false;
+        private int capacity = 10_000;
+        private int maxBatchSize = 500;
+        private Duration flushInterval = Duration.ofMillis(50);
+        private Duration offerTimeout = Duration.ofMillis(100);
+        private int retainedResults = 100_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public Duration getOfferTimeout() {
+            return offerTimeout;
+        }
+
+        public void setOfferTimeout(Duration offerTimeout) {
+            this.offerTimeout = offerTimeout;
+        }
+
+        public int getRetainedResults() {
+            return retainedResults;
+        }
+
+        public void setRetainedResults(int retainedResults) {
+            this.retainedResults = retainedResults;
+        }
+    }
+
+    /**
+     * Change feed: how long readers wait for a change, and how long changes are kept.
+     */
+    public static class Changes {
+
+        private Duration longPollTimeout = Duration.ofSeconds(30);
+        private Duration streamTimeout = Duration.ofMinutes(30);
+        private Duration retention = Duration.ofDays(7);
+        private Duration pruneInterval = Duration.ofHours(1);
+        private int subscriberBuffer = 1000;
+
+        public Duration getLongPollTimeout() {
+            return longPollTimeout;
+        }
+
+        public void setLongPollTimeout(Duration longPollTimeout) {
+            this.longPollTimeout = longPollTimeout;
+        }
+
+        public Duration getStreamTimeout() {
+            return streamTimeout;
+        }
+
+        public void setStreamTimeout(Duration streamTimeout) {
+            this.streamTimeout = streamTimeout;
+        }
+
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+
+        public Duration getPruneInterval() {
+            return pruneInterval;
+        }
+
+        public void setPruneInterval(Duration pruneInterval) {
+            this.pruneInterval = pruneInterval;
+        }
+
+        public int getSubscriberBuffer() {
+            return subscriberBuffer;
+        }
+
+        public void setSubscriberBuffer(int subscriberBuffer) {
+            this.subscriberBuffer = subscriberBuffer;
+        }
+    }
+
+    /**
+     * Cache of the serialized JSON responses of product reads, cleared by every product write.
+     */
+    public static class ResponseCache {
+
+        private boolean enabled = true;
+        private DataSize maximumSize = DataSize.ofMegabytes(64);
+        private Duration timeToLive = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public DataSize getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(DataSize maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+    }
+
+    /**
+     * Per-client rate limits and per-group bulkheads of the endpoints.
+     * A request belongs to the first group whose methods and paths match it.
+     */
+    public static class RateLimit {
+
+        private boolean enabled = false;
+        private String clientHeader = "X-Client-Id";
+        private List<String> trustedProxies = new ArrayList<>();
+        private int maxClients = 10_000;
+        private Map<String, Group> groups = new LinkedHashMap<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getClientHeader() {
+            return clientHeader;
+        }
+
+        public void setClientHeader(String clientHeader) {
+            this.clientHeader = clientHeader;
+        }
+
+        public List<String> getTrustedProxies() {
+            return trustedProxies;
+        }
+
+        public void setTrustedProxies(List<String> trustedProxies) {
+            this.trustedProxies = trustedProxies;
+        }
+
+        public int getMaxClients() {
+            return maxClients;
+        }
+
+        public void setMaxClients(int maxClients) {
+            this.maxClients = maxClients;
+        }
+
+        public Map<String, Group> getGroups() {
+            return groups;
+        }
+
+        public void setGroups(Map<String, Group> groups) {
+            this.groups = groups;
+        }
+
+        public static class Group {
+
+            private List<String> paths = new ArrayList<>();
+            private List<String> methods = new ArrayList<>();
+            private double permitsPerSecond = 100;
+            private int burst = 100;
+            private int maxConcurrentCalls = 100;
+
+            public List<String> getPaths() {
+                return paths;
+            }
+
+            public void setPaths(List<String> paths) {
+                this.paths = paths;
+            }
+
+            public List<String> getMethods() {
+                return methods;
+            }
+
+            public void setMethods(List<String> methods) {
+                this.methods = methods;
+            }
+
+            public double getPermitsPerSecond() {
+                return permitsPerSecond;
+            }
+
+            public void setPermitsPerSecond(double permitsPerSecond) {
+                this.permitsPerSecond = permitsPerSecond;
+            }
+
+            public int getBurst() {
+                return burst;
+            }
+
+            public void setBurst(int burst) {
+                this.burst = burst;
+            }
+
+            public int getMaxConcurrentCalls() {
+                return maxConcurrentCalls;
+            }
+
+            public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+                this.maxConcurrentCalls = maxConcurrentCalls;
+            }
+        }
+    }
+
+    /**
+     * Binary snapshot of the catalog, imported at startup for a warm start.
+     */
+    public static class Snapshot {
+
+        /**
+         * The snapshot file imported at startup when it exists, no import when empty.
+         */
+        private Path importPath;
+
+        public Path getImportPath() {
+            return importPath;
+        }
+
+        public void setImportPath(Path importPath) {
+            this.importPath = importPath;
+        }
+    }
+
+    /**
+     * Products partitioned by id across several databases, in place of the default data source.
+     */
+    public static class Sharding {
+
+        private boolean enabled = false;
+        /**
+         * The databases, in a fixed order: a product lives in the shard of index (id - 1) modulo the number of shards,
+         * so shards can not be added, removed or reordered once they hold products.
+         */
+        private List<Shard> shards = new ArrayList<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<Shard> getShards() {
+            return shards;
+        }
+
+        public void setShards(List<Shard> shards) {
+            this.shards = shards;
+        }
+
+        /**
+         * Connection settings of one shard, with its own connection pool.
+         */
+        public static class Shard {
+
+            private String url;
+            private String username;
+            private String password;
+            private int maximumPoolSize = 10;
+
+            public String getUrl() {
+                return url;
+            }
+
+            public void setUrl(String url) {
+                this.url = url;
+            }
+
+            public String getUsername() {
+                return username;
+            }
+
+            public void setUsername(String username) {
+                this.username = username;
+            }
+
+            public String getPassword() {
+                return password;
+            }
+
+            public void setPassword(String password) {
+                this.password = password;
+            }
+
+            public int getMaximumPoolSize() {
+                return maximumPoolSize;
+            }
+
+            public void setMaximumPoolSize(int maximumPoolSize) {
+                this.maximumPoolSize = maximumPoolSize;
+            }
+        }
+    }
+}
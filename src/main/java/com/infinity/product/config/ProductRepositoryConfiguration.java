@@ -0,0 +1,86 @@
+package com.infinity.product.config;
+
+import com.infinity.product.repository.BulkheadProductRepository;
+import com.infinity.product.repository.CachingProductRepository;
+import com.infinity.product.repository.InMemoryProductRepository;
+import com.infinity.product.repository.MeteredProductRepository;
+import com.infinity.product.repository.ProductRepository;
+import com.infinity.product.repository.ShardedProductRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import java.util.Optional;
+
+/**
+ * Assembles the ProductRepository used by the service layer,
+ * by wrapping the JDBC repository (or the sharded one, when sharding is enabled) with the configured decorators.
+ * Metrics are recorded inside the cache, so that cache hits do not count as database calls,
+ * and outside the bulkhead, so that the time spent waiting for a permit is part of the latency.
+ **/
+@Configuration
+@EnableConfigurationProperties(ProductProperties.class)
+@Profile("!reactive")
+@Slf4j
+public class ProductRepositoryConfiguration {
+
+    @Primary
+    @Bean
+    public ProductRepository productRepository(@Qualifier("productRepositoryImpl") ProductRepository jdbcRepository,
+                                               Optional<ShardedProductRepository> shardedRepository,
+                                               ProductProperties properties,
+                                               MeterRegistry meterRegistry) {
+        ProductRepository repository = shardedRepository.<ProductRepository>map(sharded -> sharded).orElse(jdbcRepository);
+
+        ProductProperties.Bulkhead bulkhead = properties.getBulkhead();
+        if (bulkhead.isEnabled()) {
+            log.info("Limiting repository calls to {} concurrent calls", bulkhead.getMaxConcurrentCalls());
+            repository = new BulkheadProductRepository(repository, bulkhead.getMaxConcurrentCalls(),
+                    bulkhead.getMaxWait(), meterRegistry);
+        }
+
+        repository = new MeteredProductRepository(repository, meterRegistry);
+
+        // The whole catalog is in memory already, a cache in front of it would only add copies
+        if (properties.getInMemory().isEnabled()) {
+            InMemoryProductRepository inMemoryRepository = new InMemoryProductRepository(repository);
+            bindInMemoryMetrics(inMemoryRepository, meterRegistry);
+            return inMemoryRepository;
+        }
+
+        ProductProperties.Cache cache = properties.getCache();
+        if (cache.isEnabled()) {
+            log.info("Caching up to {} products for {}", cache.getMaximumSize(), cache.getTimeToLive());
+            CachingProductRepository cachingRepository =
+                    new CachingProductRepository(repository, cache.getMaximumSize(), cache.getTimeToLive());
+            bindCacheMetrics(cachingRepository, meterRegistry);
+            repository = cachingRepository;
+        }
+        return repository;
+    }
+
+    private static void bindInMemoryMetrics(InMemoryProductRepository repository, MeterRegistry registry) {
+        Gauge.builder("product.memory.size", repository, InMemoryProductRepository::size)
+                .description("Number of products held in memory").register(registry);
+        Gauge.builder("product.memory.bytes", repository, InMemoryProductRepository::getMemoryBytes)
+                .description("Memory taken by the products held in memory").baseUnit("bytes").register(registry);
+    }
+
+    private static void bindCacheMetrics(CachingProductRepository cache, MeterRegistry registry) {
+        FunctionCounter.builder("product.cache.gets", cache, CachingProductRepository::getHitCount)
+                .description("Product cache lookups").tag("result", "hit").register(registry);
+        FunctionCounter.builder("product.cache.gets", cache, CachingProductRepository::getMissCount)
+                .description("Product cache lookups").tag("result", "miss").register(registry);
+        FunctionCounter.builder("product.cache.evictions", cache, CachingProductRepository::getEvictionCount)
+                .description("Products evicted from the cache because it was full or the entry expired").register(registry);
+        Gauge.builder("product.cache.size", cache, CachingProductRepository::size)
+                .description("Number of products in the cache").register(registry);
+    }
+}
@@ -0,0 +1,32 @@
+package com.infinity.product.config;
+
+import com.infinity.product.controller.RateLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Applies the rate limits and bulkheads of product.rate-limit to the servlet endpoints.
+ **/
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "product.rate-limit", name = "enabled", havingValue = "true")
+public class RateLimitConfiguration {
+
+    /**
+     * Registered ahead of the filters of WebConfiguration, so that responses served from the response cache
+     * are counted like any other call.
+     */
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(ProductProperties properties,
+                                                                   MeterRegistry meterRegistry) {
+        FilterRegistrationBean<RateLimitFilter> registration =
+                new FilterRegistrationBean<>(new RateLimitFilter(properties.getRateLimit(), meterRegistry));
+        registration.setName("rateLimitFilter");
+        registration.setOrder(0);
+        return registration;
+    }
+}
@@ -0,0 +1,40 @@
+package com.infinity.product.config;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * R2DBC setup of the reactive profile.
+ * Boot's R2DBC auto-configuration is excluded in application.yml, since next to the JDBC DataSource
+ * it would take over schema initialization and the transaction manager of the blocking stack.
+ * With this ConnectionFactory defined, Boot runs schema.sql against it instead of the DataSource, which
+ * application-reactive.yml leaves out along with the rest of the JDBC stack.
+ **/
+@Configuration
+@Profile("reactive")
+@EnableConfigurationProperties(R2dbcProperties.class)
+public class ReactiveConfiguration {
+
+    @Bean
+    public ConnectionFactory connectionFactory(R2dbcProperties properties) {
+        // Built through Boot's builder so that the factory exposes its options, which the schema initializer reads
+        // the database type from
+        ConnectionFactoryBuilder builder = ConnectionFactoryBuilder.withUrl(properties.getUrl());
+        if (properties.getUsername() != null)
+            builder.username(properties.getUsername());
+        if (properties.getPassword() != null)
+            builder.password(properties.getPassword());
+        return builder.build();
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+}
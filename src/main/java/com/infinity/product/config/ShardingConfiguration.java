@@ -0,0 +1,75 @@
+package com.infinity.product.config;
+
+import com.infinity.product.repository.ProductRepositoryImpl;
+import com.infinity.product.repository.ShardedProductRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sets up one connection pool and one JDBC repository per configured shard, and the ShardedProductRepository
+ * routing between them, which ProductRepositoryConfiguration then uses in place of the JDBC repository.
+ * The schema is created on each shard, and its id and change sequences are aligned to the number of shards.
+ **/
+@Configuration
+@ConditionalOnProperty(prefix = "product.sharding", name = "enabled", havingValue = "true")
+@Profile("!reactive")
+@Slf4j
+public class ShardingConfiguration {
+
+    private final List<HikariDataSource> dataSources = new ArrayList<>();
+
+    @Bean(destroyMethod = "shutdown")
+    public ShardedProductRepository shardedProductRepository(ProductProperties properties,
+                                                             ApplicationEventPublisher eventPublisher,
+                                                             MeterRegistry meterRegistry) {
+        List<ProductProperties.Sharding.Shard> shards = properties.getSharding().getShards();
+        if (shards.isEmpty())
+            throw new IllegalStateException("product.sharding.enabled is set but no product.sharding.shards are configured");
+
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(new ClassPathResource("schema.sql"));
+        List<ProductRepositoryImpl> repositories = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            HikariDataSource dataSource = dataSource(shards.get(i), i, meterRegistry);
+            dataSources.add(dataSource);
+            schema.execute(dataSource);
+            ProductRepositoryImpl repository = new ProductRepositoryImpl(new JdbcTemplate(dataSource), dataSource,
+                    eventPublisher, i, shards.size());
+            repository.alignSequences();
+            repositories.add(repository);
+        }
+        log.info("Partitioning products across {} shards", shards.size());
+        return new ShardedProductRepository(repositories);
+    }
+
+    private static HikariDataSource dataSource(ProductProperties.Sharding.Shard shard, int index,
+                                               MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("product-shard-" + index);
+        dataSource.setJdbcUrl(shard.getUrl());
+        dataSource.setUsername(shard.getUsername());
+        dataSource.setPassword(shard.getPassword());
+        dataSource.setMaximumPoolSize(shard.getMaximumPoolSize());
+        // Exported as hikaricp.connections.* tagged with the pool name, like the default pool
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+
+    @PreDestroy
+    public void closeDataSources() {
+        dataSources.forEach(HikariDataSource::close);
+    }
+}
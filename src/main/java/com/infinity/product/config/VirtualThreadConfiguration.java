@@ -0,0 +1,60 @@
+package com.infinity.product.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs Tomcat request handling, and with it the blocking service and repository calls, on virtual threads.
+ * Async responses such as streamed product listings use the same executor, which is shut down with the context.
+ * The project is compiled for Java 17, so the virtual thread executor is looked up at runtime,
+ * and the application fails to start if this mode is enabled on a runtime older than Java 21.
+ * Enable together with product.bulkhead, so that the JDBC pool and not the thread count limits concurrency.
+ **/
+@Configuration
+@ConditionalOnProperty(prefix = "product.threads", name = "virtual", havingValue = "true")
+@Slf4j
+public class VirtualThreadConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        return newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(
+            @Qualifier("virtualThreadExecutor") ExecutorService executor) {
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor(@Qualifier("virtualThreadExecutor") ExecutorService executor) {
+        return new TaskExecutorAdapter(executor);
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) MethodHandles.publicLookup()
+                    .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class))
+                    .invoke();
+            log.info("Handling requests on virtual threads");
+            return executor;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("product.threads.virtual requires Java 21 or later, running on Java "
+                    + Runtime.version().feature(), e);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to create the virtual thread executor", e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.infinity.product.config;
+
+import com.infinity.product.controller.ProductResponseCacheFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+/**
+ * Servlet filters of the product API.
+ **/
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class WebConfiguration {
+
+    /**
+     * Adds a strong ETag computed from the response content to product listings, and answers a matching
+     * If-None-Match with 304 Not Modified. Only registered for the paged listing: the streamed listing
+     * must not be buffered, and single products already carry their version as ETag.
+     */
+    @Bean
+    public FilterRegistrationBean<ShallowEtagHeaderFilter> productListingEtagFilter() {
+        FilterRegistrationBean<ShallowEtagHeaderFilter> registration =
+                new FilterRegistrationBean<>(new ShallowEtagHeaderFilter());
+        registration.addUrlPatterns("/products");
+        registration.setName("productListingEtagFilter");
+        registration.setOrder(1);
+        return registration;
+    }
+
+    /**
+     * Serves repeated product reads from their serialized bytes. Registered inside the ETag filter,
+     * so that cached listings still get their ETag and 304 answers.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "product.response-cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public ProductResponseCacheFilter productResponseCacheFilter(ProductProperties properties,
+                                                                 ObjectProvider<ServerProperties> serverProperties,
+                                                                 MeterRegistry meterRegistry) {
+        ProductProperties.ResponseCache cache = properties.getResponseCache();
+        Compression compression = serverProperties.getIfAvailable(ServerProperties::new).getCompression();
+        // The gzip copy follows the connector compression settings, so both compress the same responses
+        long gzipMinSize = compression.getEnabled() ? compression.getMinResponseSize().toBytes() : -1;
+        ProductResponseCacheFilter filter = new ProductResponseCacheFilter(cache.getMaximumSize().toBytes(),
+                cache.getTimeToLive().toNanos(), gzipMinSize);
+
+        FunctionCounter.builder("product.response.cache.gets", filter, ProductResponseCacheFilter::getHitCount)
+                .description("Product response cache lookups").tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("product.response.cache.gets", filter, ProductResponseCacheFilter::getMissCount)
+                .description("Product response cache lookups").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("product.response.cache.size", filter, ProductResponseCacheFilter::getTotalBytes)
+                .description("Bytes of serialized responses in the cache").baseUnit("bytes").register(meterRegistry);
+        return filter;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "product.response-cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<ProductResponseCacheFilter> productResponseCacheFilterRegistration(
+            ProductResponseCacheFilter filter) {
+        FilterRegistrationBean<ProductResponseCacheFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/products", "/product/*");
+        registration.setName("productResponseCacheFilter");
+        registration.setOrder(2);
+        return registration;
+    }
+}
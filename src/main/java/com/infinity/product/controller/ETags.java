@@ -0,0 +1,41 @@
+package com.infinity.product.controller;
+
+/**
+ * Helpers for the version based ETags of products.
+ **/
+final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * Returns the ETag of the specified product version. It is weak: the version identifies the product,
+     * not the bytes of one representation, which differ between JSON, CBOR and Smile.
+     *
+     * @param version The product version.
+     * @return The ETag, W/"version".
+     */
+    static String of(int version) {
+        return "W/\"" + version + "\"";
+    }
+
+    /**
+     * Returns the product version carried by an If-Match header value.
+     * Both the quoted form sent back by clients ("2", W/"2") and a bare version (2) are accepted.
+     *
+     * @param eTag The header value.
+     * @return The version, or null if the value is not a version.
+     */
+    static Integer parseVersion(String eTag) {
+        String value = eTag.trim();
+        if (value.startsWith("W/"))
+            value = value.substring(2);
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\""))
+            value = value.substring(1, value.length() - 1);
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.infinity.product.controller;
+
+import com.infinity.product.config.ProductProperties;
+import com.infinity.product.domain.ProductChange;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.service.ProductChangeFeed;
+import com.infinity.product.service.ProductService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Change feed of the products, so that downstream services only pull what changed since they last looked.
+ * Each change carries its position in the feed; readers pass the last one they have seen as "since".
+ **/
+@RestController
+@Profile("!reactive")
+@Slf4j
+public class ProductChangeController {
+
+    private final ProductService productService;
+    private final ProductChangeFeed changeFeed;
+    private final Executor executor;
+    private final Duration longPollTimeout;
+    private final Duration streamTimeout;
+
+    public ProductChangeController(ProductService productService, ProductChangeFeed changeFeed,
+                                   ProductProperties properties,
+                                   @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                                   Executor executor) {
+        this.productService = productService;
+        this.changeFeed = changeFeed;
+        // The MVC async executor, so that woken up long polls do not read the database on the common pool
+        this.executor = executor;
+        this.longPollTimeout = properties.getChanges().getLongPollTimeout();
+        this.streamTimeout = properties.getChanges().getStreamTimeout();
+    }
+
+    /**
+     * Returns the changes after the specified position. When there are none yet,
+     * the request is held until a change is committed or the long-poll timeout expires.
+     *
+     * @param since The position of the last change the client has seen, 0 to start from the oldest.
+     * @param limit The maximum number of changes to return, up to 1000.
+     * @return The changes, oldest first, or an empty list if nothing changed before the timeout.
+     * 400 Bad Request if since is not a position of the feed or the limit is out of range
+     */
+    @GetMapping(value = "/products/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<List<ProductChange>>> getChanges(
+            @RequestParam(defaultValue = "0") String since,
+            @RequestParam(defaultValue = "100") int limit) {
+        DeferredResult<ResponseEntity<List<ProductChange>>> result =
+                new DeferredResult<>(longPollTimeout.toMillis(), ResponseEntity.ok(Collections.emptyList()));
+        if (limit < 1 || limit > ProductQuery.MAX_LIMIT) {
+            result.setResult(ResponseEntity.badRequest().build());
+            return result;
+        }
+
+        // Taken before reading, so that a change committed in between still wakes this request up
+        CompletableFuture<Void> nextChange = changeFeed.nextChange();
+        List<ProductChange> changes;
+        try {
+            changes = productService.findChanges(since, limit);
+        } catch (IllegalArgumentException e) {
+            result.setResult(ResponseEntity.badRequest().build());
+            return result;
+        }
+        if (!changes.isEmpty()) {
+            result.setResult(ResponseEntity.ok(changes));
+            return result;
+        }
+
+        nextChange.thenRunAsync(() -> {
+            if (!result.isSetOrExpired())
+                result.setResult(ResponseEntity.ok(productService.findChanges(since, limit)));
+        }, executor);
+        return result;
+    }
+
+    /**
+     * Streams the changes after the specified position as Server-Sent Events, then each new change
+     * as it is committed. The id of each event is the position of the change, so a reconnecting
+     * client resumes where it stopped through the Last-Event-ID header. The stream ends with an error
+     * if the position is not one of the feed, and ends normally if the client falls too far behind,
+     * so that it reconnects and resumes.
+     *
+     * @param since       The position of the last change the client has seen, 0 to start from the oldest.
+     * @param lastEventId The id of the last event received, sent by reconnecting clients, overrides since.
+     * @return The event stream.
+     */
+    @GetMapping(value = "/products/changes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(defaultValue = "0") String since,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        String position = lastEventId != null ? lastEventId : since;
+
+        Runnable unsubscribe = changeFeed.subscribe(position, new ProductChangeFeed.Subscriber() {
+            @Override
+            public void send(ProductChange change) throws IOException {
+                emitter.send(SseEmitter.event()
+                        .id(change.getPosition())
+                        .name("change")
+                        .data(change, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void close(Exception error) {
+                if (error == null)
+                    emitter.complete();
+                else
+                    emitter.completeWithError(error);
+            }
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        return emitter;
+    }
+}
@@ -1,42 +1,82 @@
 package com.infinity.product.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.infinity.product.domain.BatchItemResult;
 import com.infinity.product.domain.Product;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.domain.StockAdjustment;
+import com.infinity.product.domain.WriteResult;
+import com.infinity.product.domain.WriteTicket;
 import com.infinity.product.service.ProductService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
+@Profile("!reactive")
 @Slf4j
 public class ProductController {
 
+    private static final int MAX_SEARCH_OFFSET = 10_000;
+
     public final ProductService productService;
+    private final Map<MediaType, ObjectMapper> streamMappers;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ObjectMapper objectMapper) {
         this.productService = productService;
+        this.streamMappers = WireFormats.mappers(objectMapper);
     }
 
     /**
-     * Returns The product with specified ID.
+     * Returns The product with specified ID, with its version as weak ETag, in the format asked for
+     * in the Accept header, which the response varies by.
+     * When the If-None-Match header carries the current version, only the version is looked up
+     * and 304 Not Modified is returned without a body.
      *
-     * @param id    The ID of product to retrieve.
+     * @param id          The ID of product to retrieve.
+     * @param ifNoneMatch The ETag of the copy the client already has, if any.
+     * @param request     The current request, used to answer the conditional GET.
      * @return      The product with the specified ID.
      */
     @GetMapping("/product/{id}")
-    public ResponseEntity<?> getProduct(@PathVariable Integer id) {
+    public ResponseEntity<?> getProduct(@PathVariable Integer id,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                        ServletWebRequest request) {
+        // Set on the response directly, so that a 304 answered by checkNotModified carries it too
+        request.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (ifNoneMatch != null) {
+            Optional<Integer> version = productService.findVersionById(id);
+            // checkNotModified sets the 304 status and ETag header on the response when the versions match
+            if (version.isPresent() && request.checkNotModified(ETags.of(version.get())))
+                return null;
+        }
+
         return productService.findById(id)
                 .map(product -> {
                     try {
                         return ResponseEntity
                                 .ok()
-                                .eTag(Integer.toString(product.getId()))
+                                .eTag(ETags.of(product.getVersion()))
                                 .location(new URI("/product/" + product.getId()))
                                 .body(product);
 
@@ -47,19 +87,89 @@ public class ProductController {
     }
 
     /**
-     * Returns all products in the database.
+     * Returns one page of the products matching the query parameters.
+     * When the page is full, a Link header with rel="next" points to the following page.
      *
-     * @return Returns all products in the database.
+     * @param query The query parameters: after, limit (1 to 1000), namePrefix, nameContains,
+     *              minQuantity, maxQuantity, sort (id, name, quantity or version), order (asc or desc)
+     *              and fields (comma separated columns to return, the id is always returned).
+     * @return A ResponseEntity with one of the following status:
+     * 200 OK with the products of the requested page
+     * 400 Bad Request if the limit is out of range or an unknown column or order is requested
+     * 410 Gone if the after product was deleted and the sort is not on id, the listing must be restarted
      */
-
     @GetMapping("/products")
-    public Iterable<Product> getProducts() {
-        return productService.findAll();
+    public ResponseEntity<List<Product>> getProducts(ProductQuery query) {
+        if (!query.isValid())
+            return ResponseEntity.badRequest().build();
+
+        List<Product> products = productService.find(query);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+        if (products.size() == query.getLimit()) {
+            Integer lastId = products.get(products.size() - 1).getId();
+            UriComponents next = nextPage(query, lastId);
+            response.header(HttpHeaders.LINK, "<" + next.getPath() + "?" + next.getQuery() + ">; rel=\"next\"");
+        }
+        return response.body(products);
+    }
+
+    /**
+     * Searches the products by name, with the best matches first.
+     *
+     * @param q      The words to look for in the product names. The last one also matches as a prefix,
+     *               words of 4 characters and more also match with one typo.
+     * @param offset The number of matches to skip, up to 10000.
+     * @param limit  The maximum number of matches to return, up to 1000.
+     * @return A ResponseEntity with one of the following status:
+     * 200 OK with the id and name of the matching products of the requested page
+     * 400 Bad Request if the query is blank or the offset or limit is out of range
+     * 503 Service Unavailable while the search index is loading
+     */
+    @GetMapping("/products/search")
+    public ResponseEntity<List<Product>> searchProducts(@RequestParam String q,
+                                                        @RequestParam(defaultValue = "0") int offset,
+                                                        @RequestParam(defaultValue = "20") int limit) {
+        if (q.isBlank() || offset < 0 || offset > MAX_SEARCH_OFFSET || limit < 1 || limit > ProductQuery.MAX_LIMIT)
+            return ResponseEntity.badRequest().build();
+        return ResponseEntity.ok(productService.search(q, offset, limit));
+    }
+
+    /**
+     * Streams all products in the database as an array, in JSON or in the binary format asked for
+     * in the Accept header (CBOR or Smile).
+     * Rows are written to the response as they are read, so memory use does not grow with the table.
+     *
+     * @param accept The Accept header of the request.
+     * @return The streaming response body.
+     */
+    @GetMapping(value = "/products/stream", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, WireFormats.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamProducts(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType format = WireFormats.select(accept);
+        ObjectMapper mapper = streamMappers.get(format);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = mapper.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                productService.streamAll(product -> {
+                    try {
+                        generator.writeObject(product);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(format).varyBy(HttpHeaders.ACCEPT).body(body);
     }
 
     /**
      * Creates a new product.
      *
+     * In write-behind mode, the product is queued and 202 Accepted is returned with the tracking ticket,
+     * or 400 Bad Request if it has no name, a name too long, or no quantity.
+     *
      * @param product The Products to create.
      * @return The Created product.
      */
@@ -67,60 +177,127 @@ public class ProductController {
     public ResponseEntity<?> createProduct(@RequestBody Product product) {
 
         log.info("Creating new product with name: {}, quantity: {}", product.getName(), product.getQuantity());
+        Optional<WriteTicket> ticket;
+        try {
+            ticket = productService.saveLater(product);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (ticket.isPresent())
+            return accepted(ticket.get());
+
         // Create the new product
         Product newProduct = productService.save(product);
 
         // Build a created response
         try {
             return ResponseEntity
-                    .created(new URI("/product/" + product.getId()))
-                    .eTag(Integer.toString(newProduct.getVersion()))
+                    .created(new URI("/product/" + newProduct.getId()))
+                    .eTag(ETags.of(newProduct.getVersion()))
+                    .varyBy(HttpHeaders.ACCEPT)
                     .body(newProduct);
         } catch (URISyntaxException e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    /**
+     * Updates the product with the specified ID, if its version matches the If-Match header.
+     * The version check is part of the update statement, so there is no read before the write.
+     *
+     * @param product The new name and quantity of the product.
+     * @param id      The ID of the product to update.
+     * @param ifMatch The ETag (version) of the product the client last read.
+     * @return A ResponseEntity with one of the following status:
+     * 200 OK with the updated product if the update succeeded
+     * 202 Accepted with the tracking ticket if the update was queued in write-behind mode
+     * 400 Bad Request if the If-Match header is not a product version, or if the product has no name, a name too
+     * long, or no quantity in write-behind mode
+     * 404 Not Found if the product with given id does not exist
+     * 409 Conflict if the product has been updated since the client read it
+     */
     @PutMapping("/product/{id}")
     public ResponseEntity<?> updateProduct(@RequestBody Product product,
                                            @PathVariable Integer id,
-                                           @RequestHeader("If-Match") Integer ifMatch) {
-        log.info("Updating product with id: {}, name: {}, quantity: {}", id, product.getName(), product.getQuantity());
+                                           @RequestHeader("If-Match") String ifMatch) {
+        log.info("Updating product with id: {}, name: {}, quantity: {}, If-Match: {}"
+                , id, product.getName(), product.getQuantity(), ifMatch);
 
-        // Get The existing product.
-        Optional<Product> existingProduct = productService.findById(id);
+        Integer version = ETags.parseVersion(ifMatch);
+        if (version == null)
+            return ResponseEntity.badRequest().build();
 
-        return existingProduct.map(p -> {
-            // Compare the eTag version
-            log.info("Product with ID: {} has a version of {}. Update is for If-Match: {}"
-                    , id, p.getVersion(), ifMatch);
-            if (!p.getVersion().equals(ifMatch))
-                return ResponseEntity.status(HttpStatus.CONFLICT).build();
-
-            // Update Product
-            p.setName(product.getName());
-            p.setQuantity(product.getQuantity());
-            p.setVersion(p.getVersion() + 1);
-
-            log.info("Updating product with id: {} -> name= {}, quantity= {}, version={}"
-                    , p.getId(), p.getName(), p.getQuantity(), p.getVersion());
-
-            try {
-                // Update the product and return an ok response
-                if (productService.update(p)) {
-                    return ResponseEntity
-                            .ok()
-                            .location(new URI("/product/" + p.getId()))
-                            .eTag(Integer.toString(p.getVersion()))
-                            .body(p);
-                } else {
-                    return ResponseEntity.notFound().build();
-                }
-            } catch (URISyntaxException e) {
-                return ResponseEntity.internalServerError().build();
-            }
-        }).orElse(ResponseEntity.notFound().build());
+        Product p = new Product(id, product.getName(), product.getQuantity(), version);
+        Optional<WriteTicket> ticket;
+        try {
+            ticket = productService.updateLater(p);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (ticket.isPresent())
+            return accepted(ticket.get());
 
+        WriteResult result = productService.update(p);
+        if (result == WriteResult.NOT_FOUND)
+            return ResponseEntity.notFound().build();
+        if (result == WriteResult.CONFLICT)
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+
+        p.setVersion(version + 1);
+        log.info("Updated product with id: {} -> name= {}, quantity= {}, version={}"
+                , p.getId(), p.getName(), p.getQuantity(), p.getVersion());
+        try {
+            return ResponseEntity
+                    .ok()
+                    .location(new URI("/product/" + p.getId()))
+                    .eTag(ETags.of(p.getVersion()))
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(p);
+        } catch (URISyntaxException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Returns the outcome of a write accepted in write-behind mode.
+     *
+     * @param trackingId The tracking id returned with the 202 Accepted response.
+     * @return The ticket of the write, with its state, or 404 Not Found if the tracking id is unknown.
+     */
+    @GetMapping("/product/writes/{trackingId}")
+    public ResponseEntity<?> getWrite(@PathVariable String trackingId) {
+        return productService.findWrite(trackingId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Adds a delta to the quantity of the product with the specified ID.
+     * No If-Match header is needed: the increment is applied atomically by the database,
+     * so concurrent adjustments of the same product never conflict.
+     *
+     * @param adjustment The delta to apply, and whether the quantity may become negative.
+     * @param id         The ID of the product to adjust.
+     * @return A ResponseEntity with one of the following status:
+     * 204 No Content if the quantity was adjusted
+     * 202 Accepted if the adjustment was queued to be applied shortly
+     * 400 Bad Request if the delta is missing
+     * 404 Not Found if the product with given id does not exist
+     * 409 Conflict if the adjustment would make the quantity negative
+     */
+    @PostMapping("/product/{id}/stock")
+    public ResponseEntity<?> adjustStock(@RequestBody StockAdjustment adjustment, @PathVariable Integer id) {
+        if (adjustment.getDelta() == null)
+            return ResponseEntity.badRequest().build();
+        log.info("Adjusting stock of product with id: {} by {}", id, adjustment.getDelta());
+
+        WriteResult result = productService.adjustStock(id, adjustment.getDelta(), adjustment.isFloorAtZero());
+        return switch (result) {
+            case SUCCESS -> ResponseEntity.noContent().build();
+            case ACCEPTED -> ResponseEntity.accepted().build();
+            case NOT_FOUND -> ResponseEntity.notFound().build();
+            case CONFLICT -> ResponseEntity.status(HttpStatus.CONFLICT).build();
+        };
     }
 
     /**
@@ -146,4 +323,84 @@ public class ProductController {
             }
         }).orElse(ResponseEntity.notFound().build());
     }
+
+    /**
+     * Creates the specified products, using JDBC batches.
+     *
+     * @param products The products to create.
+     * @return The result of each product in the same order, with the generated ID and a status of
+     * 201 Created if the product was created
+     * 400 Bad Request if the product is missing its name or quantity, or its name is longer than 128 characters
+     * 500 Internal Server Error if the batch containing the product failed
+     */
+    @PostMapping("/products/batch")
+    public ResponseEntity<List<BatchItemResult>> createProducts(@RequestBody List<Product> products) {
+        log.info("Creating batch of {} products", products.size());
+        return ResponseEntity.ok(productService.saveAll(products));
+    }
+
+    /**
+     * Updates the specified products, using JDBC batches.
+     * Each product must carry the version it was read with, as a single update would in its If-Match header.
+     *
+     * @param products The products to update.
+     * @return The result of each product in the same order, with the new version and a status of
+     * 200 OK if the product was updated
+     * 400 Bad Request if the product is missing its ID, version, name or quantity, or its name is longer than
+     * 128 characters
+     * 404 Not Found if the product does not exist
+     * 409 Conflict if the product version does not match
+     * 500 Internal Server Error if the batch containing the product failed
+     */
+    @PutMapping("/products/batch")
+    public ResponseEntity<List<BatchItemResult>> updateProducts(@RequestBody List<Product> products) {
+        log.info("Updating batch of {} products", products.size());
+        return ResponseEntity.ok(productService.updateAll(products));
+    }
+
+    /**
+     * Deletes the products with the specified IDs, using JDBC batches.
+     *
+     * @param ids The IDs of the products to delete.
+     * @return The result of each ID in the same order, with a status of
+     * 200 OK if the product was deleted
+     * 404 Not Found if the product does not exist
+     * 500 Internal Server Error if the batch containing the product failed
+     */
+    @DeleteMapping("/products/batch")
+    public ResponseEntity<List<BatchItemResult>> deleteProducts(@RequestBody List<Integer> ids) {
+        log.info("Deleting batch of {} products", ids.size());
+        return ResponseEntity.ok(productService.deleteAll(ids));
+    }
+
+    private static ResponseEntity<WriteTicket> accepted(WriteTicket ticket) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/product/writes/" + ticket.getTrackingId()))
+                .body(ticket);
+    }
+
+    /**
+     * Returns the link to the page after the specified product, built from the bound query rather than from the
+     * raw query string, so that the limit, filters, sort and projection carry over to the next page.
+     */
+    private static UriComponents nextPage(ProductQuery query, Integer lastId) {
+        UriComponentsBuilder next = ServletUriComponentsBuilder.fromCurrentRequestUri()
+                .replaceQuery(null)
+                .queryParam("limit", query.getLimit());
+        if (query.getNamePrefix() != null)
+            next.queryParam("namePrefix", query.getNamePrefix());
+        if (query.getNameContains() != null)
+            next.queryParam("nameContains", query.getNameContains());
+        if (query.getMinQuantity() != null)
+            next.queryParam("minQuantity", query.getMinQuantity());
+        if (query.getMaxQuantity() != null)
+            next.queryParam("maxQuantity", query.getMaxQuantity());
+        if (!"id".equals(query.getSort()))
+            next.queryParam("sort", query.getSort());
+        if (query.isDescending())
+            next.queryParam("order", query.getOrder());
+        if (query.getFields() != null)
+            next.queryParam("fields", String.join(",", query.getFields()));
+        return next.queryParam("after", lastId).encode().build();
+    }
 }
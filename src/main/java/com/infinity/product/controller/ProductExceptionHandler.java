@@ -0,0 +1,63 @@
+package com.infinity.product.controller;
+
+import com.infinity.product.repository.ProductRepositoryBusyException;
+import com.infinity.product.repository.UnknownCursorException;
+import com.infinity.product.service.SearchIndexUnavailableException;
+import com.infinity.product.service.WriteQueueFullException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Translates exceptions raised below the controllers into HTTP responses.
+ **/
+@RestControllerAdvice
+@Slf4j
+public class ProductExceptionHandler {
+
+    /**
+     * Returns 503 Service Unavailable when the database is saturated, asking the client to retry shortly.
+     */
+    @ExceptionHandler(ProductRepositoryBusyException.class)
+    public ResponseEntity<?> handleRepositoryBusy(ProductRepositoryBusyException e) {
+        log.warn("Rejecting request: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+
+    /**
+     * Returns 503 Service Unavailable when the write-behind queue is full, asking the client to retry shortly.
+     */
+    @ExceptionHandler(WriteQueueFullException.class)
+    public ResponseEntity<?> handleWriteQueueFull(WriteQueueFullException e) {
+        log.warn("Rejecting write: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+
+    /**
+     * Returns 503 Service Unavailable while the search index is loading, rather than incomplete results.
+     */
+    @ExceptionHandler(SearchIndexUnavailableException.class)
+    public ResponseEntity<?> handleSearchIndexUnavailable(SearchIndexUnavailableException e) {
+        log.warn("Rejecting search: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .build();
+    }
+
+    /**
+     * Returns 410 Gone when a page is requested after a deleted product that its sort value can not be read from,
+     * rather than an empty page that would end the listing early. The client restarts from the first page.
+     */
+    @ExceptionHandler(UnknownCursorException.class)
+    public ResponseEntity<?> handleUnknownCursor(UnknownCursorException e) {
+        log.debug("Rejecting page: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.GONE).build();
+    }
+}
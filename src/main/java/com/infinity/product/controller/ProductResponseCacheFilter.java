@@ -0,0 +1,199 @@
+package com.infinity.product.controller;
+
+import com.infinity.product.repository.ProductChangedEvent;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Caches the serialized JSON of product listings and single products, along with a gzip copy of the larger ones,
+ * so that a repeated read is served by copying bytes instead of querying, serializing and compressing again.
+ * Entries are keyed by the full request URI, bounded by their total size (least recently used entries are evicted
+ * first) and expire after a time to live. Every committed product write clears the cache, since a change of one
+ * product can move it in or out of any listing; the time to live bounds the staleness of writes made by other
+ * instances, which are not seen here.
+ * Conditional single product reads are left to the controller, which answers them from the version alone.
+ **/
+@Slf4j
+public class ProductResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final Pattern CACHED_PATHS = Pattern.compile("/products|/product/\\d+");
+    private static final List<String> CACHED_HEADERS =
+            List.of(HttpHeaders.ETAG, HttpHeaders.LOCATION, HttpHeaders.LINK);
+
+    private record Entry(byte[] body, byte[] gzipBody, Map<String, String> headers, long generation, long expiresAt) {
+
+        long size() {
+            return body.length + (gzipBody != null ? gzipBody.length : 0);
+        }
+    }
+
+    private final long maximumBytes;
+    private final long timeToLiveNanos;
+    private final long gzipMinSize;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    /**
+     * Incremented by each write, a response read before a write must not be cached after it.
+     */
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maximumBytes    The maximum total size of the cached bodies.
+     * @param timeToLiveNanos How long an entry is served after it was cached.
+     * @param gzipMinSize     The size from which a gzip copy is kept, negative to never compress.
+     */
+    public ProductResponseCacheFilter(long maximumBytes, long timeToLiveNanos, long gzipMinSize) {
+        this.maximumBytes = maximumBytes;
+        this.timeToLiveNanos = timeToLiveNanos;
+        this.gzipMinSize = gzipMinSize;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod())
+                || !CACHED_PATHS.matcher(request.getRequestURI()).matches()
+                || (request.getRequestURI().startsWith("/product/") && request.getHeader(HttpHeaders.IF_NONE_MATCH) != null)
+                // Binary formats are negotiated by the controller and are not cached
+                || !MediaType.APPLICATION_JSON.equals(WireFormats.select(request.getHeader(HttpHeaders.ACCEPT)));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getQueryString() == null
+                ? request.getRequestURI()
+                : request.getRequestURI() + "?" + request.getQueryString();
+        boolean acceptsGzip = acceptsGzip(request);
+
+        Entry entry = get(key);
+        if (entry != null) {
+            hits.increment();
+            write(entry, acceptsGzip, response);
+            return;
+        }
+        misses.increment();
+
+        long readGeneration = generation.get();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK && !request.isAsyncStarted()) {
+            byte[] body = wrapper.getContentAsByteArray();
+            Map<String, String> headers = new LinkedHashMap<>();
+            headers.put(HttpHeaders.CONTENT_TYPE, wrapper.getContentType());
+            for (String name : CACHED_HEADERS) {
+                String value = wrapper.getHeader(name);
+                if (value != null)
+                    headers.put(name, value);
+            }
+            byte[] gzipBody = gzipMinSize >= 0 && body.length >= gzipMinSize ? gzip(body) : null;
+            put(key, new Entry(body, gzipBody, headers, readGeneration, System.nanoTime() + timeToLiveNanos));
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+            totalBytes = 0;
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getTotalBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    private Entry get(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() - System.nanoTime() < 0) {
+                entries.remove(key);
+                totalBytes -= entry.size();
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void put(String key, Entry entry) {
+        if (entry.size() > maximumBytes)
+            return;
+        synchronized (entries) {
+            // A write committed since the response was read, it is already stale
+            if (entry.generation() != generation.get())
+                return;
+            Entry previous = entries.put(key, entry);
+            if (previous != null)
+                totalBytes -= previous.size();
+            totalBytes += entry.size();
+            var eldest = entries.entrySet().iterator();
+            while (totalBytes > maximumBytes && eldest.hasNext()) {
+                totalBytes -= eldest.next().getValue().size();
+                eldest.remove();
+            }
+        }
+    }
+
+    private static void write(Entry entry, boolean acceptsGzip, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        entry.headers().forEach(response::setHeader);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
+        byte[] body = entry.body();
+        if (acceptsGzip && entry.gzipBody() != null) {
+            // Already encoded, so the connector does not compress it again
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = entry.gzipBody();
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
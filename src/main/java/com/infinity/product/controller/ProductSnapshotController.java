@@ -0,0 +1,47 @@
+package com.infinity.product.controller;
+
+import com.infinity.product.service.ProductSnapshotService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Admin endpoint exporting the catalog as a binary snapshot, to be imported at startup by new instances
+ * through product.snapshot.import-path.
+ **/
+@RestController
+@Profile("!reactive")
+@Slf4j
+public class ProductSnapshotController {
+
+    private final ProductSnapshotService snapshotService;
+
+    public ProductSnapshotController(ProductSnapshotService snapshotService) {
+        this.snapshotService = snapshotService;
+    }
+
+    /**
+     * Streams a snapshot of all products, written as the rows are read.
+     * A snapshot cut short by a failure lacks its end record and is refused on import.
+     *
+     * @return The snapshot, as application/octet-stream.
+     */
+    @GetMapping("/admin/products/snapshot")
+    public ResponseEntity<StreamingResponseBody> exportSnapshot() {
+        StreamingResponseBody body = outputStream -> {
+            long exported = snapshotService.export(outputStream);
+            log.info("Exported a snapshot of {} products", exported);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("products.snapshot").build().toString())
+                .body(body);
+    }
+}
@@ -0,0 +1,84 @@
+package com.infinity.product.controller;
+
+import com.infinity.product.domain.ImportSummary;
+import com.infinity.product.service.ProductTransferService;
+import com.infinity.product.service.ProductTransferService.Format;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Bulk import and export of products as CSV or NDJSON, streamed in both directions.
+ **/
+@RestController
+@Profile("!reactive")
+public class ProductTransferController {
+
+    private static final String CSV = "text/csv";
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final ProductTransferService transferService;
+
+    public ProductTransferController(ProductTransferService transferService) {
+        this.transferService = transferService;
+    }
+
+    /**
+     * Creates a product for each row of the body, read and written as it arrives so that the body can be of any size.
+     * CSV bodies start with a header naming the name and quantity columns, NDJSON bodies hold one product per line.
+     * Invalid rows are counted and skipped, the first ones are reported with their row number.
+     *
+     * @param contentType The format of the body, text/csv or application/x-ndjson.
+     * @param body        The rows to import.
+     * @return A ResponseEntity with one of the following status:
+     * 200 OK with the import summary, also when some rows were rejected or the body was cut short by a syntax error
+     * 415 Unsupported Media Type if the body is neither CSV nor NDJSON
+     */
+    @PostMapping(path = "/products/import", consumes = {CSV, NDJSON})
+    public ResponseEntity<ImportSummary> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                        InputStream body) throws IOException {
+        MediaType type = MediaType.parseMediaType(contentType);
+        Format format = Format.CSV.getMediaType().isCompatibleWith(type) ? Format.CSV : Format.NDJSON;
+        return ResponseEntity.ok(transferService.importProducts(body, format));
+    }
+
+    /**
+     * Streams all products in id order, each row written as it is read from the database.
+     *
+     * @param format The format to export, csv or ndjson.
+     * @return A ResponseEntity with one of the following status:
+     * 200 OK with the products, as an attachment
+     * 400 Bad Request if the format is unknown
+     */
+    @GetMapping("/products/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "ndjson") String format) {
+        Format selected = Arrays.stream(Format.values())
+                .filter(value -> value.name().equalsIgnoreCase(format))
+                .findFirst()
+                .orElse(null);
+        if (selected == null)
+            return ResponseEntity.badRequest().build();
+
+        StreamingResponseBody body = outputStream -> transferService.exportProducts(outputStream, selected);
+        return ResponseEntity.ok()
+                .contentType(selected.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("products." + selected.name().toLowerCase(Locale.ROOT))
+                        .build()
+                        .toString())
+                .body(body);
+    }
+}
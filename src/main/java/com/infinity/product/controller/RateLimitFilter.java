@@ -0,0 +1,205 @@
+package com.infinity.product.controller;
+
+import com.infinity.product.config.ProductProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits and bulkheads for groups of endpoints, so that one client or one kind of request
+ * can not starve the others. Each group (for instance full scans, point reads and writes) has:
+ * a token bucket per client, refilled at the permitted rate, and a bulkhead shared by all clients
+ * that caps the calls of the group in progress. A request that finds either one exhausted is
+ * answered 429 Too Many Requests with Retry-After, without going further. The bulkhead is
+ * checked first, so that a request it rejects does not use up a token of its client.
+ * It is a filter registered ahead of the others, so that reads served by the response cache are limited too.
+ * Clients are identified by their address. The configured header is only trusted on requests coming
+ * from one of the trusted proxies, which set it themselves, since any other caller could pick its value.
+ * The buckets of the least recently seen clients are dropped past the maximum number of clients.
+ **/
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final class Group {
+        final String name;
+        final List<String> paths;
+        final List<String> methods;
+        final int burst;
+        final double permitsPerSecond;
+        final Semaphore permits;
+        final Counter rateRejections;
+        final Counter concurrencyRejections;
+
+        Group(String name, ProductProperties.RateLimit.Group settings, MeterRegistry registry) {
+            this.name = name;
+            this.paths = settings.getPaths();
+            this.methods = settings.getMethods();
+            this.burst = settings.getBurst();
+            this.permitsPerSecond = settings.getPermitsPerSecond();
+            this.permits = new Semaphore(settings.getMaxConcurrentCalls());
+            this.rateRejections = rejectionCounter(registry, name, "rate");
+            this.concurrencyRejections = rejectionCounter(registry, name, "concurrency");
+            Gauge.builder("product.ratelimit.bulkhead.available", permits, Semaphore::availablePermits)
+                    .description("Calls that the group can still take in")
+                    .tag("group", name)
+                    .register(registry);
+        }
+
+        boolean matches(String method, String path) {
+            if (!methods.isEmpty() && !methods.contains(method))
+                return false;
+            for (String pattern : paths) {
+                if (pathMatcher.match(pattern, path))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    private final List<Group> groups = new ArrayList<>();
+    private final String clientHeader;
+    private final Set<String> trustedProxies;
+    private final int maxClients;
+    private final Map<String, TokenBucket> buckets;
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    public RateLimitFilter(ProductProperties.RateLimit settings, MeterRegistry registry) {
+        this.clientHeader = settings.getClientHeader();
+        this.trustedProxies = Set.copyOf(settings.getTrustedProxies());
+        this.maxClients = settings.getMaxClients();
+        settings.getGroups().forEach((name, group) -> groups.add(new Group(name, group, registry)));
+        // Access ordered map, so the eldest entry is the least recently seen client
+        this.buckets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                return size() > RateLimitFilter.this.maxClients;
+            }
+        };
+    }
+
+    // The dispatch that completes an async request is not filtered, it was counted by the initial one
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Group group = groupOf(request);
+        if (group == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String client = clientOf(request);
+        if (!group.permits.tryAcquire()) {
+            group.concurrencyRejections.increment();
+            log.debug("Bulkhead of {} is full, rejecting client {}", group.name, client);
+            reject(response, TimeUnit.SECONDS.toNanos(1));
+            return;
+        }
+
+        long now = System.nanoTime();
+        long waitNanos = bucket(group, client, now).tryAcquire(now);
+        if (waitNanos > 0) {
+            group.permits.release();
+            group.rateRejections.increment();
+            log.debug("Rate limiting client {} on {}", client, group.name);
+            reject(response, waitNanos);
+            return;
+        }
+
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            // Async requests only complete once their stream or long poll ends, so the permit is held until then
+            async = request.isAsyncStarted();
+            if (async)
+                request.getAsyncContext().addListener(new PermitRelease(group.permits));
+        } finally {
+            if (!async)
+                group.permits.release();
+        }
+    }
+
+    /**
+     * Releases the permit of an async request. The container completes the request after a timeout or an error
+     * too, so onComplete is always called once.
+     */
+    private record PermitRelease(Semaphore permits) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permits.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    private Group groupOf(HttpServletRequest request) {
+        String path = urlPathHelper.getPathWithinApplication(request);
+        for (Group group : groups) {
+            if (group.matches(request.getMethod(), path))
+                return group;
+        }
+        return null;
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        if (clientHeader == null || !trustedProxies.contains(address))
+            return address;
+        String client = request.getHeader(clientHeader);
+        return client != null && !client.isBlank() ? client : address;
+    }
+
+    private TokenBucket bucket(Group group, String client, long now) {
+        synchronized (buckets) {
+            return buckets.computeIfAbsent(group.name + '|' + client,
+                    key -> new TokenBucket(group.burst, group.permitsPerSecond, now));
+        }
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+    }
+
+    private static Counter rejectionCounter(MeterRegistry registry, String group, String reason) {
+        return Counter.builder("product.ratelimit.rejections")
+                .description("Requests rejected with 429 Too Many Requests")
+                .tag("group", group)
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
@@ -0,0 +1,129 @@
+package com.infinity.product.controller;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.WriteResult;
+import com.infinity.product.service.ReactiveProductService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * Non-blocking version of ProductController, served by WebFlux when the reactive profile is active.
+ * The endpoints and their responses are the same as the blocking ones.
+ **/
+@RestController
+@Profile("reactive")
+@Slf4j
+public class ReactiveProductController {
+
+    private final ReactiveProductService productService;
+
+    @Autowired
+    public ReactiveProductController(ReactiveProductService productService) {
+        this.productService = productService;
+    }
+
+    /**
+     * Returns The product with specified ID, with its version as weak ETag, in the format asked for
+     * in the Accept header, which the response varies by.
+     * WebFlux answers a matching If-None-Match with 304 Not Modified.
+     *
+     * @param id    The ID of product to retrieve.
+     * @return      The product with the specified ID.
+     */
+    @GetMapping("/product/{id}")
+    public Mono<ResponseEntity<Product>> getProduct(@PathVariable Integer id) {
+        return productService.findById(id)
+                .map(product -> ResponseEntity
+                        .ok()
+                        .eTag(ETags.of(product.getVersion()))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .location(URI.create("/product/" + product.getId()))
+                        .body(product))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Streams all products in the database as a JSON array.
+     * Rows are read from the database only as fast as the client consumes them.
+     *
+     * @return All products in the database.
+     */
+    @GetMapping("/products")
+    public Flux<Product> getProducts() {
+        return productService.findAll();
+    }
+
+    /**
+     * Creates a new product.
+     *
+     * @param product The Products to create.
+     * @return The Created product.
+     */
+    @PostMapping("/product")
+    public Mono<ResponseEntity<Product>> createProduct(@RequestBody Product product) {
+        log.info("Creating new product with name: {}, quantity: {}", product.getName(), product.getQuantity());
+        return productService.save(product)
+                .map(newProduct -> ResponseEntity
+                        .created(URI.create("/product/" + newProduct.getId()))
+                        .eTag(ETags.of(newProduct.getVersion()))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(newProduct));
+    }
+
+    /**
+     * Updates the product with the specified ID, if its version matches the If-Match header.
+     *
+     * @param product The new name and quantity of the product.
+     * @param id      The ID of the product to update.
+     * @param ifMatch The ETag (version) of the product the client last read.
+     * @return 200 OK with the updated product, 404 Not Found or 409 Conflict.
+     */
+    @PutMapping("/product/{id}")
+    public Mono<ResponseEntity<Product>> updateProduct(@RequestBody Product product,
+                                                       @PathVariable Integer id,
+                                                       @RequestHeader("If-Match") String ifMatch) {
+        log.info("Updating product with id: {}, name: {}, quantity: {}, If-Match: {}"
+                , id, product.getName(), product.getQuantity(), ifMatch);
+        Integer version = ETags.parseVersion(ifMatch);
+        if (version == null)
+            return Mono.just(ResponseEntity.badRequest().<Product>build());
+        Product p = new Product(id, product.getName(), product.getQuantity(), version);
+        return productService.update(p).map(result -> {
+            if (result == WriteResult.NOT_FOUND)
+                return ResponseEntity.notFound().<Product>build();
+            if (result == WriteResult.CONFLICT)
+                return ResponseEntity.status(HttpStatus.CONFLICT).<Product>build();
+            p.setVersion(version + 1);
+            return ResponseEntity
+                    .ok()
+                    .location(URI.create("/product/" + p.getId()))
+                    .eTag(ETags.of(p.getVersion()))
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(p);
+        });
+    }
+
+    /**
+     * Deletes the product with the specified ID.
+     *
+     * @param id The ID of the Product to delete.
+     * @return 200 OK if the product was deleted, 404 Not Found if it does not exist.
+     */
+    @DeleteMapping("/product/{id}")
+    public Mono<ResponseEntity<Void>> deleteProduct(@PathVariable Integer id) {
+        log.info("Deleting Product with ID: {}", id);
+        return productService.delete(id)
+                .map(deleted -> deleted
+                        ? ResponseEntity.ok().<Void>build()
+                        : ResponseEntity.notFound().<Void>build());
+    }
+}
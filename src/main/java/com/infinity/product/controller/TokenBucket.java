@@ -0,0 +1,35 @@
+package com.infinity.product.controller;
+
+/**
+ * Token bucket: holds up to a burst of tokens, refilled at a fixed rate, and each call takes one.
+ **/
+final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(int burst, double permitsPerSecond, long now) {
+        this.capacity = burst;
+        this.tokensPerNano = permitsPerSecond / 1_000_000_000d;
+        this.tokens = burst;
+        this.refilledAt = now;
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @param now The current time, from System.nanoTime().
+     * @return 0 if a token was taken, otherwise the nanoseconds until the next token is available.
+     */
+    synchronized long tryAcquire(long now) {
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+}
@@ -0,0 +1,66 @@
+package com.infinity.product.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The representations of products: JSON by default, and the binary CBOR and Smile formats for callers that
+ * ask for them in the Accept header. The binary formats carry the same structure as JSON, so they reuse
+ * the Jackson mapping of the products, but skip number formatting and repeated field names.
+ **/
+final class WireFormats {
+
+    static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    /**
+     * Supported formats, in order of preference when the client accepts several with the same quality.
+     */
+    private static final List<MediaType> SUPPORTED =
+            List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
+
+    private WireFormats() {
+    }
+
+    /**
+     * Returns the format to write for the specified Accept header.
+     *
+     * @param accept The Accept header of the request, if any.
+     * @return The preferred supported format, JSON if the header is missing, invalid or accepts none of them.
+     */
+    static MediaType select(String accept) {
+        if (accept == null || accept.isBlank())
+            return MediaType.APPLICATION_JSON;
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+            // Sorts by quality first, then by specificity
+            MimeTypeUtils.sortBySpecificity(accepted);
+        } catch (IllegalArgumentException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        for (MediaType type : accepted) {
+            for (MediaType supported : SUPPORTED) {
+                if (type.includes(supported))
+                    return supported;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    /**
+     * Returns a mapper for each supported format, with the same configuration as the JSON mapper.
+     * Mappers are expensive to copy and cache their serializers, so they are built once.
+     */
+    static Map<MediaType, ObjectMapper> mappers(ObjectMapper jsonMapper) {
+        return Map.of(MediaType.APPLICATION_JSON, jsonMapper,
+                MediaType.APPLICATION_CBOR, jsonMapper.copyWith(new CBORFactory()),
+                APPLICATION_SMILE, jsonMapper.copyWith(new SmileFactory()));
+    }
+}
@@ -0,0 +1,55 @@
+package com.infinity.product.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * This is a POJO class that represent the outcome of one item of a batch request.
+ * Results are returned in the same order as the items of the request.
+ * id: the id of the product, generated for created products.
+ * version: the version of the product after the operation.
+ * status: the HTTP status code the item would have had as a single request.
+ **/
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@ToString
+@EqualsAndHashCode
+public class BatchItemResult {
+
+    private Integer id;
+    private Integer version;
+    private Integer status;
+
+    public BatchItemResult() {
+    }
+
+    public BatchItemResult(Integer id, Integer version, Integer status) {
+        this.id = id;
+        this.version = version;
+        this.status = status;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,106 @@
+package com.infinity.product.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is a POJO class that represent the outcome of a bulk import of products.
+ * read: the number of rows read from the body.
+ * imported: the number of products created.
+ * rejected: the number of rows refused by validation, the first ones are listed in errors.
+ * failed: the number of valid rows whose batch failed to be written.
+ * aborted: true if the body could not be parsed past some line, the rows before it were still imported.
+ * elapsedMillis / rowsPerSecond: the duration and throughput of the import.
+ * errors: the row number and reason of the first rejected rows.
+ **/
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@ToString
+@EqualsAndHashCode
+public class ImportSummary {
+
+    /**
+     * A rejected row of the body.
+     *
+     * @param row     The number of the row in the body, from 1, a CSV header not included.
+     * @param message Why the row was rejected.
+     */
+    public record RowError(long row, String message) {
+    }
+
+    private long read;
+    private long imported;
+    private long rejected;
+    private long failed;
+    private boolean aborted;
+    private long elapsedMillis;
+    private double rowsPerSecond;
+    private List<RowError> errors = new ArrayList<>();
+
+    public long getRead() {
+        return read;
+    }
+
+    public void setRead(long read) {
+        this.read = read;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    public void setAborted(boolean aborted) {
+        this.aborted = aborted;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,103 @@
+package com.infinity.product.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * This is a POJO class that represent one entry of the product change feed.
+ * seq: the sequence number of the change, increasing with each change of the database that recorded it.
+ * position: the position of the feed right after this change, which readers pass back as "since" to read the
+ * changes that follow. It is the sequence number with a single database, and the sequence number reached on
+ * each shard, joined with dots, when products are partitioned across several databases.
+ * id: the id of the changed product.
+ * operation: UPSERT when the product was created or updated, DELETE when it was deleted.
+ * name, quantity, version: the state of the product after an UPSERT, absent for a DELETE.
+ **/
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@ToString
+@EqualsAndHashCode
+public class ProductChange {
+
+    public enum Operation {
+        UPSERT,
+        DELETE
+    }
+
+    private Long seq;
+    private String position;
+    private Integer id;
+    private Operation operation;
+    private String name;
+    private Integer quantity;
+    private Integer version;
+
+    public ProductChange() {
+    }
+
+    public ProductChange(Long seq, Integer id, Operation operation, String name, Integer quantity, Integer version) {
+        this.seq = seq;
+        this.position = seq == null ? null : seq.toString();
+        this.id = id;
+        this.operation = operation;
+        this.name = name;
+        this.quantity = quantity;
+        this.version = version;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+
+    public String getPosition() {
+        return position;
+    }
+
+    public void setPosition(String position) {
+        this.position = position;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+}
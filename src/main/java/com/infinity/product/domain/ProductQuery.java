@@ -0,0 +1,130 @@
+package com.infinity.product.domain;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * This is a POJO class that represent a filtered, sorted and projected listing of products,
+ * bound from the query parameters of GET /products.
+ * after: id of the last product of the previous page, for keyset pagination.
+ * limit: maximum number of products to return.
+ * namePrefix / nameContains: filters on the product name.
+ * minQuantity / maxQuantity: inclusive range on the product quantity.
+ * sort / order: column to sort on (id, name, quantity or version) and direction (asc or desc), ties are broken by id.
+ * fields: columns to return, the id is always returned.
+ **/
+@ToString
+@EqualsAndHashCode
+public class ProductQuery {
+
+    public static final List<String> COLUMNS = List.of("id", "name", "quantity", "version");
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    private Integer after;
+    private Integer limit = DEFAULT_LIMIT;
+    private String namePrefix;
+    private String nameContains;
+    private Integer minQuantity;
+    private Integer maxQuantity;
+    private String sort = "id";
+    private String order = "asc";
+    private List<String> fields;
+
+    public ProductQuery() {
+    }
+
+    public ProductQuery(Integer after, Integer limit) {
+        this.after = after;
+        this.limit = limit;
+    }
+
+    /**
+     * Returns whether the query only refers to known columns, directions and limits.
+     * Column names end up in the SQL text, so they must be checked against this whitelist first.
+     */
+    public boolean isValid() {
+        return limit != null && limit >= 1 && limit <= MAX_LIMIT
+                && COLUMNS.contains(sort)
+                && ("asc".equals(order) || "desc".equals(order))
+                && (fields == null || COLUMNS.containsAll(fields));
+    }
+
+    public boolean isDescending() {
+        return "desc".equals(order);
+    }
+
+    public Integer getAfter() {
+        return after;
+    }
+
+    public void setAfter(Integer after) {
+        this.after = after;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    public void setNamePrefix(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    public String getNameContains() {
+        return nameContains;
+    }
+
+    public void setNameContains(String nameContains) {
+        this.nameContains = nameContains;
+    }
+
+    public Integer getMinQuantity() {
+        return minQuantity;
+    }
+
+    public void setMinQuantity(Integer minQuantity) {
+        this.minQuantity = minQuantity;
+    }
+
+    public Integer getMaxQuantity() {
+        return maxQuantity;
+    }
+
+    public void setMaxQuantity(Integer maxQuantity) {
+        this.maxQuantity = maxQuantity;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public String getOrder() {
+        return order;
+    }
+
+    public void setOrder(String order) {
+        this.order = order;
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public void setFields(List<String> fields) {
+        this.fields = fields;
+    }
+}
@@ -0,0 +1,41 @@
+package com.infinity.product.domain;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * This is a POJO class that represent a relative change of the quantity of a product.
+ * delta: the amount to add to the quantity, negative to remove stock.
+ * floorAtZero: whether the change must be refused if it would make the quantity negative.
+ **/
+@ToString
+@EqualsAndHashCode
+public class StockAdjustment {
+
+    private Integer delta;
+    private boolean floorAtZero;
+
+    public StockAdjustment() {
+    }
+
+    public StockAdjustment(Integer delta, boolean floorAtZero) {
+        this.delta = delta;
+        this.floorAtZero = floorAtZero;
+    }
+
+    public Integer getDelta() {
+        return delta;
+    }
+
+    public void setDelta(Integer delta) {
+        this.delta = delta;
+    }
+
+    public boolean isFloorAtZero() {
+        return floorAtZero;
+    }
+
+    public void setFloorAtZero(boolean floorAtZero) {
+        this.floorAtZero = floorAtZero;
+    }
+}
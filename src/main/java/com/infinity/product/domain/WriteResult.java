@@ -0,0 +1,16 @@
+package com.infinity.product.domain;
+
+/**
+ * Outcome of a conditional write against a single product.
+ * SUCCESS: the product was written.
+ * NOT_FOUND: no product exists with the given id.
+ * CONFLICT: the product exists but its version does not match the expected one,
+ * or the write would break a constraint such as a quantity floor.
+ * ACCEPTED: the write was queued and will be applied later.
+ **/
+public enum WriteResult {
+    SUCCESS,
+    NOT_FOUND,
+    CONFLICT,
+    ACCEPTED
+}
@@ -0,0 +1,73 @@
+package com.infinity.product.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * This is a POJO class that represent a write accepted by the write-behind queue, and its outcome so far.
+ * trackingId: the id to poll the outcome of the write with.
+ * state: PENDING until the write is flushed, then APPLIED, NOT_FOUND, CONFLICT or FAILED.
+ * id: the id of the product, generated once a created product is applied.
+ * version: the version of the product once the write is applied.
+ **/
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@ToString
+@EqualsAndHashCode
+public class WriteTicket {
+
+    public enum State {
+        PENDING,
+        APPLIED,
+        NOT_FOUND,
+        CONFLICT,
+        FAILED
+    }
+
+    private String trackingId;
+    private State state;
+    private Integer id;
+    private Integer version;
+
+    public WriteTicket() {
+    }
+
+    public WriteTicket(String trackingId, State state, Integer id, Integer version) {
+        this.trackingId = trackingId;
+        this.state = state;
+        this.id = id;
+        this.version = version;
+    }
+
+    public String getTrackingId() {
+        return trackingId;
+    }
+
+    public void setTrackingId(String trackingId) {
+        this.trackingId = trackingId;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,155 @@
+package com.infinity.product.repository;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.ProductChange;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.domain.WriteResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of concurrent calls to another ProductRepository.
+ * With virtual threads the number of request threads is no longer bounded, so this bulkhead,
+ * sized to the JDBC connection pool, is what keeps callers from piling up on the pool.
+ * A call that can not get a permit within the maximum wait fails with a ProductRepositoryBusyException.
+ **/
+public class BulkheadProductRepository extends DelegatingProductRepository {
+
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+    private final Counter rejections;
+
+    public BulkheadProductRepository(ProductRepository delegate, int maxConcurrentCalls, Duration maxWait,
+                                     MeterRegistry registry) {
+        super(delegate);
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.rejections = Counter.builder("product.repository.bulkhead.rejections")
+                .description("Repository calls rejected because no permit was available in time")
+                .register(registry);
+        Gauge.builder("product.repository.bulkhead.available", permits, Semaphore::availablePermits)
+                .description("Permits currently available in the repository bulkhead")
+                .register(registry);
+    }
+
+    @Override
+    public Optional<Product> findById(Integer id) {
+        return call(() -> delegate.findById(id));
+    }
+
+    @Override
+    public Optional<Integer> findVersionById(Integer id) {
+        return call(() -> delegate.findVersionById(id));
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return call(delegate::findAll);
+    }
+
+    @Override
+    public List<Product> find(ProductQuery query) {
+        return call(() -> delegate.find(query));
+    }
+
+    @Override
+    public void streamAll(Consumer<Product> consumer) {
+        // The permit is held for the whole stream, as is the connection
+        call(() -> {
+            delegate.streamAll(consumer);
+            return null;
+        });
+    }
+
+    @Override
+    public WriteResult update(Product product) {
+        return call(() -> delegate.update(product));
+    }
+
+    @Override
+    public Product save(Product product) {
+        return call(() -> delegate.save(product));
+    }
+
+    @Override
+    public Boolean delete(Integer id) {
+        return call(() -> delegate.delete(id));
+    }
+
+    @Override
+    public List<Product> saveAll(List<Product> products) {
+        return call(() -> delegate.saveAll(products));
+    }
+
+    @Override
+    public int importAll(List<Product> products) {
+        return call(() -> delegate.importAll(products));
+    }
+
+    @Override
+    public void finishImport() {
+        call(() -> {
+            delegate.finishImport();
+            return null;
+        });
+    }
+
+    @Override
+    public List<WriteResult> updateAll(List<Product> products) {
+        return call(() -> delegate.updateAll(products));
+    }
+
+    @Override
+    public List<Boolean> deleteAll(List<Integer> ids) {
+        return call(() -> delegate.deleteAll(ids));
+    }
+
+    @Override
+    public WriteResult adjustQuantity(Integer id, int delta, boolean floorAtZero) {
+        return call(() -> delegate.adjustQuantity(id, delta, floorAtZero));
+    }
+
+    @Override
+    public Map<Integer, Boolean> adjustQuantities(Map<Integer, Integer> deltas) {
+        return call(() -> delegate.adjustQuantities(deltas));
+    }
+
+    @Override
+    public List<ProductChange> findChanges(String since, int limit) {
+        return call(() -> delegate.findChanges(since, limit));
+    }
+
+    @Override
+    public int pruneChanges(Instant olderThan) {
+        return call(() -> delegate.pruneChanges(olderThan));
+    }
+
+    private <T> T call(Supplier<T> operation) {
+        try {
+            if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                rejections.increment();
+                throw new ProductRepositoryBusyException("No database connection available within "
+                        + Duration.ofNanos(maxWaitNanos).toMillis() + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProductRepositoryBusyException("Interrupted while waiting for a database connection");
+        }
+        try {
+            return operation.get();
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.infinity.product.repository;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.WriteResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache in front of another ProductRepository.
+ * Entries are keyed by product id, bounded in size (least recently used entries are evicted first)
+ * and expire after a fixed time to live.
+ * The version column guards against stale entries: an entry is never replaced by an older version,
+ * and deleted products are remembered until they expire so that a concurrent load can not resurrect them.
+ * Writes whose result is only known to the delegate leave a stale marker instead of removing the entry:
+ * lookups miss on it, and it rejects any product read or written before it, which may predate the write.
+ * Cached products are copied on the way in and out, callers are free to mutate what they get back.
+ * The cache only sees the writes made through it: a product written through another instance is served
+ * stale until its entry expires.
+ **/
+@Slf4j
+public class CachingProductRepository extends DelegatingProductRepository {
+
+    private final int maximumSize;
+    private final long timeToLiveNanos;
+    private final Map<Integer, Entry> entries;
+    // Incremented by each stale marker, guarded by this like the entries
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingProductRepository(ProductRepository delegate, int maximumSize, Duration timeToLive) {
+        super(delegate);
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        // Access ordered map, so the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > CachingProductRepository.this.maximumSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public Optional<Product> findById(Integer id) {
+        Entry entry = get(id);
+        if (entry != null) {
+            hits.increment();
+            return entry.isDeleted() ? Optional.empty() : Optional.of(copy(entry.product()));
+        }
+        misses.increment();
+        long startedAt = generation();
+        Optional<Product> product = delegate.findById(id);
+        product.ifPresent(p -> put(p.getId(), copy(p), startedAt));
+        return product;
+    }
+
+    @Override
+    public Optional<Integer> findVersionById(Integer id) {
+        Entry entry = get(id);
+        if (entry != null) {
+            hits.increment();
+            return entry.isDeleted() ? Optional.empty() : Optional.of(entry.version());
+        }
+        // Not worth a full load, the caller only needs the version
+        misses.increment();
+        return delegate.findVersionById(id);
+    }
+
+    @Override
+    public WriteResult update(Product product) {
+        long startedAt = generation();
+        WriteResult updated = delegate.update(product);
+        if (updated == WriteResult.SUCCESS) {
+            put(product.getId(), copy(product), startedAt);
+        } else {
+            invalidate(product.getId());
+        }
+        return updated;
+    }
+
+    @Override
+    public Product save(Product product) {
+        long startedAt = generation();
+        Product saved = delegate.save(product);
+        if (saved != null && saved.getId() != null) {
+            put(saved.getId(), copy(saved), startedAt);
+        }
+        return saved;
+    }
+
+    @Override
+    public Boolean delete(Integer id) {
+        long startedAt = generation();
+        Boolean deleted = delegate.delete(id);
+        if (Boolean.TRUE.equals(deleted)) {
+            put(id, null, startedAt);
+        } else {
+            invalidate(id);
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Product> saveAll(List<Product> products) {
+        long startedAt = generation();
+        List<Product> saved = delegate.saveAll(products);
+        saved.forEach(p -> put(p.getId(), copy(p), startedAt));
+        return saved;
+    }
+
+    @Override
+    public int importAll(List<Product> products) {
+        // Imported products overwrite whatever had the same id, including deleted ones
+        int imported = delegate.importAll(products);
+        products.forEach(p -> invalidate(p.getId()));
+        return imported;
+    }
+
+    @Override
+    public List<WriteResult> updateAll(List<Product> products) {
+        long startedAt = generation();
+        List<WriteResult> results = delegate.updateAll(products);
+        for (int i = 0; i < results.size(); i++) {
+            Product product = products.get(i);
+            if (results.get(i) == WriteResult.SUCCESS) {
+                put(product.getId(), copy(product), startedAt);
+            } else {
+                invalidate(product.getId());
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public List<Boolean> deleteAll(List<Integer> ids) {
+        long startedAt = generation();
+        List<Boolean> results = delegate.deleteAll(ids);
+        for (int i = 0; i < results.size(); i++) {
+            if (Boolean.TRUE.equals(results.get(i))) {
+                put(ids.get(i), null, startedAt);
+            } else {
+                invalidate(ids.get(i));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public WriteResult adjustQuantity(Integer id, int delta, boolean floorAtZero) {
+        // The new quantity is only known to the database
+        WriteResult result = delegate.adjustQuantity(id, delta, floorAtZero);
+        invalidate(id);
+        return result;
+    }
+
+    @Override
+    public Map<Integer, Boolean> adjustQuantities(Map<Integer, Integer> deltas) {
+        Map<Integer, Boolean> results = delegate.adjustQuantities(deltas);
+        deltas.keySet().forEach(this::invalidate);
+        return results;
+    }
+
+    /**
+     * Replaces the entry of the specified product with a stale marker, the next lookup goes to the delegate.
+     * Until the marker expires, only products read or written after it are cached in its place, so that a load
+     * that started before a write whose result is only known to the delegate can not cache what it read.
+     *
+     * @param id The id of the product to evict.
+     */
+    public synchronized void invalidate(Integer id) {
+        entries.put(id, new Entry(null, true, ++generation, System.nanoTime() + timeToLiveNanos));
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the live entry of the specified product, null if there is none or only a stale marker.
+     */
+    private synchronized Entry get(Integer id) {
+        Entry entry = entries.get(id);
+        if (entry != null && entry.expiresAt() - System.nanoTime() < 0) {
+            entries.remove(id);
+            evictions.increment();
+            return null;
+        }
+        return entry == null || entry.stale() ? null : entry;
+    }
+
+    /**
+     * Returns the current generation, taken before a product is read or written, to be passed to put.
+     */
+    private synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Caches the specified product, or a tombstone when product is null.
+     * A live entry with a newer version is kept, so a slow load can never overwrite the result of an update,
+     * and so is a stale marker left after the specified generation, by a write the product may predate.
+     */
+    private synchronized void put(Integer id, Product product, long startedAt) {
+        Entry existing = entries.get(id);
+        Entry entry = new Entry(product, false, generation, System.nanoTime() + timeToLiveNanos);
+        if (existing != null && existing.expiresAt() - System.nanoTime() >= 0) {
+            if (existing.stale() && existing.generation() > startedAt) {
+                log.debug("Not caching product with id: {} read or written before its last write", id);
+                return;
+            }
+            if (!existing.stale() && existing.version() > entry.version()) {
+                log.debug("Keeping cached product with id: {} at version {}, ignoring version {}",
+                        id, existing.version(), entry.version());
+                return;
+            }
+        }
+        entries.put(id, entry);
+    }
+
+
+    private static Product copy(Product product) {
+        return new Product(product.getId(), product.getName(), product.getQuantity(), product.getVersion());
+    }
+
+    /**
+     * A cached product, a tombstone of a deleted product, or a stale marker left at the specified generation.
+     */
+    private record Entry(Product product, boolean stale, long generation, long expiresAt) {
+
+        boolean isDeleted() {
+            return product == null;
+        }
+
+        int version() {
+            if (product == null)
+                return Integer.MAX_VALUE;
+            return product.getVersion() == null ? 0 : product.getVersion();
+        }
+    }
+}
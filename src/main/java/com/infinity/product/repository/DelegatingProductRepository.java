@@ -0,0 +1,110 @@
+package com.infinity.product.repository;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.ProductChange;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.domain.WriteResult;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Base class for repositories that decorate another ProductRepository.
+ * Every operation is forwarded to the delegate, subclasses override the ones they need to intercept.
+ **/
+public abstract class DelegatingProductRepository implements ProductRepository {
+
+    protected final ProductRepository delegate;
+
+    protected DelegatingProductRepository(ProductRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Optional<Product> findById(Integer id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Optional<Integer> findVersionById(Integer id) {
+        return delegate.findVersionById(id);
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Product> find(ProductQuery query) {
+        return delegate.find(query);
+    }
+
+    @Override
+    public void streamAll(Consumer<Product> consumer) {
+        delegate.streamAll(consumer);
+    }
+
+    @Override
+    public WriteResult update(Product product) {
+        return delegate.update(product);
+    }
+
+    @Override
+    public Product save(Product product) {
+        return delegate.save(product);
+    }
+
+    @Override
+    public Boolean delete(Integer id) {
+        return delegate.delete(id);
+    }
+
+    @Override
+    public List<Product> saveAll(List<Product> products) {
+        return delegate.saveAll(products);
+    }
+
+    @Override
+    public int importAll(List<Product> products) {
+        return delegate.importAll(products);
+    }
+
+    @Override
+    public void finishImport() {
+        delegate.finishImport();
+    }
+
+    @Override
+    public List<WriteResult> updateAll(List<Product> products) {
+        return delegate.updateAll(products);
+    }
+
+    @Override
+    public List<Boolean> deleteAll(List<Integer> ids) {
+        return delegate.deleteAll(ids);
+    }
+
+    @Override
+    public WriteResult adjustQuantity(Integer id, int delta, boolean floorAtZero) {
+        return delegate.adjustQuantity(id, delta, floorAtZero);
+    }
+
+    @Override
+    public Map<Integer, Boolean> adjustQuantities(Map<Integer, Integer> deltas) {
+        return delegate.adjustQuantities(deltas);
+    }
+
+    @Override
+    public List<ProductChange> findChanges(String since, int limit) {
+        return delegate.findChanges(since, limit);
+    }
+
+    @Override
+    public int pruneChanges(Instant olderThan) {
+        return delegate.pruneChanges(olderThan);
+    }
+}
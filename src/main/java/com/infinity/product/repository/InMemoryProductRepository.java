@@ -0,0 +1,394 @@
+package com.infinity.product.repository;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.domain.WriteResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Copy of the whole catalog in memory, in front of another ProductRepository which stays the system of record.
+ * The catalog is loaded from the delegate when the repository is created; point reads, full listings and pages
+ * in id order are then served from memory, filtered and sorted queries and all writes still go to the delegate. Each successful write
+ * is applied to the copy as CachingProductRepository does, so writes made through other instances are not seen.
+ *
+ * Products are not kept as objects but in primitive arrays indexed by id: quantity, version, and the offset and
+ * length of the UTF-8 encoded name in a shared byte arena, about 16 bytes per product plus its name.
+ * A version of 0 marks a free slot and -1 a deleted product, so that a late write can not resurrect it.
+ * Ids are allocated in sequence by the database, so the arrays are dense; they grow by half when an id is past them.
+ * Names are appended to the arena, the arena is compacted when more than half of it is taken by replaced names.
+ *
+ * Point reads are lock-free: they read the slot under an optimistic StampedLock stamp, and only take the read lock
+ * when a write interleaved. Writers are serialized by the write lock. A reader may see arrays being replaced,
+ * but never a published byte of the arena being changed, so a name is decoded once the stamp is validated.
+ **/
+@Slf4j
+public class InMemoryProductRepository extends DelegatingProductRepository {
+
+    private static final int DELETED = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final StampedLock lock = new StampedLock();
+
+    // Replaced as a whole when they grow, guarded by the lock
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private int[] versions = new int[INITIAL_CAPACITY];
+    private long[] names = new long[INITIAL_CAPACITY];
+    private byte[] arena = new byte[INITIAL_CAPACITY * 16];
+    private int arenaSize;
+    private int arenaGarbage;
+    private int size;
+    private int maxId;
+
+    public InMemoryProductRepository(ProductRepository delegate) {
+        super(delegate);
+        long start = System.nanoTime();
+        delegate.streamAll(this::put);
+        log.info("Loaded {} products in memory in {} ms, {} bytes", size(), (System.nanoTime() - start) / 1_000_000,
+                getMemoryBytes());
+    }
+
+    @Override
+    public Optional<Product> findById(Integer id) {
+        return Optional.ofNullable(read(id));
+    }
+
+    @Override
+    public Optional<Integer> findVersionById(Integer id) {
+        if (id == null || id <= 0)
+            return Optional.empty();
+        long stamp = lock.tryOptimisticRead();
+        int[] versions = this.versions;
+        int version = id < versions.length ? versions[id] : 0;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                version = id < this.versions.length ? this.versions[id] : 0;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return version > 0 ? Optional.of(version) : Optional.empty();
+    }
+
+    @Override
+    public List<Product> findAll() {
+        long stamp = lock.readLock();
+        try {
+            List<Product> products = new ArrayList<>(size);
+            for (int id = 1; id <= maxId; id++) {
+                if (versions[id] > 0)
+                    products.add(new Product(id, name(arena, names[id]), quantities[id], versions[id]));
+            }
+            return products;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<Product> find(ProductQuery query) {
+        // Only plain pages in id order are served from memory, filters, other orders and projections need the database
+        if (query.getNamePrefix() != null || query.getNameContains() != null || query.getMinQuantity() != null
+                || query.getMaxQuantity() != null || !"id".equals(query.getSort()) || query.getFields() != null)
+            return delegate.find(query);
+
+        long stamp = lock.readLock();
+        try {
+            List<Product> products = new ArrayList<>(Math.min(query.getLimit(), size));
+            Integer after = query.getAfter();
+            int step = query.isDescending() ? -1 : 1;
+            int id;
+            if (query.isDescending()) {
+                id = after == null || after > maxId ? maxId : after - 1;
+            } else {
+                id = after == null || after < 1 ? 1 : (after >= maxId ? maxId + 1 : after + 1);
+            }
+            for (; id >= 1 && id <= maxId && products.size() < query.getLimit(); id += step) {
+                if (versions[id] > 0)
+                    products.add(new Product(id, name(arena, names[id]), quantities[id], versions[id]));
+            }
+            return products;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void streamAll(Consumer<Product> consumer) {
+        // The consumer may be slow, so no lock is held across products
+        int last;
+        long stamp = lock.readLock();
+        try {
+            last = maxId;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        for (int id = 1; id <= last; id++) {
+            Product product = read(id);
+            if (product != null)
+                consumer.accept(product);
+        }
+    }
+
+    @Override
+    public WriteResult update(Product product) {
+        WriteResult updated = delegate.update(product);
+        if (updated == WriteResult.SUCCESS)
+            put(product);
+        return updated;
+    }
+
+    @Override
+    public Product save(Product product) {
+        Product saved = delegate.save(product);
+        if (saved != null && saved.getId() != null)
+            put(saved);
+        return saved;
+    }
+
+    @Override
+    public Boolean delete(Integer id) {
+        Boolean deleted = delegate.delete(id);
+        if (Boolean.TRUE.equals(deleted))
+            remove(id);
+        return deleted;
+    }
+
+    @Override
+    public List<Product> saveAll(List<Product> products) {
+        List<Product> saved = delegate.saveAll(products);
+        saved.forEach(this::put);
+        return saved;
+    }
+
+    @Override
+    public int importAll(List<Product> products) {
+        int imported = delegate.importAll(products);
+        // Imported products overwrite whatever had the same id, including deleted ones and newer versions
+        products.forEach(product -> put(product, true));
+        return imported;
+    }
+
+    @Override
+    public List<WriteResult> updateAll(List<Product> products) {
+        List<WriteResult> results = delegate.updateAll(products);
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == WriteResult.SUCCESS)
+                put(products.get(i));
+        }
+        return results;
+    }
+
+    @Override
+    public List<Boolean> deleteAll(List<Integer> ids) {
+        List<Boolean> results = delegate.deleteAll(ids);
+        for (int i = 0; i < results.size(); i++) {
+            if (Boolean.TRUE.equals(results.get(i)))
+                remove(ids.get(i));
+        }
+        return results;
+    }
+
+    @Override
+    public WriteResult adjustQuantity(Integer id, int delta, boolean floorAtZero) {
+        // The new quantity is only known to the database
+        WriteResult result = delegate.adjustQuantity(id, delta, floorAtZero);
+        if (result == WriteResult.SUCCESS)
+            delegate.findById(id).ifPresent(this::put);
+        return result;
+    }
+
+    @Override
+    public Map<Integer, Boolean> adjustQuantities(Map<Integer, Integer> deltas) {
+        Map<Integer, Boolean> results = delegate.adjustQuantities(deltas);
+        results.forEach((id, adjusted) -> {
+            if (Boolean.TRUE.equals(adjusted))
+                delegate.findById(id).ifPresent(this::put);
+        });
+        return results;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the memory taken by the arrays and the name arena, in bytes, not counting object headers.
+     */
+    public long getMemoryBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) quantities.length * Integer.BYTES + (long) versions.length * Integer.BYTES
+                    + (long) names.length * Long.BYTES + arena.length;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Product read(Integer id) {
+        if (id == null || id <= 0)
+            return null;
+        long stamp = lock.tryOptimisticRead();
+        int[] quantities = this.quantities;
+        int[] versions = this.versions;
+        long[] names = this.names;
+        byte[] arena = this.arena;
+        int quantity = 0;
+        int version = 0;
+        long name = 0;
+        // The arrays may be replaced while they are read, each one is bounds checked on its own
+        if (id < quantities.length && id < versions.length && id < names.length) {
+            quantity = quantities[id];
+            version = versions[id];
+            name = names[id];
+        }
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                arena = this.arena;
+                if (id < this.versions.length) {
+                    quantity = this.quantities[id];
+                    version = this.versions[id];
+                    name = this.names[id];
+                } else {
+                    version = 0;
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return version > 0 ? new Product(id, name(arena, name), quantity, version) : null;
+    }
+
+    /**
+     * Stores the specified product, unless it was deleted or a newer version is already stored.
+     */
+    private void put(Product product) {
+        put(product, false);
+    }
+
+    private void put(Product product, boolean overwrite) {
+        int id = product.getId();
+        byte[] name = product.getName().getBytes(StandardCharsets.UTF_8);
+        long stamp = lock.writeLock();
+        try {
+            ensureCapacity(id);
+            int current = versions[id];
+            if (!overwrite && (current == DELETED || current > product.getVersion())) {
+                log.debug("Keeping product with id: {} at version {}, ignoring version {}",
+                        id, current, product.getVersion());
+                return;
+            }
+            if (current <= 0) {
+                size++;
+                maxId = Math.max(maxId, id);
+                names[id] = append(name);
+            } else if (!sameName(names[id], name)) {
+                // Released before appending, so that a compaction does not copy the replaced name
+                arenaGarbage += length(names[id]);
+                names[id] = 0;
+                names[id] = append(name);
+            }
+            quantities[id] = product.getQuantity();
+            versions[id] = product.getVersion();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void remove(int id) {
+        long stamp = lock.writeLock();
+        try {
+            ensureCapacity(id);
+            if (versions[id] > 0) {
+                size--;
+                arenaGarbage += length(names[id]);
+            }
+            versions[id] = DELETED;
+            names[id] = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < versions.length)
+            return;
+        int capacity = Math.max(id + 1, versions.length + (versions.length >> 1));
+        quantities = Arrays.copyOf(quantities, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        names = Arrays.copyOf(names, capacity);
+    }
+
+    /**
+     * Appends the specified name to the arena and returns its offset and length packed in a long.
+     * Published bytes are never overwritten: a full arena is compacted or grown into a new array.
+     */
+    private long append(byte[] name) {
+        if (arenaSize + name.length > arena.length) {
+            if (arenaGarbage > arenaSize / 2) {
+                compact(name.length);
+            } else {
+                arena = Arrays.copyOf(arena, Math.max(arenaSize + name.length, arena.length * 2));
+            }
+        }
+        System.arraycopy(name, 0, arena, arenaSize, name.length);
+        long packed = pack(arenaSize, name.length);
+        arenaSize += name.length;
+        return packed;
+    }
+
+    private void compact(int extra) {
+        int live = arenaSize - arenaGarbage;
+        // At most half of the arena is live, so keeping its size leaves room for as many names again
+        byte[] compacted = new byte[Math.max(arena.length, live * 2 + extra)];
+        int offset = 0;
+        for (int id = 1; id <= maxId; id++) {
+            if (versions[id] > 0) {
+                int length = length(names[id]);
+                System.arraycopy(arena, offset(names[id]), compacted, offset, length);
+                names[id] = pack(offset, length);
+                offset += length;
+            }
+        }
+        log.debug("Compacted the name arena from {} to {} bytes", arenaSize, offset);
+        arena = compacted;
+        arenaSize = offset;
+        arenaGarbage = 0;
+    }
+
+    private boolean sameName(long packed, byte[] name) {
+        int offset = offset(packed);
+        return Arrays.equals(arena, offset, offset + length(packed), name, 0, name.length);
+    }
+
+    private static String name(byte[] arena, long packed) {
+        return new String(arena, offset(packed), length(packed), StandardCharsets.UTF_8);
+    }
+
+    private static long pack(int offset, int length) {
+        return ((long) offset << 32) | length;
+    }
+
+    private static int offset(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static int length(long packed) {
+        return (int) packed;
+    }
+}
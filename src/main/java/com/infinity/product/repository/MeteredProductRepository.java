@@ -0,0 +1,207 @@
+package com.infinity.product.repository;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.ProductChange;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.domain.WriteResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Records the latency of every operation of another ProductRepository.
+ * product.repository: timer tagged with the operation.
+ * product.repository.rows: number of rows returned by the listing operations.
+ * product.repository.outcomes: counter of not_found and conflict outcomes, tagged with the operation.
+ **/
+public class MeteredProductRepository extends DelegatingProductRepository {
+
+    private final MeterRegistry registry;
+
+    private final Timer findByIdTimer;
+    private final Timer findVersionByIdTimer;
+    private final Timer findAllTimer;
+    private final Timer findTimer;
+    private final Timer streamAllTimer;
+    private final Timer updateTimer;
+    private final Timer saveTimer;
+    private final Timer deleteTimer;
+    private final Timer saveAllTimer;
+    private final Timer importAllTimer;
+    private final Timer updateAllTimer;
+    private final Timer deleteAllTimer;
+    private final Timer adjustQuantityTimer;
+    private final Timer adjustQuantitiesTimer;
+    private final Timer findChangesTimer;
+    private final Timer pruneChangesTimer;
+
+    private final DistributionSummary findAllRows;
+    private final DistributionSummary findRows;
+
+    public MeteredProductRepository(ProductRepository delegate, MeterRegistry registry) {
+        super(delegate);
+        this.registry = registry;
+        this.findByIdTimer = timer("findById");
+        this.findVersionByIdTimer = timer("findVersionById");
+        this.findAllTimer = timer("findAll");
+        this.findTimer = timer("find");
+        this.streamAllTimer = timer("streamAll");
+        this.updateTimer = timer("update");
+        this.saveTimer = timer("save");
+        this.deleteTimer = timer("delete");
+        this.saveAllTimer = timer("saveAll");
+        this.importAllTimer = timer("importAll");
+        this.updateAllTimer = timer("updateAll");
+        this.deleteAllTimer = timer("deleteAll");
+        this.adjustQuantityTimer = timer("adjustQuantity");
+        this.adjustQuantitiesTimer = timer("adjustQuantities");
+        this.findChangesTimer = timer("findChanges");
+        this.pruneChangesTimer = timer("pruneChanges");
+        this.findAllRows = rows("findAll");
+        this.findRows = rows("find");
+    }
+
+    @Override
+    public Optional<Product> findById(Integer id) {
+        Optional<Product> product = findByIdTimer.record(() -> delegate.findById(id));
+        if (product.isEmpty())
+            outcome("findById", "not_found");
+        return product;
+    }
+
+    @Override
+    public Optional<Integer> findVersionById(Integer id) {
+        Optional<Integer> version = findVersionByIdTimer.record(() -> delegate.findVersionById(id));
+        if (version.isEmpty())
+            outcome("findVersionById", "not_found");
+        return version;
+    }
+
+    @Override
+    public List<Product> findAll() {
+        List<Product> products = findAllTimer.record(delegate::findAll);
+        findAllRows.record(products.size());
+        return products;
+    }
+
+    @Override
+    public List<Product> find(ProductQuery query) {
+        List<Product> products = findTimer.record(() -> delegate.find(query));
+        findRows.record(products.size());
+        return products;
+    }
+
+    @Override
+    public void streamAll(Consumer<Product> consumer) {
+        // Includes the time spent by the consumer, usually writing the rows to the response
+        streamAllTimer.record(() -> delegate.streamAll(consumer));
+    }
+
+    @Override
+    public WriteResult update(Product product) {
+        WriteResult result = updateTimer.record(() -> delegate.update(product));
+        outcome("update", result);
+        return result;
+    }
+
+    @Override
+    public Product save(Product product) {
+        return saveTimer.record(() -> delegate.save(product));
+    }
+
+    @Override
+    public Boolean delete(Integer id) {
+        Boolean deleted = deleteTimer.record(() -> delegate.delete(id));
+        if (!Boolean.TRUE.equals(deleted))
+            outcome("delete", "not_found");
+        return deleted;
+    }
+
+    @Override
+    public List<Product> saveAll(List<Product> products) {
+        return saveAllTimer.record(() -> delegate.saveAll(products));
+    }
+
+    @Override
+    public int importAll(List<Product> products) {
+        return importAllTimer.record(() -> delegate.importAll(products));
+    }
+
+    @Override
+    public List<WriteResult> updateAll(List<Product> products) {
+        List<WriteResult> results = updateAllTimer.record(() -> delegate.updateAll(products));
+        for (WriteResult result : results) {
+            outcome("updateAll", result);
+        }
+        return results;
+    }
+
+    @Override
+    public List<Boolean> deleteAll(List<Integer> ids) {
+        List<Boolean> results = deleteAllTimer.record(() -> delegate.deleteAll(ids));
+        for (Boolean deleted : results) {
+            if (!Boolean.TRUE.equals(deleted))
+                outcome("deleteAll", "not_found");
+        }
+        return results;
+    }
+
+    @Override
+    public WriteResult adjustQuantity(Integer id, int delta, boolean floorAtZero) {
+        WriteResult result = adjustQuantityTimer.record(() -> delegate.adjustQuantity(id, delta, floorAtZero));
+        outcome("adjustQuantity", result);
+        return result;
+    }
+
+    @Override
+    public Map<Integer, Boolean> adjustQuantities(Map<Integer, Integer> deltas) {
+        return adjustQuantitiesTimer.record(() -> delegate.adjustQuantities(deltas));
+    }
+
+    @Override
+    public List<ProductChange> findChanges(String since, int limit) {
+        return findChangesTimer.record(() -> delegate.findChanges(since, limit));
+    }
+
+    @Override
+    public int pruneChanges(Instant olderThan) {
+        return pruneChangesTimer.record(() -> delegate.pruneChanges(olderThan));
+    }
+
+    private Timer timer(String operation) {
+        return Timer.builder("product.repository")
+                .description("Latency of product repository operations")
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    private DistributionSummary rows(String operation) {
+        return DistributionSummary.builder("product.repository.rows")
+                .description("Number of products returned by listing operations")
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    private void outcome(String operation, WriteResult result) {
+        if (result == WriteResult.NOT_FOUND)
+            outcome(operation, "not_found");
+        else if (result == WriteResult.CONFLICT)
+            outcome(operation, "conflict");
+    }
+
+    private void outcome(String operation, String outcome) {
+        Counter.builder("product.repository.outcomes")
+                .description("Product repository operations that did not find or could not write a product")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+}
@@ -0,0 +1,12 @@
+package com.infinity.product.repository;
+
+import java.util.List;
+
+/**
+ * Published by the repository once a write of one or more products is committed,
+ * and its changes are readable from the change feed.
+ *
+ * @param ids The ids of the changed products.
+ **/
+public record ProductChangedEvent(List<Integer> ids) {
+}
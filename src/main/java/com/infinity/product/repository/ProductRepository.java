@@ -1,9 +1,15 @@
 package com.infinity.product.repository;
 
 import com.infinity.product.domain.Product;
+import com.infinity.product.domain.ProductChange;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.domain.WriteResult;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface ProductRepository {
     /**
@@ -14,6 +20,14 @@ public interface ProductRepository {
      * */
     Optional<Product> findById(Integer id);
 
+    /**
+     * Returns the version of the product with the specified ID, without loading the rest of the row.
+     *
+     * @param id  ID of the product.
+     * @return  The current version of the product if found.
+     * */
+    Optional<Integer> findVersionById(Integer id);
+
     /**
      * Return all products in the database.
      *
@@ -22,13 +36,34 @@ public interface ProductRepository {
     List<Product> findAll();
 
     /**
-     * Update the specified product, identified by its id.
+     * Return the products matching the specified query, as one keyset paginated page.
+     * Filtering, sorting and projection are translated to parameterized SQL.
+     *
+     * @param query The filters, sort order, projected columns and page of the query.
+     * @return The products of the requested page, with only the projected fields set.
+     * @throws UnknownCursorException if the after product no longer exists and the sort is not on id.
+     * */
+    List<Product> find(ProductQuery query);
+
+    /**
+     * Stream all products in the database to the specified consumer, one row at a time,
+     * without materializing the whole table in memory.
      *
-     * @param product The product to update.
+     * @param consumer The consumer that receives each product as it is read.
+     * */
+    void streamAll(Consumer<Product> consumer);
+
+    /**
+     * Update the specified product, identified by its id, in a single conditional statement.
+     * The product is only updated if its version still matches the one in the database,
+     * in which case its version is incremented.
      *
-     * @return True if the update succeeded, otherwise false
+     * @param product The product to update, carrying the version it was read with.
+     *
+     * @return SUCCESS if the update succeeded, NOT_FOUND if there is no such product,
+     * or CONFLICT if the version does not match.
      * */
-    Boolean update(Product product);
+    WriteResult update(Product product);
     /**
      * saves the specified product to database.
      *
@@ -46,4 +81,95 @@ public interface ProductRepository {
      * */
     Boolean delete(Integer id);
 
+    /**
+     * Saves the specified products to the database in a single JDBC batch and transaction.
+     *
+     * @param products The products to save, their ids are set from the generated keys.
+     *
+     * @return The saved products, in the same order.
+     * */
+    List<Product> saveAll(List<Product> products);
+
+    /**
+     * Writes the specified products with their own ids, as restored from a snapshot, in a single JDBC batch
+     * and transaction. Existing products with the same ids are overwritten. The changes are recorded in the
+     * change feed, but no ProductChangedEvent is published: imports run at startup, before anything reads the
+     * products. finishImport must be called once all the products of the import are written.
+     *
+     * @param products The products to write, with their id, name, quantity and version.
+     *
+     * @return The number of written products.
+     * */
+    int importAll(List<Product> products);
+
+    /**
+     * Moves the id sequence past the greatest id once an import is complete, so that products saved afterwards
+     * do not collide with the imported ones. The sequence is moved by DDL, which commits on its own and locks
+     * the table, so it is done once per import rather than once per batch.
+     * */
+    void finishImport();
+
+    /**
+     * Updates the specified products in a single JDBC batch and transaction.
+     * Each product is only updated if its version still matches the one in the database,
+     * in which case its version is incremented.
+     *
+     * @param products The products to update, carrying the version they were read with.
+     *
+     * @return The outcome of each update, in the same order.
+     * */
+    List<WriteResult> updateAll(List<Product> products);
+
+    /**
+     * Deletes the products with the specified ids in a single JDBC batch and transaction.
+     *
+     * @param ids The ids of the products to delete.
+     *
+     * @return For each id, true if a product was deleted, otherwise false.
+     * */
+    List<Boolean> deleteAll(List<Integer> ids);
+
+    /**
+     * Adds the specified delta to the quantity of a product in a single statement, and increments its version.
+     * No version is needed: concurrent adjustments of the same product never conflict with each other.
+     *
+     * @param id The id of the product to adjust.
+     * @param delta The amount to add to the quantity, negative to remove stock.
+     * @param floorAtZero Whether the adjustment must be refused if it would make the quantity negative.
+     *
+     * @return SUCCESS if the quantity was adjusted, NOT_FOUND if there is no such product,
+     * or CONFLICT if the floor would be broken.
+     * */
+    WriteResult adjustQuantity(Integer id, int delta, boolean floorAtZero);
+
+    /**
+     * Adds the specified deltas to the quantities of several products in a single JDBC batch and transaction.
+     *
+     * @param deltas The amount to add to the quantity of each product, keyed by product id.
+     *
+     * @return For each product id, true if it was adjusted, false if there is no such product.
+     * */
+    Map<Integer, Boolean> adjustQuantities(Map<Integer, Integer> deltas);
+
+    /**
+     * Returns the changes of the change feed that come after the specified position, oldest first.
+     * Sequence numbers are allocated in commit order, so a change never appears after one with a greater
+     * sequence number and a reader that moves past a change has seen all the changes before it.
+     *
+     * @param since The position of the last change the caller has seen, "0" to start from the oldest.
+     * @param limit The maximum number of changes to return.
+     *
+     * @return The changes, oldest first.
+     * @throws IllegalArgumentException if since is not a position of this feed.
+     * */
+    List<ProductChange> findChanges(String since, int limit);
+
+    /**
+     * Removes the changes recorded before the specified instant, always keeping the newest one.
+     *
+     * @param olderThan The instant before which changes are removed.
+     *
+     * @return The number of removed changes.
+     * */
+    int pruneChanges(Instant olderThan);
 }
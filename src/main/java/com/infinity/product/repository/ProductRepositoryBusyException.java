@@ -0,0 +1,12 @@
+package com.infinity.product.repository;
+
+/**
+ * Thrown when a repository call could not get a slot in the bulkhead in time,
+ * meaning that all database connections are busy.
+ **/
+public class ProductRepositoryBusyException extends RuntimeException {
+
+    public ProductRepositoryBusyException(String message) {
+        super(message);
+    }
+}
@@ -1,92 +1,560 @@
 package com.infinity.product.repository;
 
 import com.infinity.product.domain.Product;
+import com.infinity.product.domain.ProductChange;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.domain.WriteResult;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.DataAccessException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.sql.DataSource;
-import java.util.HashMap;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 
 @Repository
+@Profile("!reactive")
 @Slf4j
 public class ProductRepositoryImpl implements ProductRepository {
 
+    /**
+     * Number of rows the driver fetches per round trip while streaming products.
+     */
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    /**
+     * Columns read by PRODUCT_ROW_MAPPER, in the order it reads them by index.
+     */
+    private static final String PRODUCT_COLUMNS = "id, name, quantity, version";
+
+    // Fixed statements are kept as constants, so the driver sees the exact same SQL text and can reuse its parsed plan
+    private static final String FIND_BY_ID_SQL = "select " + PRODUCT_COLUMNS + " from products where id = ?";
+    private static final String FIND_VERSION_SQL = "select version from products where id = ?";
+    private static final String FIND_ALL_SQL = "select " + PRODUCT_COLUMNS + " from products";
+    private static final String STREAM_ALL_SQL = "select " + PRODUCT_COLUMNS + " from products order by id";
+    private static final String INSERT_SQL = "insert into products (name, quantity, version) values (?, ?, ?)";
+    private static final String[] GENERATED_KEY_COLUMNS = {"id"};
+    private static final String IMPORT_SQL = "merge into products (id, name, quantity, version) key (id) values (?, ?, ?, ?)";
+    private static final String MAX_ID_SQL = "select coalesce(max(id), 0) from products";
+    private static final String MAX_SEQ_SQL = "select coalesce(max(seq), 0) from product_changes";
+    private static final String NEXT_VALUE_SQL = "select identity_base from information_schema.columns"
+            + " where table_schema = current_schema and table_name = ? and column_name = ?";
+    private static final String CONDITIONAL_UPDATE_SQL =
+            "update products set name = ?, quantity = ?, version = version + 1 where id = ? and version = ?";
+    private static final String DELETE_SQL = "delete from products where id = ?";
+    private static final String ADJUST_QUANTITY_SQL =
+            "update products set quantity = quantity + ?, version = version + 1 where id = ?";
+    private static final String RECORD_UPSERT_SQL = "insert into product_changes (product_id, operation, name, quantity, version)"
+            + " select id, 'UPSERT', name, quantity, version from products where id = ?";
+    private static final String RECORD_DELETE_SQL = "insert into product_changes (product_id, operation) values (?, 'DELETE')";
+    private static final String LOCK_CHANGES_SQL = "select id from product_change_lock where id = 1 for update";
+    private static final String FIND_CHANGES_SQL = "select seq, product_id, operation, name, quantity, version"
+            + " from product_changes where seq > ? order by seq limit ?";
+    // The newest change is always kept, so that the sequence never goes back after a restart
+    private static final String PRUNE_CHANGES_SQL = "delete from product_changes where changed_at < ?"
+            + " and seq < (select max(seq) from product_changes)";
+
+    private static final RowMapper<ProductChange> CHANGE_ROW_MAPPER = (rs, rowNum) -> new ProductChange(
+            rs.getLong(1), rs.getInt(2), ProductChange.Operation.valueOf(rs.getString(3)),
+            rs.getString(4), rs.getObject(5, Integer.class), rs.getObject(6, Integer.class));
+
+    /**
+     * Maps a row of PRODUCT_COLUMNS. Reading by index skips the lookup of each column label in the
+     * result set metadata, and the product is built in one constructor call instead of four setters.
+     */
+    private static final RowMapper<Product> PRODUCT_ROW_MAPPER = (rs, rowNum) ->
+            new Product(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getInt(4));
+
     private final JdbcTemplate jdbcTemplate;
-    private final SimpleJdbcInsert simpleJdbcInsert;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    // Ids and change sequence numbers generated by this database are the ones equal to idOffset modulo idStride
+    private final int idOffset;
+    private final int idStride;
+
+    @Autowired
+    public ProductRepositoryImpl(JdbcTemplate jdbcTemplate, DataSource dataSource,
+                                 ApplicationEventPublisher eventPublisher) {
+        this(jdbcTemplate, dataSource, eventPublisher, 0, 1);
+    }
 
-    public ProductRepositoryImpl(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+    /**
+     * Creates the repository of one shard out of several, which generates the ids (and change sequence numbers)
+     * starting at shard + 1 and incrementing by shardCount, so that they never collide with another shard's.
+     * The sequences are set up by alignSequences.
+     *
+     * @param shard      The index of the shard, from 0.
+     * @param shardCount The number of shards.
+     */
+    public ProductRepositoryImpl(JdbcTemplate jdbcTemplate, DataSource dataSource,
+                                 ApplicationEventPublisher eventPublisher, int shard, int shardCount) {
         this.jdbcTemplate = jdbcTemplate;
-        // Build SimpleJdbcInsert object from the specified data source
-        this.simpleJdbcInsert = new SimpleJdbcInsert(dataSource).withTableName("products").usingGeneratedKeyColumns("id");
+        this.eventPublisher = eventPublisher;
+        this.idOffset = shard + 1;
+        this.idStride = shardCount;
+        // Separate template so that the fixed fetch size only applies to streaming reads
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+        // Each write runs in its own transaction with its change records, bound to the same data source as the templates
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
     }
 
 
     @Override
     public Optional<Product> findById(Integer id) {
         try {
-            Product product = (Product) jdbcTemplate.query("select * from products where id = ?",
-                    (rs, rowNum) -> {
-                        Product p = new Product();
-                        p.setId(rs.getInt("id"));
-                        p.setName(rs.getString("name"));
-                        p.setQuantity(rs.getInt("quantity"));
-                        p.setVersion(rs.getInt("version"));
-                        return p;
-                    }, new Object[]{id});
-            return Optional.of(product);
+            Product product = jdbcTemplate.queryForObject(FIND_BY_ID_SQL, PRODUCT_ROW_MAPPER, id);
+            return Optional.ofNullable(product);
         } catch (EmptyResultDataAccessException e) {
             return Optional.empty();
         }
     }
 
+    @Override
+    public Optional<Integer> findVersionById(Integer id) {
+        List<Integer> versions = jdbcTemplate.queryForList(FIND_VERSION_SQL, Integer.class, id);
+        return versions.stream().findFirst();
+    }
+
     @Override
     public List<Product> findAll() {
 
-        return jdbcTemplate.query("select * from products",
-                (rs, rowNum) -> {
-                    Product product = new Product();
-                    product.setId(rs.getInt("id"));
-                    product.setName(rs.getString("name"));
-                    product.setQuantity(rs.getInt("quantity"));
-                    product.setVersion(rs.getInt("version"));
-                    return product;
-                }
-        );
+        return jdbcTemplate.query(FIND_ALL_SQL, PRODUCT_ROW_MAPPER);
     }
 
     @Override
-    public Boolean update(Product product) {
-        try {
-            return jdbcTemplate.update("update products set name = ?, quantity = ?, version = ? where id = ? ",
-                    product.getName(),product.getQuantity(), product.getVersion(), product.getId()
-                    )== 1;
-        }catch (DataAccessException e){
-            return false;
+    public List<Product> find(ProductQuery query) {
+        return find(query, null);
+    }
+
+    /**
+     * Returns the products matching the specified query, seeking past the specified sort value instead of the one
+     * of the after product. Used by shards that do not hold the after product, when sorting on another column than id.
+     *
+     * @param query     The filters, sort order, projected columns and page of the query.
+     * @param seekValue The value of the sort column of the after product, null to read it from the table.
+     * @return The products of the requested page, with only the projected fields set.
+     * @throws UnknownCursorException if the sort value is read from the table and the after product is missing.
+     */
+    public List<Product> find(ProductQuery query, Object seekValue) {
+        // Column names come from ProductQuery.COLUMNS, every value is bound as a parameter
+        List<String> columns = query.getFields() == null ? ProductQuery.COLUMNS : projectedColumns(query.getFields());
+        StringBuilder sql = new StringBuilder("select ").append(String.join(", ", columns)).append(" from products where 1 = 1");
+        List<Object> args = new ArrayList<>();
+
+        if (query.getNamePrefix() != null) {
+            // A prefix match can use the index on name
+            sql.append(" and name like ? escape '\\'");
+            args.add(escapeLike(query.getNamePrefix()) + "%");
+        }
+        if (query.getNameContains() != null) {
+            sql.append(" and name like ? escape '\\'");
+            args.add("%" + escapeLike(query.getNameContains()) + "%");
+        }
+        if (query.getMinQuantity() != null) {
+            sql.append(" and quantity >= ?");
+            args.add(query.getMinQuantity());
+        }
+        if (query.getMaxQuantity() != null) {
+            sql.append(" and quantity <= ?");
+            args.add(query.getMaxQuantity());
         }
+
+        // Keyset pagination: seek past the last seen row instead of skipping rows with an offset
+        String sort = query.getSort();
+        String direction = query.isDescending() ? "desc" : "asc";
+        if (query.getAfter() != null) {
+            if ("id".equals(sort)) {
+                sql.append(query.isDescending() ? " and id < ?" : " and id > ?");
+                args.add(query.getAfter());
+            } else {
+                // Rows past the sort value of the last seen row, or with the same value and a greater id
+                String seek = seekValue != null ? "?" : "(select " + sort + " from products where id = ?)";
+                Object seekArg = seekValue != null ? seekValue : query.getAfter();
+                sql.append(" and (").append(sort).append(query.isDescending() ? " < " : " > ").append(seek)
+                        .append(" or (").append(sort).append(" = ").append(seek).append(" and id > ?))");
+                args.add(seekArg);
+                args.add(seekArg);
+                args.add(query.getAfter());
+            }
+        }
+
+        sql.append(" order by ").append(sort).append(' ').append(direction);
+        if (!"id".equals(sort))
+            sql.append(", id asc");
+        sql.append(" limit ?");
+        args.add(query.getLimit());
+
+        List<Product> page = jdbcTemplate.query(sql.toString(), projectionRowMapper(columns), args.toArray());
+        // Nothing matches a missing sort value, so only an empty page can come from a deleted after product
+        if (page.isEmpty() && query.getAfter() != null && !"id".equals(sort) && seekValue == null
+                && findExistingIds(List.of(query.getAfter())).isEmpty())
+            throw new UnknownCursorException("Product " + query.getAfter() + " to sort on " + sort + " after no longer exists");
+        return page;
+    }
+
+    @Override
+    public void streamAll(Consumer<Product> consumer) {
+        streamingJdbcTemplate.query(STREAM_ALL_SQL,
+                (RowCallbackHandler) rs -> consumer.accept(PRODUCT_ROW_MAPPER.mapRow(rs, rs.getRow())));
+    }
+
+    @Override
+    public WriteResult update(Product product) {
+        // The version check and the write are one statement, so there is no window for a concurrent writer
+        boolean applied = inTransaction(() -> jdbcTemplate.update(CONDITIONAL_UPDATE_SQL,
+                product.getName(), product.getQuantity(), product.getId(), product.getVersion()), product.getId());
+        if (applied) {
+            product.setVersion(product.getVersion() + 1);
+            return WriteResult.SUCCESS;
+        }
+        // Only a failed update pays for a second round trip, to tell a missing row from a stale version
+        return findExistingIds(List.of(product.getId())).isEmpty() ? WriteResult.NOT_FOUND : WriteResult.CONFLICT;
     }
 
     @Override
     public Product save(Product product) {
-        Map<String, Object> parameters = new HashMap<>(1);
-        parameters.put("name", product.getName());
-        parameters.put("quantity", product.getName());
-        parameters.put("version", product.getName());
-        Number id = simpleJdbcInsert.executeAndReturnKey(parameters);
+        // A plain statement naming its columns and key, unlike SimpleJdbcInsert it needs no database metadata lookup
+        Number id = transactionTemplate.execute(status -> {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(INSERT_SQL, GENERATED_KEY_COLUMNS);
+                ps.setString(1, product.getName());
+                ps.setObject(2, product.getQuantity(), Types.INTEGER);
+                ps.setObject(3, product.getVersion(), Types.INTEGER);
+                return ps;
+            }, keyHolder);
+            Number key = keyHolder.getKey();
+            lockChanges();
+            jdbcTemplate.update(RECORD_UPSERT_SQL, key.intValue());
+            return key;
+        });
         log.info("Inserting product into database, generated key is: {}.", id);
         product.setId(id.intValue());
+        publishChanges(List.of(product.getId()));
         return product;
 
     }
 
     @Override
     public Boolean delete(Integer id) {
-        return jdbcTemplate.update("delete from products where id = ",id) == 1;
+        boolean deleted = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(DELETE_SQL, id) != 1)
+                return false;
+            lockChanges();
+            jdbcTemplate.update(RECORD_DELETE_SQL, id);
+            return true;
+        }));
+        if (deleted)
+            publishChanges(List.of(id));
+        return deleted;
+    }
+
+    @Override
+    public List<Product> saveAll(List<Product> products) {
+        if (products.isEmpty())
+            return products;
+
+        List<Product> saved = transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<List<Product>>) connection -> {
+            // JdbcTemplate.batchUpdate does not return generated keys, so the batch is run by hand
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, GENERATED_KEY_COLUMNS)) {
+                for (Product product : products) {
+                    ps.setString(1, product.getName());
+                    ps.setObject(2, product.getQuantity(), Types.INTEGER);
+                    ps.setObject(3, product.getVersion(), Types.INTEGER);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (int i = 0; i < products.size() && keys.next(); i++) {
+                        products.get(i).setId(keys.getInt(1));
+                    }
+                }
+            }
+            log.info("Inserted batch of {} products into database.", products.size());
+            recordChanges(RECORD_UPSERT_SQL, products.stream().map(Product::getId).toList());
+            return products;
+        }));
+        publishChanges(saved.stream().map(Product::getId).toList());
+        return saved;
+    }
+
+    @Override
+    public int importAll(List<Product> products) {
+        if (products.isEmpty())
+            return 0;
+
+        List<Integer> ids = products.stream().map(Product::getId).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(IMPORT_SQL, products, products.size(), (ps, product) -> {
+                ps.setInt(1, product.getId());
+                ps.setString(2, product.getName());
+                ps.setObject(3, product.getQuantity(), Types.INTEGER);
+                ps.setObject(4, product.getVersion(), Types.INTEGER);
+            });
+            recordChanges(RECORD_UPSERT_SQL, ids);
+        });
+        log.info("Imported batch of {} products into database.", products.size());
+        return products.size();
+    }
+
+    @Override
+    public void finishImport() {
+        // DDL commits on its own, so the sequence is moved once all the rows are committed
+        restartPast("PRODUCTS", "ID", jdbcTemplate.queryForObject(MAX_ID_SQL, Long.class));
+    }
+
+    @Override
+    public List<WriteResult> updateAll(List<Product> products) {
+        if (products.isEmpty())
+            return Collections.emptyList();
+
+        List<Integer> changed = new ArrayList<>(products.size());
+        List<WriteResult> writeResults = transactionTemplate.execute(status -> {
+            int[][] counts = jdbcTemplate.batchUpdate(CONDITIONAL_UPDATE_SQL, products, products.size(), (ps, product) -> {
+                ps.setString(1, product.getName());
+                ps.setObject(2, product.getQuantity(), Types.INTEGER);
+                ps.setInt(3, product.getId());
+                ps.setInt(4, product.getVersion());
+            });
+
+            List<WriteResult> results = new ArrayList<>(products.size());
+            List<Integer> missed = new ArrayList<>();
+            for (int i = 0; i < products.size(); i++) {
+                if (isApplied(counts[0][i])) {
+                    products.get(i).setVersion(products.get(i).getVersion() + 1);
+                    results.add(WriteResult.SUCCESS);
+                    changed.add(products.get(i).getId());
+                } else {
+                    results.add(null);
+                    missed.add(products.get(i).getId());
+                }
+            }
+
+            // A row that was not updated either does not exist or has moved on to another version
+            if (!missed.isEmpty()) {
+                Set<Integer> existing = findExistingIds(missed);
+                for (int i = 0; i < products.size(); i++) {
+                    if (results.get(i) == null) {
+                        results.set(i, existing.contains(products.get(i).getId()) ? WriteResult.CONFLICT : WriteResult.NOT_FOUND);
+                    }
+                }
+            }
+            recordChanges(RECORD_UPSERT_SQL, changed);
+            return results;
+        });
+        publishChanges(changed);
+        return writeResults;
+    }
+
+    @Override
+    public List<Boolean> deleteAll(List<Integer> ids) {
+        if (ids.isEmpty())
+            return Collections.emptyList();
+
+        List<Integer> changed = new ArrayList<>(ids.size());
+        List<Boolean> deleteResults = transactionTemplate.execute(status -> {
+            int[][] counts = jdbcTemplate.batchUpdate(DELETE_SQL, ids, ids.size(), (ps, id) -> ps.setInt(1, id));
+            List<Boolean> results = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                boolean deleted = isApplied(counts[0][i]);
+                results.add(deleted);
+                if (deleted)
+                    changed.add(ids.get(i));
+            }
+            recordChanges(RECORD_DELETE_SQL, changed);
+            return results;
+        });
+        publishChanges(changed);
+        return deleteResults;
+    }
+
+    @Override
+    public WriteResult adjustQuantity(Integer id, int delta, boolean floorAtZero) {
+        // The increment happens in the database, so no read and no version check are needed
+        boolean applied = inTransaction(() -> floorAtZero
+                ? jdbcTemplate.update(ADJUST_QUANTITY_SQL + " and quantity + ? >= 0", delta, id, delta)
+                : jdbcTemplate.update(ADJUST_QUANTITY_SQL, delta, id), id);
+        if (applied)
+            return WriteResult.SUCCESS;
+        return findExistingIds(List.of(id)).isEmpty() ? WriteResult.NOT_FOUND : WriteResult.CONFLICT;
+    }
+
+    @Override
+    public Map<Integer, Boolean> adjustQuantities(Map<Integer, Integer> deltas) {
+        if (deltas.isEmpty())
+            return Collections.emptyMap();
+
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(deltas.entrySet());
+        List<Integer> changed = new ArrayList<>(entries.size());
+        Map<Integer, Boolean> adjustResults = transactionTemplate.execute(status -> {
+            int[][] counts = jdbcTemplate.batchUpdate(ADJUST_QUANTITY_SQL, entries, entries.size(), (ps, entry) -> {
+                ps.setInt(1, entry.getValue());
+                ps.setInt(2, entry.getKey());
+            });
+            Map<Integer, Boolean> results = new LinkedHashMap<>(entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                boolean applied = isApplied(counts[0][i]);
+                results.put(entries.get(i).getKey(), applied);
+                if (applied)
+                    changed.add(entries.get(i).getKey());
+            }
+            recordChanges(RECORD_UPSERT_SQL, changed);
+            return results;
+        });
+        publishChanges(changed);
+        return adjustResults;
+    }
+
+    @Override
+    public List<ProductChange> findChanges(String since, int limit) {
+        long seq = Long.parseLong(since);
+        if (seq < 0)
+            throw new IllegalArgumentException("Change feed position must not be negative: " + since);
+        return findChanges(seq, limit);
+    }
+
+    /**
+     * Returns the changes recorded by this database after the specified sequence number, in sequence order.
+     */
+    public List<ProductChange> findChanges(long since, int limit) {
+        return jdbcTemplate.query(FIND_CHANGES_SQL, CHANGE_ROW_MAPPER, since, limit);
+    }
+
+    @Override
+    public int pruneChanges(Instant olderThan) {
+        return jdbcTemplate.update(PRUNE_CHANGES_SQL, Timestamp.from(olderThan));
+    }
+
+    /**
+     * Sets the increment of the product id and change sequence to the number of shards, and moves each of them
+     * to the next value of this shard past the existing rows. Called once at startup, after the schema is created.
+     */
+    public void alignSequences() {
+        jdbcTemplate.execute("alter table products alter column id set increment by " + idStride);
+        jdbcTemplate.execute("alter table product_changes alter column seq set increment by " + idStride);
+        restartPast("PRODUCTS", "ID", jdbcTemplate.queryForObject(MAX_ID_SQL, Long.class));
+        restartPast("PRODUCT_CHANGES", "SEQ", jdbcTemplate.queryForObject(MAX_SEQ_SQL, Long.class));
+    }
+
+    /**
+     * Moves the identity of the specified column to the first value of this shard greater than the specified one.
+     * It is only ever moved forward, ids of deleted products must not be allocated again.
+     */
+    private void restartPast(String table, String column, long value) {
+        Long next = jdbcTemplate.queryForObject(NEXT_VALUE_SQL, Long.class, table, column);
+        long from = Math.max(value, next == null ? 0 : next - 1);
+        long restart = from + 1 + Math.floorMod(idOffset - (from + 1), (long) idStride);
+        if (next == null || next != restart)
+            jdbcTemplate.execute("alter table " + table + " alter column " + column + " restart with " + restart);
+    }
+
+    /**
+     * Runs a single row write and, if it touched the row, records the change of the product in the same transaction.
+     * The change event is published once the transaction is committed.
+     */
+    private boolean inTransaction(IntSupplier write, Integer id) {
+        boolean applied = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (write.getAsInt() != 1)
+                return false;
+            lockChanges();
+            jdbcTemplate.update(RECORD_UPSERT_SQL, id);
+            return true;
+        }));
+        if (applied)
+            publishChanges(List.of(id));
+        return applied;
+    }
+
+    private void recordChanges(String sql, List<Integer> ids) {
+        if (ids.isEmpty())
+            return;
+        lockChanges();
+        jdbcTemplate.batchUpdate(sql, ids, ids.size(), (ps, id) -> ps.setInt(1, id));
+    }
+
+    /**
+     * Locks the change feed until the current transaction ends. Called right before the changes are recorded,
+     * the last statements of each write, so that sequence numbers are allocated in commit order: a reader that
+     * has seen a change can never see a lower sequence number committed later, and skip it.
+     * Writes are only serialized for the time it takes to record their changes and commit.
+     */
+    private void lockChanges() {
+        jdbcTemplate.queryForList(LOCK_CHANGES_SQL, Integer.class);
+    }
+
+    private void publishChanges(List<Integer> ids) {
+        if (!ids.isEmpty())
+            eventPublisher.publishEvent(new ProductChangedEvent(ids));
+    }
+
+    private static List<String> projectedColumns(List<String> fields) {
+        // The id is always selected, it is the pagination cursor
+        List<String> columns = new ArrayList<>(ProductQuery.COLUMNS.size());
+        for (String column : ProductQuery.COLUMNS) {
+            if ("id".equals(column) || fields.contains(column))
+                columns.add(column);
+        }
+        return columns;
+    }
+
+    private static RowMapper<Product> projectionRowMapper(List<String> columns) {
+        if (columns.size() == ProductQuery.COLUMNS.size())
+            return PRODUCT_ROW_MAPPER;
+        // Columns are selected in the order of the list, so each one is read by its position
+        return (rs, rowNum) -> {
+            Product product = new Product();
+            for (int i = 0; i < columns.size(); i++) {
+                switch (columns.get(i)) {
+                    case "id" -> product.setId(rs.getInt(i + 1));
+                    case "name" -> product.setName(rs.getString(i + 1));
+                    case "quantity" -> product.setQuantity(rs.getInt(i + 1));
+                    case "version" -> product.setVersion(rs.getInt(i + 1));
+                    default -> throw new IllegalArgumentException("Unknown product column: " + columns.get(i));
+                }
+            }
+            return product;
+        };
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private Set<Integer> findExistingIds(List<Integer> ids) {
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList("select id from products where id in (" + placeholders + ")",
+                Integer.class, ids.toArray()));
+    }
+
+    private static boolean isApplied(int count) {
+        // Some drivers only report that a batched statement succeeded, not how many rows it touched
+        return count == 1 || count == Statement.SUCCESS_NO_INFO;
     }
 }
@@ -0,0 +1,97 @@
+package com.infinity.product.repository;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.WriteResult;
+import io.r2dbc.spi.Readable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC implementation of ReactiveProductRepository, running the same statements as ProductRepositoryImpl.
+ **/
+@Repository
+@Profile("reactive")
+@Slf4j
+public class R2dbcProductRepository implements ReactiveProductRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public R2dbcProductRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Mono<Product> findById(Integer id) {
+        return databaseClient.sql("select * from products where id = :id")
+                .bind("id", id)
+                .map(R2dbcProductRepository::toProduct)
+                .one();
+    }
+
+    @Override
+    public Flux<Product> findAll() {
+        // Rows are pulled from the driver as the subscriber requests them
+        return databaseClient.sql("select * from products order by id")
+                .map(R2dbcProductRepository::toProduct)
+                .all();
+    }
+
+    @Override
+    public Mono<WriteResult> update(Product product) {
+        return databaseClient.sql("update products set name = :name, quantity = :quantity, version = version + 1 "
+                        + "where id = :id and version = :version")
+                .bind("name", product.getName())
+                .bind("quantity", product.getQuantity())
+                .bind("id", product.getId())
+                .bind("version", product.getVersion())
+                .fetch()
+                .rowsUpdated()
+                .flatMap(count -> {
+                    if (count == 1) {
+                        product.setVersion(product.getVersion() + 1);
+                        return Mono.just(WriteResult.SUCCESS);
+                    }
+                    // Tell a missing row from a stale version, as the JDBC repository does
+                    return databaseClient.sql("select id from products where id = :id")
+                            .bind("id", product.getId())
+                            .map(row -> row.get("id", Integer.class))
+                            .first()
+                            .map(id -> WriteResult.CONFLICT)
+                            .defaultIfEmpty(WriteResult.NOT_FOUND);
+                });
+    }
+
+    @Override
+    public Mono<Product> save(Product product) {
+        return databaseClient.sql("insert into products (name, quantity, version) values (:name, :quantity, :version)")
+                .bind("name", product.getName())
+                .bind("quantity", product.getQuantity())
+                .bind("version", product.getVersion())
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Integer.class))
+                .one()
+                .map(id -> {
+                    log.info("Inserting product into database, generated key is: {}.", id);
+                    product.setId(id);
+                    return product;
+                });
+    }
+
+    @Override
+    public Mono<Boolean> delete(Integer id) {
+        return databaseClient.sql("delete from products where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .map(count -> count == 1);
+    }
+
+    private static Product toProduct(Readable row) {
+        return new Product(row.get("id", Integer.class), row.get("name", String.class),
+                row.get("quantity", Integer.class), row.get("version", Integer.class));
+    }
+}
@@ -0,0 +1,54 @@
+package com.infinity.product.repository;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.WriteResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of ProductRepository, with the same semantics.
+ **/
+public interface ReactiveProductRepository {
+    /**
+     * Returns The product with the specified ID
+     *
+     * @param id  ID of the product to retrieved.
+     * @return  The requested product, or an empty Mono if not found.
+     * */
+    Mono<Product> findById(Integer id);
+
+    /**
+     * Return all products in the database, ordered by id.
+     *
+     * @return All products in the database, emitted as they are read.
+     * */
+    Flux<Product> findAll();
+
+    /**
+     * Update the specified product, identified by its id, if its version still matches.
+     *
+     * @param product The product to update, carrying the version it was read with.
+     *
+     * @return SUCCESS if the update succeeded, NOT_FOUND if there is no such product,
+     * or CONFLICT if the version does not match.
+     * */
+    Mono<WriteResult> update(Product product);
+
+    /**
+     * saves the specified product to database.
+     *
+     * @param product The product to save to the database.
+     *
+     * @return The saved product.
+     * */
+    Mono<Product> save(Product product);
+
+    /**
+     * Delete product with specified id.
+     *
+     * @param id The id of the product to delete.
+     *
+     * @return True if operation was successful, otherwise false
+     * */
+    Mono<Boolean> delete(Integer id);
+}
@@ -0,0 +1,478 @@
+package com.infinity.product.repository;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.ProductChange;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.domain.WriteResult;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Partitions the products across several databases, with one ProductRepositoryImpl per shard.
+ * A product lives in the shard of index (id - 1) modulo the number of shards: each shard generates the ids of its
+ * own residue class (shard + 1, then every shardCount), so ids stay unique without any coordination between shards
+ * and point reads and writes go to a single shard. New products are spread over the shards in turn.
+ *
+ * Listings, streams and the change feed fan out to all shards in parallel, and their results are merged in id
+ * (or sort, or sequence) order. Each shard numbers its own changes, so a position in the merged change feed
+ * holds the sequence number reached on each shard. Batches are split by shard and the parts run in parallel,
+ * each in the transaction of its shard: a batch is no longer atomic as a whole.
+ **/
+public class ShardedProductRepository implements ProductRepository {
+
+    // Rows read ahead from each shard while streaming, waiting to be merged
+    private static final int STREAM_BUFFER_SIZE = 1_000;
+    private static final long STREAM_POLL_MILLIS = 100;
+    private static final Product END_OF_SHARD = new Product();
+
+    private final List<ProductRepositoryImpl> shards;
+    private final ExecutorService fanOut;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    private record Head(Product product, int shard) {
+    }
+
+    private record ShardChange(ProductChange change, int shard) {
+    }
+
+    public ShardedProductRepository(List<ProductRepositoryImpl> shards) {
+        if (shards.isEmpty())
+            throw new IllegalArgumentException("At least one shard is required");
+        this.shards = List.copyOf(shards);
+        AtomicInteger threads = new AtomicInteger();
+        // Not bounded, so that a stream holding a thread per shard never waits on threads held by other streams.
+        // The connection pools of the shards bound the work actually running at once
+        this.fanOut = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "shard-fan-out-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the index of the shard holding the product with the specified id.
+     */
+    public int shardOf(Integer id) {
+        return Math.floorMod(id - 1, shards.size());
+    }
+
+    @Override
+    public Optional<Product> findById(Integer id) {
+        return shards.get(shardOf(id)).findById(id);
+    }
+
+    @Override
+    public Optional<Integer> findVersionById(Integer id) {
+        return shards.get(shardOf(id)).findVersionById(id);
+    }
+
+    @Override
+    public List<Product> findAll() {
+        List<Product> products = new ArrayList<>();
+        onEachShard(ProductRepositoryImpl::findAll).forEach(products::addAll);
+        products.sort(Comparator.comparing(Product::getId));
+        return products;
+    }
+
+    @Override
+    public List<Product> find(ProductQuery query) {
+        String sort = query.getSort();
+        Object seekValue = null;
+        if (query.getAfter() != null && !"id".equals(sort)) {
+            // Only the shard of the after product can look up its sort value, the other shards are given it
+            Optional<Product> after = findById(query.getAfter());
+            if (after.isEmpty())
+                throw new UnknownCursorException("Product " + query.getAfter() + " to sort on " + sort + " after no longer exists");
+            seekValue = sortValue(after.get(), sort);
+        }
+
+        // Every shard returns its own first page, the merged page is the first rows of all of them.
+        // The sort column is needed to merge them, so it is read even when it is not projected
+        boolean sortProjected = query.getFields() == null || "id".equals(sort) || query.getFields().contains(sort);
+        ProductQuery shardQuery = sortProjected ? query : withField(query, sort);
+        Object seek = seekValue;
+        List<Product> page = onEachShard(shard -> shard.find(shardQuery, seek)).stream()
+                .flatMap(List::stream)
+                .sorted(ordering(query))
+                .limit(query.getLimit())
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (!sortProjected)
+            page.forEach(product -> clearField(product, sort));
+        return page;
+    }
+
+    @Override
+    public void streamAll(Consumer<Product> consumer) {
+        // Each shard streams its rows in id order into its own bounded buffer, the heads of the buffers are merged here
+        AtomicBoolean closed = new AtomicBoolean();
+        List<BlockingQueue<Product>> buffers = new ArrayList<>(shards.size());
+        List<Future<?>> producers = new ArrayList<>(shards.size());
+        try {
+            for (ProductRepositoryImpl shard : shards) {
+                BlockingQueue<Product> buffer = new ArrayBlockingQueue<>(STREAM_BUFFER_SIZE);
+                buffers.add(buffer);
+                producers.add(fanOut.submit(() -> {
+                    try {
+                        shard.streamAll(product -> put(buffer, product, closed));
+                    } finally {
+                        put(buffer, END_OF_SHARD, closed);
+                    }
+                }));
+            }
+
+            PriorityQueue<Head> heads = new PriorityQueue<>(shards.size(),
+                    Comparator.comparing((Head head) -> head.product().getId()));
+            for (int i = 0; i < shards.size(); i++)
+                next(buffers.get(i), producers.get(i), i, heads);
+            while (!heads.isEmpty()) {
+                Head head = heads.poll();
+                consumer.accept(head.product());
+                next(buffers.get(head.shard()), producers.get(head.shard()), head.shard(), heads);
+            }
+        } finally {
+            // Stops the shards still streaming, when the consumer or another shard failed
+            closed.set(true);
+        }
+    }
+
+    @Override
+    public WriteResult update(Product product) {
+        return shards.get(shardOf(product.getId())).update(product);
+    }
+
+    @Override
+    public Product save(Product product) {
+        return shards.get(Math.floorMod(nextShard.getAndIncrement(), shards.size())).save(product);
+    }
+
+    @Override
+    public Boolean delete(Integer id) {
+        return shards.get(shardOf(id)).delete(id);
+    }
+
+    @Override
+    public List<Product> saveAll(List<Product> products) {
+        if (products.isEmpty())
+            return products;
+        int first = nextShard.getAndAdd(products.size());
+        return partitioned(products, i -> Math.floorMod(first + i, shards.size()), ProductRepositoryImpl::saveAll);
+    }
+
+    @Override
+    public int importAll(List<Product> products) {
+        if (products.isEmpty())
+            return 0;
+        // Imported products keep their id, so they go to the shard that would have generated it
+        List<List<Integer>> positions = positionsByShard(products.size(), i -> shardOf(products.get(i).getId()));
+        List<Supplier<Integer>> calls = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            List<Product> part = select(products, positions.get(shard));
+            if (!part.isEmpty())
+                calls.add(onShard(shard, repository -> repository.importAll(part)));
+        }
+        return inParallel(calls).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @Override
+    public void finishImport() {
+        onEachShard(shard -> {
+            shard.finishImport();
+            return null;
+        });
+    }
+
+    @Override
+    public List<WriteResult> updateAll(List<Product> products) {
+        if (products.isEmpty())
+            return Collections.emptyList();
+        return partitioned(products, i -> shardOf(products.get(i).getId()), ProductRepositoryImpl::updateAll);
+    }
+
+    @Override
+    public List<Boolean> deleteAll(List<Integer> ids) {
+        if (ids.isEmpty())
+            return Collections.emptyList();
+        return partitioned(ids, i -> shardOf(ids.get(i)), ProductRepositoryImpl::deleteAll);
+    }
+
+    @Override
+    public WriteResult adjustQuantity(Integer id, int delta, boolean floorAtZero) {
+        return shards.get(shardOf(id)).adjustQuantity(id, delta, floorAtZero);
+    }
+
+    @Override
+    public Map<Integer, Boolean> adjustQuantities(Map<Integer, Integer> deltas) {
+        if (deltas.isEmpty())
+            return Collections.emptyMap();
+
+        List<Map<Integer, Integer>> parts = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++)
+            parts.add(new LinkedHashMap<>());
+        deltas.forEach((id, delta) -> parts.get(shardOf(id)).put(id, delta));
+
+        List<Supplier<Map<Integer, Boolean>>> calls = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            Map<Integer, Integer> part = parts.get(shard);
+            if (!part.isEmpty())
+                calls.add(onShard(shard, repository -> repository.adjustQuantities(part)));
+        }
+        Map<Integer, Boolean> applied = new HashMap<>(deltas.size());
+        inParallel(calls).forEach(applied::putAll);
+
+        Map<Integer, Boolean> results = new LinkedHashMap<>(deltas.size());
+        deltas.keySet().forEach(id -> results.put(id, applied.get(id)));
+        return results;
+    }
+
+    /**
+     * Reads the feed of each shard after its own sequence number in the position, then merges them.
+     * The merge only ever takes a prefix of each feed, so a shard lagging behind the others never has a change
+     * skipped, and each change carries the position with the sequence number of its shard moved up to it.
+     *
+     * @param since "0" to start from the oldest, or the sequence number reached on each shard, joined with dots.
+     */
+    @Override
+    public List<ProductChange> findChanges(String since, int limit) {
+        long[] position = parsePosition(since);
+        List<Supplier<List<ShardChange>>> calls = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            int index = shard;
+            calls.add(onShard(shard, repository -> repository.findChanges(position[index], limit).stream()
+                    .map(change -> new ShardChange(change, index))
+                    .toList()));
+        }
+        List<ShardChange> merged = inParallel(calls).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(shardChange -> shardChange.change().getSeq()))
+                .limit(limit)
+                .toList();
+
+        List<ProductChange> changes = new ArrayList<>(merged.size());
+        for (ShardChange shardChange : merged) {
+            ProductChange change = shardChange.change();
+            position[shardChange.shard()] = change.getSeq();
+            change.setPosition(Arrays.stream(position).mapToObj(Long::toString).collect(Collectors.joining(".")));
+            changes.add(change);
+        }
+        return changes;
+    }
+
+    @Override
+    public int pruneChanges(Instant olderThan) {
+        return onEachShard(shard -> shard.pruneChanges(olderThan)).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public void shutdown() {
+        fanOut.shutdownNow();
+    }
+
+    private long[] parsePosition(String since) {
+        long[] position = new long[shards.size()];
+        if ("0".equals(since))
+            return position;
+        String[] seqs = since.split("\\.", -1);
+        if (seqs.length != shards.size())
+            throw new IllegalArgumentException("Change feed position " + since + " does not hold one sequence number per shard");
+        for (int shard = 0; shard < seqs.length; shard++) {
+            position[shard] = Long.parseLong(seqs[shard]);
+            if (position[shard] < 0)
+                throw new IllegalArgumentException("Change feed position must not be negative: " + since);
+        }
+        return position;
+    }
+
+    /**
+     * Splits the items by shard, runs the call on each shard with its items in parallel,
+     * and returns the results in the order of the items.
+     */
+    private <T, R> List<R> partitioned(List<T> items, IntUnaryOperator shardOfPosition,
+                                       BiFunction<ProductRepositoryImpl, List<T>, List<R>> call) {
+        List<List<Integer>> positions = positionsByShard(items.size(), shardOfPosition);
+        List<List<Integer>> called = new ArrayList<>();
+        List<Supplier<List<R>>> calls = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            List<T> part = select(items, positions.get(shard));
+            if (!part.isEmpty()) {
+                called.add(positions.get(shard));
+                calls.add(onShard(shard, repository -> call.apply(repository, part)));
+            }
+        }
+
+        List<List<R>> partResults = inParallel(calls);
+        List<R> results = new ArrayList<>(Collections.nCopies(items.size(), null));
+        for (int i = 0; i < called.size(); i++) {
+            List<Integer> partPositions = called.get(i);
+            for (int j = 0; j < partPositions.size(); j++)
+                results.set(partPositions.get(j), partResults.get(i).get(j));
+        }
+        return results;
+    }
+
+    private List<List<Integer>> positionsByShard(int size, IntUnaryOperator shardOfPosition) {
+        List<List<Integer>> positions = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++)
+            positions.add(new ArrayList<>());
+        for (int i = 0; i < size; i++)
+            positions.get(shardOfPosition.applyAsInt(i)).add(i);
+        return positions;
+    }
+
+    private static <T> List<T> select(List<T> items, List<Integer> positions) {
+        List<T> selected = new ArrayList<>(positions.size());
+        positions.forEach(position -> selected.add(items.get(position)));
+        return selected;
+    }
+
+    private <T> Supplier<T> onShard(int shard, Function<ProductRepositoryImpl, T> call) {
+        ProductRepositoryImpl repository = shards.get(shard);
+        return () -> call.apply(repository);
+    }
+
+    private <T> List<T> onEachShard(Function<ProductRepositoryImpl, T> call) {
+        List<Supplier<T>> calls = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++)
+            calls.add(onShard(shard, call));
+        return inParallel(calls);
+    }
+
+    /**
+     * Runs the calls in parallel and returns their results in the same order.
+     * The last call runs on the calling thread, which would otherwise only wait.
+     */
+    private <T> List<T> inParallel(List<Supplier<T>> calls) {
+        List<T> results = new ArrayList<>(calls.size());
+        List<Future<T>> futures = new ArrayList<>(calls.size());
+        try {
+            for (int i = 0; i < calls.size() - 1; i++)
+                futures.add(fanOut.submit(calls.get(i)::get));
+            T last = calls.isEmpty() ? null : calls.get(calls.size() - 1).get();
+            for (Future<T> future : futures)
+                results.add(await(future));
+            if (!calls.isEmpty())
+                results.add(last);
+            return results;
+        } finally {
+            // The calls not started yet are not needed once one has failed
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a shard");
+        } catch (ExecutionException e) {
+            // Rethrow what the shard threw, so that callers handle the same exceptions as with a single database
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            if (e.getCause() instanceof Error cause)
+                throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Takes the next product streamed by the specified shard into the heads, or, at the end of the shard,
+     * rethrows the exception that ended it if any.
+     */
+    private static void next(BlockingQueue<Product> buffer, Future<?> producer, int shard, PriorityQueue<Head> heads) {
+        Product product;
+        try {
+            product = buffer.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while streaming products");
+        }
+        if (product == END_OF_SHARD)
+            await(producer);
+        else
+            heads.add(new Head(product, shard));
+    }
+
+    private static void put(BlockingQueue<Product> buffer, Product product, AtomicBoolean closed) {
+        try {
+            // Throwing out of the row callback closes the result set of the shard
+            while (!closed.get()) {
+                if (buffer.offer(product, STREAM_POLL_MILLIS, TimeUnit.MILLISECONDS))
+                    return;
+            }
+            throw new CancellationException("The product stream was closed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while streaming products");
+        }
+    }
+
+    private static Comparator<Product> ordering(ProductQuery query) {
+        Comparator<Product> bySort = switch (query.getSort()) {
+            case "name" -> Comparator.comparing(Product::getName);
+            case "quantity" -> Comparator.comparing(Product::getQuantity);
+            case "version" -> Comparator.comparing(Product::getVersion);
+            default -> Comparator.comparing(Product::getId);
+        };
+        if (query.isDescending())
+            bySort = bySort.reversed();
+        // Ties are broken by ascending id, as in the SQL of the shards
+        return "id".equals(query.getSort()) ? bySort : bySort.thenComparing(Product::getId);
+    }
+
+    private static Object sortValue(Product product, String sort) {
+        return switch (sort) {
+            case "name" -> product.getName();
+            case "quantity" -> product.getQuantity();
+            case "version" -> product.getVersion();
+            default -> product.getId();
+        };
+    }
+
+    private static void clearField(Product product, String field) {
+        switch (field) {
+            case "name" -> product.setName(null);
+            case "quantity" -> product.setQuantity(null);
+            case "version" -> product.setVersion(null);
+            default -> throw new IllegalArgumentException("Unknown product column: " + field);
+        }
+    }
+
+    private static ProductQuery withField(ProductQuery query, String field) {
+        ProductQuery copy = new ProductQuery(query.getAfter(), query.getLimit());
+        copy.setNamePrefix(query.getNamePrefix());
+        copy.setNameContains(query.getNameContains());
+        copy.setMinQuantity(query.getMinQuantity());
+        copy.setMaxQuantity(query.getMaxQuantity());
+        copy.setSort(query.getSort());
+        copy.setOrder(query.getOrder());
+        List<String> fields = new ArrayList<>(query.getFields());
+        fields.add(field);
+        copy.setFields(fields);
+        return copy;
+    }
+}
@@ -0,0 +1,12 @@
+package com.infinity.product.repository;
+
+/**
+ * Thrown when a page is requested after a product that no longer exists while sorting on another column
+ * than id, since the sort value to seek past is then unknown and the listing can not be continued.
+ **/
+public class UnknownCursorException extends RuntimeException {
+
+    public UnknownCursorException(String message) {
+        super(message);
+    }
+}
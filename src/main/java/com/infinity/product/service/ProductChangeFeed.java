@@ -0,0 +1,318 @@
+package com.infinity.product.service;
+
+import com.infinity.product.config.ProductProperties;
+import com.infinity.product.domain.ProductChange;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.repository.ProductChangedEvent;
+import com.infinity.product.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Wakes up the readers of the change feed when products change, so that they do not have to poll the database.
+ * Long-polling readers wait on nextChange(), streaming readers subscribe to receive each new change.
+ *
+ * A subscriber first catches up from its own position, then joins the live subscribers. The new changes are read
+ * once per notification on the single notifier thread, never on the thread of the writer, and copied into the
+ * bounded buffer of each live subscriber. Each subscriber sends its buffer on its own task, so a slow client only
+ * delays itself; one whose buffer overflows is dropped, and resumes from its last position when it reconnects.
+ * The feed also prunes the changes older than the configured retention.
+ **/
+@Component
+@Profile("!reactive")
+@Slf4j
+public class ProductChangeFeed {
+
+    /**
+     * Receiver of the changes of one subscription. Its methods are called on the task of the subscription,
+     * one at a time, never on the notifier thread.
+     */
+    public interface Subscriber {
+
+        /**
+         * Sends one change to the client.
+         *
+         * @param change The change, its position is the one to resume from after it.
+         * @throws IOException if the client can not be written to, which ends the subscription.
+         */
+        void send(ProductChange change) throws IOException;
+
+        /**
+         * Ends the subscription, after which no more changes are sent.
+         *
+         * @param error The reason, or null if the client fell too far behind and must reconnect to resume.
+         */
+        void close(Exception error);
+    }
+
+    private final ProductRepository repository;
+    private final Duration retention;
+    private final int bufferSize;
+    private final AtomicReference<CompletableFuture<Void>> nextChange = new AtomicReference<>(new CompletableFuture<>());
+    // Both only used on the notifier thread: the subscribers receiving the changes read by the feed, and the
+    // position the feed reads from, set by the first of them to join
+    private final Set<Subscription> live = new LinkedHashSet<>();
+    private String head;
+    private final ScheduledExecutorService notifier;
+    private final ExecutorService senders;
+
+    private final class Subscription {
+        final Subscriber subscriber;
+        final BlockingQueue<ProductChange> buffer;
+        // Set while a task of the subscription is running or about to, so that only one sends at a time
+        final AtomicBoolean scheduled = new AtomicBoolean(true);
+        // Sequence numbers of the last changes sent when catching up and of those read when joining, which the feed
+        // may not have read yet, and skips when it does. Used by the catch up, then by the notifier thread only
+        final Set<Long> joined = new LinkedHashSet<>();
+        String position;
+        volatile boolean dropped;
+        volatile boolean closed;
+
+        Subscription(String since, Subscriber subscriber) {
+            this.position = since;
+            this.subscriber = subscriber;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    public ProductChangeFeed(ProductRepository repository, ProductProperties properties) {
+        this.repository = repository;
+        this.retention = properties.getChanges().getRetention();
+        this.bufferSize = properties.getChanges().getSubscriberBuffer();
+        this.notifier = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // One task per subscription at most, so a client stalled on a write holds a thread of its own only
+        this.senders = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "change-feed-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long pruneInterval = properties.getChanges().getPruneInterval().toMillis();
+        this.notifier.scheduleWithFixedDelay(this::prune, pruneInterval, pruneInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns a future completed on the next change committed after this call.
+     * Readers must get it before they read the feed, so that a change committed in between is not missed.
+     *
+     * @return The future of the next change.
+     */
+    public CompletableFuture<Void> nextChange() {
+        return nextChange.get();
+    }
+
+    /**
+     * Sends the changes after the specified position to the subscriber, then each new change as it is committed.
+     * A position that is not one of the feed closes the subscription with an IllegalArgumentException.
+     *
+     * @param since      The position of the last change the client has seen.
+     * @param subscriber The receiver of the changes.
+     * @return The action that unsubscribes.
+     */
+    public Runnable subscribe(String since, Subscriber subscriber) {
+        Subscription subscription = new Subscription(since, subscriber);
+        senders.execute(() -> catchUp(subscription));
+        return () -> {
+            subscription.closed = true;
+            notifier.execute(() -> leave(subscription));
+        };
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        CompletableFuture<Void> current = nextChange.getAndSet(new CompletableFuture<>());
+        notifier.execute(() -> {
+            current.complete(null);
+            publish();
+        });
+    }
+
+    /**
+     * Runs on the task of the subscription: sends the changes after its own position, then has it join the
+     * live subscribers once it has read everything.
+     */
+    private void catchUp(Subscription subscription) {
+        try {
+            List<ProductChange> changes;
+            do {
+                changes = repository.findChanges(subscription.position, ProductQuery.MAX_LIMIT);
+                for (ProductChange change : changes) {
+                    if (subscription.closed)
+                        return;
+                    subscription.subscriber.send(change);
+                    subscription.position = change.getPosition();
+                    // Only the changes committed while it joins can be read again, so the last ones are enough
+                    subscription.joined.add(change.getSeq());
+                    if (subscription.joined.size() > bufferSize)
+                        subscription.joined.remove(subscription.joined.iterator().next());
+                }
+            } while (changes.size() == ProductQuery.MAX_LIMIT);
+        } catch (IOException | RuntimeException e) {
+            end(subscription, e);
+            return;
+        }
+        // Released before joining, so that the changes the join buffers are sent by a new task
+        subscription.scheduled.set(false);
+        notifier.execute(() -> join(subscription));
+    }
+
+    /**
+     * Runs on the notifier thread: reads what was committed since the subscription caught up, as the changes read
+     * by the feed so far may not include it, then makes the subscription live.
+     */
+    private void join(Subscription subscription) {
+        if (subscription.closed)
+            return;
+        String position = subscription.position;
+        // The first subscriber to join sets the position of the feed, which then reads nothing it has sent
+        if (live.isEmpty())
+            subscription.joined.clear();
+        try {
+            List<ProductChange> changes;
+            do {
+                changes = repository.findChanges(position, ProductQuery.MAX_LIMIT);
+                for (ProductChange change : changes) {
+                    if (!buffer(subscription, change))
+                        return;
+                    position = change.getPosition();
+                    // The feed reads from its own position, it may read these again
+                    if (!live.isEmpty())
+                        subscription.joined.add(change.getSeq());
+                }
+            } while (changes.size() == ProductQuery.MAX_LIMIT);
+        } catch (RuntimeException e) {
+            log.warn("Unable to read the product changes of a joining subscriber", e);
+            subscription.dropped = true;
+            schedule(subscription);
+            return;
+        }
+        if (live.isEmpty())
+            head = position;
+        live.add(subscription);
+        schedule(subscription);
+    }
+
+    /**
+     * Runs on the notifier thread: reads the changes after the position of the feed once,
+     * and buffers them for each live subscription.
+     */
+    private void publish() {
+        if (live.isEmpty())
+            return;
+        try {
+            List<ProductChange> changes;
+            do {
+                changes = repository.findChanges(head, ProductQuery.MAX_LIMIT);
+                for (Subscription subscription : List.copyOf(live)) {
+                    for (ProductChange change : changes) {
+                        if (!subscription.joined.remove(change.getSeq()) && !buffer(subscription, change))
+                            break;
+                    }
+                }
+                if (!changes.isEmpty())
+                    head = changes.get(changes.size() - 1).getPosition();
+            } while (changes.size() == ProductQuery.MAX_LIMIT && !live.isEmpty());
+        } catch (RuntimeException e) {
+            // Read again from the same position on the next change
+            log.warn("Unable to read the product changes for the subscribers", e);
+        }
+        live.forEach(this::schedule);
+    }
+
+    /**
+     * Runs on the notifier thread: adds the change to the buffer of the subscription,
+     * or drops the subscription if its buffer is full.
+     */
+    private boolean buffer(Subscription subscription, ProductChange change) {
+        if (subscription.buffer.offer(change))
+            return true;
+        log.warn("Dropping change feed subscriber {} changes behind", subscription.buffer.size());
+        subscription.dropped = true;
+        subscription.buffer.clear();
+        leave(subscription);
+        schedule(subscription);
+        return false;
+    }
+
+    private void leave(Subscription subscription) {
+        live.remove(subscription);
+    }
+
+    private void schedule(Subscription subscription) {
+        if ((!subscription.buffer.isEmpty() || subscription.dropped) && subscription.scheduled.compareAndSet(false, true))
+            senders.execute(() -> send(subscription));
+    }
+
+    /**
+     * Runs on the task of the subscription: sends its buffered changes.
+     */
+    private void send(Subscription subscription) {
+        try {
+            ProductChange change;
+            while (!subscription.closed && (change = subscription.buffer.poll()) != null) {
+                subscription.subscriber.send(change);
+            }
+        } catch (IOException | RuntimeException e) {
+            end(subscription, e);
+            return;
+        }
+        if (subscription.dropped) {
+            end(subscription, null);
+            return;
+        }
+        subscription.scheduled.set(false);
+        // A change buffered after the last poll but before the flag was released would be left behind otherwise
+        if (!subscription.buffer.isEmpty())
+            schedule(subscription);
+    }
+
+    private void end(Subscription subscription, Exception error) {
+        if (subscription.closed)
+            return;
+        subscription.closed = true;
+        notifier.execute(() -> leave(subscription));
+        try {
+            subscription.subscriber.close(error);
+        } catch (RuntimeException e) {
+            log.debug("Unable to close change feed subscriber", e);
+        }
+    }
+
+    private void prune() {
+        try {
+            int pruned = repository.pruneChanges(Instant.now().minus(retention));
+            log.debug("Pruned {} product changes older than {}", pruned, retention);
+        } catch (DataAccessException e) {
+            log.warn("Unable to prune product changes", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        notifier.shutdownNow();
+        senders.shutdownNow();
+    }
+}
@@ -0,0 +1,285 @@
+package com.infinity.product.service;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.repository.ProductChangedEvent;
+import com.infinity.product.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * In-process inverted index of the product names, so that products are found by name without scanning the table.
+ * Names are split into tokens, lower cased and stripped of accents; each token maps to the ids of the products
+ * whose name contains it, in a sorted map so that the tokens starting with a prefix are a range of it.
+ *
+ * Every token of a query must match a token of the name: exactly, by prefix for the last token (search as you type),
+ * or within one edit (insertion, deletion, substitution or transposition) for tokens of 4 characters and more.
+ * Exact matches rank before prefix matches, which rank before fuzzy ones; ties go to the shorter name, then the id.
+ *
+ * The index is loaded in the background once the application is ready, so that the schema and any imported
+ * snapshot are in place, and a failed load is retried with a growing delay. Until it is loaded, searches fail with
+ * a SearchIndexUnavailableException rather than returning partial results. It is then updated after each committed
+ * write, by reading the changed products back. Both run on a single indexer thread, in order. Writes made through
+ * other instances are not seen. The reactive profile has no JDBC repository to load it from, so it has no index.
+ **/
+@Component
+@Profile("!reactive")
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final int FUZZY_MIN_LENGTH = 4;
+    private static final int EXACT = 3;
+    private static final int PREFIX = 2;
+    private static final int FUZZY = 1;
+    private static final Duration FIRST_RETRY_DELAY = Duration.ofMillis(500);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(1);
+
+    private final ProductRepository repository;
+    private final NavigableMap<String, Set<Integer>> postings = new ConcurrentSkipListMap<>();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService indexer;
+    private volatile boolean loaded;
+    private Duration retryDelay = FIRST_RETRY_DELAY;
+
+    private record Hit(int id, String name, int score) {
+    }
+
+    public ProductSearchIndex(ProductRepository repository) {
+        this.repository = repository;
+        this.indexer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts loading the index in the background.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        indexer.execute(this::load);
+    }
+
+    /**
+     * Returns one page of the products whose name matches the specified query, best matches first.
+     *
+     * @param query  The words to look for.
+     * @param offset The number of matches to skip.
+     * @param limit  The maximum number of matches to return.
+     * @return The matching products, with their id and name only.
+     * @throws SearchIndexUnavailableException if the index is not loaded yet.
+     */
+    public List<Product> search(String query, int offset, int limit) {
+        if (!loaded)
+            throw new SearchIndexUnavailableException("The product search index is not loaded yet");
+        String[] terms = tokenize(query);
+        if (terms.length == 0)
+            return List.of();
+
+        // Each term narrows the matches down, so the total score is only kept for the products matching all of them
+        Map<Integer, Integer> scores = null;
+        for (int i = 0; i < terms.length; i++) {
+            Map<Integer, Integer> termScores = match(terms[i], i == terms.length - 1);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                Map<Integer, Integer> both = new HashMap<>();
+                Map<Integer, Integer> smaller = scores.size() <= termScores.size() ? scores : termScores;
+                Map<Integer, Integer> larger = smaller == scores ? termScores : scores;
+                smaller.forEach((id, score) -> {
+                    Integer other = larger.get(id);
+                    if (other != null)
+                        both.put(id, score + other);
+                });
+                scores = both;
+            }
+            if (scores.isEmpty())
+                return List.of();
+        }
+
+        // Only the best offset + limit matches are ranked, in a bounded heap of the worst first
+        Comparator<Hit> ranking = Comparator.comparingInt(Hit::score).reversed()
+                .thenComparingInt(hit -> hit.name().length())
+                .thenComparingInt(Hit::id);
+        int wanted = offset + limit;
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(wanted, scores.size()) + 1, ranking.reversed());
+        scores.forEach((id, score) -> {
+            String name = names.get(id);
+            if (name == null)
+                return;
+            best.add(new Hit(id, name, score));
+            if (best.size() > wanted)
+                best.poll();
+        });
+
+        List<Hit> ranked = new ArrayList<>(best);
+        ranked.sort(ranking);
+        return ranked.stream().skip(offset).map(hit -> new Product(hit.id(), hit.name(), null, null)).toList();
+    }
+
+    /**
+     * Returns whether the initial load of the index is complete, until then searches are refused.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        List<Integer> ids = event.ids();
+        indexer.execute(() -> ids.forEach(this::refresh));
+    }
+
+    private Map<Integer, Integer> match(String term, boolean prefix) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        if (prefix) {
+            postings.subMap(term, true, term + Character.MAX_VALUE, false).forEach((token, ids) -> {
+                int score = token.equals(term) ? EXACT : PREFIX;
+                ids.forEach(id -> scores.merge(id, score, Math::max));
+            });
+        } else {
+            Set<Integer> ids = postings.get(term);
+            if (ids != null)
+                ids.forEach(id -> scores.put(id, EXACT));
+        }
+
+        // Typos in the first character are rare, so only the tokens sharing it are compared
+        if (term.length() >= FUZZY_MIN_LENGTH) {
+            String first = term.substring(0, 1);
+            postings.subMap(first, true, first + Character.MAX_VALUE, false).forEach((token, ids) -> {
+                if (!token.equals(term) && withinOneEdit(term, token))
+                    ids.forEach(id -> scores.merge(id, FUZZY, Math::max));
+            });
+        }
+        return scores;
+    }
+
+    private void load() {
+        long start = System.nanoTime();
+        try {
+            repository.streamAll(this::index);
+            loaded = true;
+            log.info("Indexed the names of {} products in {} ms", names.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (DataAccessException e) {
+            // Products indexed so far are kept, the next attempt indexes them again
+            log.warn("Unable to load the product search index, retrying in {} ms", retryDelay.toMillis(), e);
+            indexer.schedule(this::load, retryDelay.toMillis(), TimeUnit.MILLISECONDS);
+            retryDelay = retryDelay.multipliedBy(2).compareTo(MAX_RETRY_DELAY) < 0
+                    ? retryDelay.multipliedBy(2) : MAX_RETRY_DELAY;
+        }
+    }
+
+    private void refresh(Integer id) {
+        try {
+            repository.findById(id).ifPresentOrElse(this::index, () -> remove(id));
+        } catch (DataAccessException e) {
+            log.warn("Unable to refresh product with id: {} in the search index", id, e);
+        }
+    }
+
+    private void index(Product product) {
+        String previous = names.put(product.getId(), product.getName());
+        if (product.getName().equals(previous))
+            return;
+        if (previous != null)
+            unindex(product.getId(), previous);
+        for (String token : tokenize(product.getName())) {
+            postings.computeIfAbsent(token, key -> ConcurrentHashMap.newKeySet()).add(product.getId());
+        }
+    }
+
+    private void remove(Integer id) {
+        String previous = names.remove(id);
+        if (previous != null)
+            unindex(id, previous);
+    }
+
+    private void unindex(Integer id, String name) {
+        for (String token : tokenize(name)) {
+            postings.computeIfPresent(token, (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static String[] tokenize(String text) {
+        if (text == null)
+            return new String[0];
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(SEPARATORS.split(folded)).filter(token -> !token.isEmpty()).distinct()
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Returns whether the specified tokens differ by at most one insertion, deletion, substitution
+     * or transposition of two adjacent characters.
+     */
+    private static boolean withinOneEdit(String a, String b) {
+        if (a.length() > b.length())
+            return withinOneEdit(b, a);
+        if (b.length() - a.length() > 1)
+            return false;
+        int i = 0;
+        int j = 0;
+        boolean edited = false;
+        while (i < a.length() && j < b.length()) {
+            if (a.charAt(i) == b.charAt(j)) {
+                i++;
+                j++;
+                continue;
+            }
+            if (edited)
+                return false;
+            edited = true;
+            if (a.length() < b.length()) {
+                // A character inserted in b
+                j++;
+            } else if (i + 1 < a.length() && a.charAt(i) == b.charAt(j + 1) && a.charAt(i + 1) == b.charAt(j)) {
+                i += 2;
+                j += 2;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        int remaining = (a.length() - i) + (b.length() - j);
+        return edited ? remaining == 0 : remaining <= 1;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexer.shutdownNow();
+    }
+}
@@ -1,9 +1,15 @@
 package com.infinity.product.service;
 
+import com.infinity.product.domain.BatchItemResult;
 import com.infinity.product.domain.Product;
+import com.infinity.product.domain.ProductChange;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.domain.WriteResult;
+import com.infinity.product.domain.WriteTicket;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 /**
  * @apiNote This is abstract interface Crud-Operations for product service application api.
  *
@@ -17,6 +23,14 @@ public interface ProductService {
      */
     Optional<Product> findById(Integer id);
 
+    /**
+     * Returns the current version of the product with specified ID, without loading the product.
+     *
+     * @param id The ID of the product.
+     * @return The version of the product if it exists.
+     */
+    Optional<Integer> findVersionById(Integer id);
+
     /**
      * Returns all products in the database.
      *
@@ -25,12 +39,59 @@ public interface ProductService {
     List<Product> findAll();
 
     /**
-     * Updates the specified product, identified with its ID.
+     * Returns one page of the products matching the specified query.
+     *
+     * @param query The filters, sort order, projected fields and page to return.
+     * @return The products of the requested page.
+     */
+    List<Product> find(ProductQuery query);
+
+    /**
+     * Returns one page of the products whose name matches the specified words, best matches first.
+     * The last word also matches as a prefix, words of 4 characters and more also match with one typo.
+     *
+     * @param query  The words to look for in the product names.
+     * @param offset The number of matches to skip.
+     * @param limit  The maximum number of matches to return.
+     * @return The matching products, with their id and name only.
+     */
+    List<Product> search(String query, int offset, int limit);
+
+    /**
+     * Streams all products in the database to the specified consumer as they are read.
+     *
+     * @param consumer The consumer that receives each product.
+     */
+    void streamAll(Consumer<Product> consumer);
+
+    /**
+     * Updates the specified product, identified with its ID, if its version still matches.
+     *
+     * @param product The product to update, carrying the version it was read with.
+     * @return SUCCESS if the update succeeded, NOT_FOUND if the product does not exist,
+     * or CONFLICT if the version does not match.
+     */
+    WriteResult update(Product product);
+
+    /**
+     * Adds the specified delta to the quantity of a product, without any version check.
+     *
+     * @param id The id of the product to adjust.
+     * @param delta The amount to add to the quantity, negative to remove stock.
+     * @param floorAtZero Whether the adjustment must be refused if it would make the quantity negative.
+     * @return SUCCESS if the quantity was adjusted, ACCEPTED if the adjustment was queued to be applied later,
+     * NOT_FOUND if the product does not exist, or CONFLICT if the floor would be broken.
+     */
+    WriteResult adjustStock(Integer id, int delta, boolean floorAtZero);
+
+    /**
+     * Returns the changes of the change feed after the specified position.
      *
-     * @param product The product to update
-     * @return True if the update succeeded, otherwise false.
+     * @param since The position of the last change seen, "0" to start from the oldest.
+     * @param limit The maximum number of changes to return.
+     * @return The changes, oldest first.
      */
-    Boolean update(Product product);
+    List<ProductChange> findChanges(String since, int limit);
 
     /**
      * Saves the specified product to the database.
@@ -40,6 +101,34 @@ public interface ProductService {
      */
     Product save(Product product);
 
+    /**
+     * Queues the creation of the specified product when the write-behind mode is enabled.
+     *
+     * @param product The product to create.
+     * @return The ticket to track the write with, or empty if the write-behind mode is disabled.
+     * @throws IllegalArgumentException if the product can not be written, checked before it is queued.
+     * @throws WriteQueueFullException if the queue stays full for too long.
+     */
+    Optional<WriteTicket> saveLater(Product product);
+
+    /**
+     * Queues the update of the specified product when the write-behind mode is enabled.
+     *
+     * @param product The product to update, carrying the version it was read with.
+     * @return The ticket to track the write with, or empty if the write-behind mode is disabled.
+     * @throws IllegalArgumentException if the product can not be written, checked before it is queued.
+     * @throws WriteQueueFullException if the queue stays full for too long.
+     */
+    Optional<WriteTicket> updateLater(Product product);
+
+    /**
+     * Returns the outcome of a write queued in write-behind mode.
+     *
+     * @param trackingId The tracking id of the write.
+     * @return The ticket of the write, or empty if it is unknown.
+     */
+    Optional<WriteTicket> findWrite(String trackingId);
+
     /**
      * Deletes the specified product, identified with its ID.
      *
@@ -47,4 +136,29 @@ public interface ProductService {
      * @return True if the Operation was successful, otherwise false.
      */
     Boolean delete(Integer id);
+
+    /**
+     * Saves the specified products to the database, in chunks of the configured batch size.
+     *
+     * @param products The products to save.
+     * @return The result of each product, in the same order.
+     */
+    List<BatchItemResult> saveAll(List<Product> products);
+
+    /**
+     * Updates the specified products, in chunks of the configured batch size.
+     * Each product carries the version it was read with, and is only updated if it still matches.
+     *
+     * @param products The products to update.
+     * @return The result of each product, in the same order.
+     */
+    List<BatchItemResult> updateAll(List<Product> products);
+
+    /**
+     * Deletes the products with the specified IDs, in chunks of the configured batch size.
+     *
+     * @param ids The IDs of the products to delete.
+     * @return The result of each ID, in the same order.
+     */
+    List<BatchItemResult> deleteAll(List<Integer> ids);
 }
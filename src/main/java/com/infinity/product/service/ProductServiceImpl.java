@@ -1,23 +1,66 @@
 package com.infinity.product.service;
 
+import com.infinity.product.config.ProductProperties;
+import com.infinity.product.domain.BatchItemResult;
 import com.infinity.product.domain.Product;
+import com.infinity.product.domain.ProductChange;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.domain.WriteResult;
+import com.infinity.product.domain.WriteTicket;
+import com.infinity.product.repository.ProductChangedEvent;
 import com.infinity.product.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 
 @Service
+@Profile("!reactive")
+@Slf4j
 public class ProductServiceImpl implements ProductService {
+    // Length of the name column
+    private static final int MAX_NAME_LENGTH = 128;
+
     private final ProductRepository repository;
+    private final int batchSize;
+    private final StockAdjustmentAccumulator accumulator;
+    private final WriteBehindQueue writeBehindQueue;
+    private final SingleFlight<Integer, Optional<Product>> findByIdFlight;
+    private final ProductSearchIndex searchIndex;
 
-    public ProductServiceImpl(ProductRepository repository) {
+    public ProductServiceImpl(ProductRepository repository, ProductProperties properties,
+                              Optional<StockAdjustmentAccumulator> accumulator,
+                              Optional<WriteBehindQueue> writeBehindQueue, Optional<ProductSearchIndex> searchIndex,
+                              MeterRegistry meterRegistry) {
         this.repository = repository;
+        this.batchSize = properties.getBatch().getChunkSize();
+        this.accumulator = accumulator.orElse(null);
+        this.writeBehindQueue = writeBehindQueue.orElse(null);
+        this.searchIndex = searchIndex.orElse(null);
+        this.findByIdFlight = new SingleFlight<>("findById",
+                product -> product.map(p -> new Product(p.getId(), p.getName(), p.getQuantity(), p.getVersion())),
+                meterRegistry);
     }
 
     @Override
     public Optional<Product> findById(Integer id) {
-        return repository.findById(id);
+        // Concurrent lookups of the same id, as under flash traffic, share a single query
+        return findByIdFlight.load(id, repository::findById);
+    }
+
+    @Override
+    public Optional<Integer> findVersionById(Integer id) {
+        return repository.findVersionById(id);
     }
 
     @Override
@@ -26,18 +69,179 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
-    public Boolean update(Product product) {
+    public List<Product> find(ProductQuery query) {
+        return repository.find(query);
+    }
+
+    @Override
+    public List<Product> search(String query, int offset, int limit) {
+        if (searchIndex == null)
+            throw new SearchIndexUnavailableException("There is no product search index in this profile");
+        return searchIndex.search(query, offset, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<Product> consumer) {
+        repository.streamAll(consumer);
+    }
+
+    @Override
+    public WriteResult update(Product product) {
         return repository.update(product);
     }
 
+    @Override
+    public WriteResult adjustStock(Integer id, int delta, boolean floorAtZero) {
+        // A floored adjustment must see the current quantity, so it can never be deferred
+        if (!floorAtZero && accumulator != null && accumulator.add(id, delta))
+            return WriteResult.ACCEPTED;
+        return repository.adjustQuantity(id, delta, floorAtZero);
+    }
+
+    @Override
+    public List<ProductChange> findChanges(String since, int limit) {
+        return repository.findChanges(since, limit);
+    }
+
     @Override
     public Product save(Product product) {
         product.setVersion(1);
         return repository.save(product);
     }
 
+    @Override
+    public Optional<WriteTicket> saveLater(Product product) {
+        if (writeBehindQueue == null)
+            return Optional.empty();
+        product.setVersion(1);
+        return Optional.of(writeBehindQueue.save(product));
+    }
+
+    @Override
+    public Optional<WriteTicket> updateLater(Product product) {
+        if (writeBehindQueue == null)
+            return Optional.empty();
+        return Optional.of(writeBehindQueue.update(product));
+    }
+
+    @Override
+    public Optional<WriteTicket> findWrite(String trackingId) {
+        if (writeBehindQueue == null)
+            return Optional.empty();
+        return writeBehindQueue.find(trackingId);
+    }
+
     @Override
     public Boolean delete(Integer id) {
         return repository.delete(id);
     }
+
+    @Override
+    public List<BatchItemResult> saveAll(List<Product> products) {
+        BatchItemResult[] results = new BatchItemResult[products.size()];
+        List<Integer> valid = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            if (!isValid(product)) {
+                results[i] = new BatchItemResult(null, null, HttpStatus.BAD_REQUEST.value());
+            } else {
+                product.setVersion(1);
+                valid.add(i);
+            }
+        }
+
+        inChunks(valid, chunk -> {
+            List<Product> saved = repository.saveAll(chunk.stream().map(products::get).toList());
+            for (int i = 0; i < chunk.size(); i++) {
+                Product product = saved.get(i);
+                results[chunk.get(i)] = new BatchItemResult(product.getId(), product.getVersion(), HttpStatus.CREATED.value());
+            }
+        }, i -> null, results);
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<BatchItemResult> updateAll(List<Product> products) {
+        BatchItemResult[] results = new BatchItemResult[products.size()];
+        List<Integer> valid = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            if (!isValid(product) || product.getId() == null || product.getVersion() == null) {
+                results[i] = new BatchItemResult(product == null ? null : product.getId(), null, HttpStatus.BAD_REQUEST.value());
+            } else {
+                valid.add(i);
+            }
+        }
+
+        inChunks(valid, chunk -> {
+            List<Product> batch = chunk.stream().map(products::get).toList();
+            List<WriteResult> written = repository.updateAll(batch);
+            for (int i = 0; i < chunk.size(); i++) {
+                Product product = batch.get(i);
+                results[chunk.get(i)] = switch (written.get(i)) {
+                    case SUCCESS -> new BatchItemResult(product.getId(), product.getVersion(), HttpStatus.OK.value());
+                    case CONFLICT -> new BatchItemResult(product.getId(), null, HttpStatus.CONFLICT.value());
+                    case NOT_FOUND -> new BatchItemResult(product.getId(), null, HttpStatus.NOT_FOUND.value());
+                    case ACCEPTED -> new BatchItemResult(product.getId(), null, HttpStatus.ACCEPTED.value());
+                };
+            }
+        }, i -> products.get(i).getId(), results);
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<BatchItemResult> deleteAll(List<Integer> ids) {
+        BatchItemResult[] results = new BatchItemResult[ids.size()];
+        List<Integer> valid = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) == null) {
+                results[i] = new BatchItemResult(null, null, HttpStatus.BAD_REQUEST.value());
+            } else {
+                valid.add(i);
+            }
+        }
+
+        inChunks(valid, chunk -> {
+            List<Integer> batch = chunk.stream().map(ids::get).toList();
+            List<Boolean> deleted = repository.deleteAll(batch);
+            for (int i = 0; i < chunk.size(); i++) {
+                HttpStatus status = Boolean.TRUE.equals(deleted.get(i)) ? HttpStatus.OK : HttpStatus.NOT_FOUND;
+                results[chunk.get(i)] = new BatchItemResult(batch.get(i), null, status.value());
+            }
+        }, ids::get, results);
+        return Arrays.asList(results);
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        event.ids().forEach(findByIdFlight::forget);
+    }
+
+    /**
+     * Returns whether the product can be written without breaking a constraint of the table,
+     * which would fail and roll back its whole chunk.
+     */
+    private static boolean isValid(Product product) {
+        return product != null && product.getName() != null && product.getName().length() <= MAX_NAME_LENGTH
+                && product.getQuantity() != null;
+    }
+
+    /**
+     * Runs the specified action for each chunk of at most batchSize indexes.
+     * A chunk that fails is rolled back as a whole, its items are reported as internal server errors
+     * with their id, and the remaining chunks are still processed.
+     */
+    private void inChunks(List<Integer> indexes, Consumer<List<Integer>> action, IntFunction<Integer> idOf,
+                          BatchItemResult[] results) {
+        for (int from = 0; from < indexes.size(); from += batchSize) {
+            List<Integer> chunk = indexes.subList(from, Math.min(from + batchSize, indexes.size()));
+            try {
+                action.accept(chunk);
+            } catch (DataAccessException e) {
+                log.error("Batch of {} products failed, rolled back", chunk.size(), e);
+                chunk.forEach(i -> results[i] = new BatchItemResult(idOf.apply(i), null,
+                        HttpStatus.INTERNAL_SERVER_ERROR.value()));
+            }
+        }
+    }
 }
@@ -0,0 +1,176 @@
+package com.infinity.product.service;
+
+import com.infinity.product.domain.Product;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Compact binary snapshot of the products table, written as a stream and read back through a memory mapped file.
+ * Layout, big endian: the magic number and format version, then one record per product (id, quantity and version
+ * as ints, the length of the name as an unsigned short and the name in UTF-8), then an end record with id 0
+ * followed by the number of records. The reader checks the whole file before passing on any product,
+ * so that a truncated or corrupted file is never half imported.
+ **/
+public final class ProductSnapshot {
+
+    public static final int MAGIC = 0x50524f44;
+    public static final int FORMAT_VERSION = 1;
+    private static final int END = 0;
+
+    // Files larger than a window are mapped one window at a time
+    private static final long WINDOW = 256L * 1024 * 1024;
+
+    private ProductSnapshot() {
+    }
+
+    /**
+     * Writer of a snapshot, products are written as they are passed in.
+     */
+    public static final class Writer implements Consumer<Product> {
+
+        private final DataOutputStream output;
+        private long count;
+
+        public Writer(OutputStream output) throws IOException {
+            this.output = new DataOutputStream(new BufferedOutputStream(output, 64 * 1024));
+            this.output.writeInt(MAGIC);
+            this.output.writeInt(FORMAT_VERSION);
+        }
+
+        @Override
+        public void accept(Product product) {
+            byte[] name = product.getName().getBytes(StandardCharsets.UTF_8);
+            if (name.length > 0xFFFF)
+                throw new IllegalArgumentException("Name of product " + product.getId() + " is too long");
+            try {
+                output.writeInt(product.getId());
+                output.writeInt(product.getQuantity());
+                output.writeInt(product.getVersion());
+                output.writeShort(name.length);
+                output.write(name);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count++;
+        }
+
+        /**
+         * Writes the end record, the snapshot is only complete once it is finished.
+         * A failed export must not be finished, so that the partial file is refused by the reader.
+         *
+         * @return The number of products written.
+         */
+        public long finish() throws IOException {
+            output.writeInt(END);
+            output.writeLong(count);
+            output.flush();
+            return count;
+        }
+    }
+
+    /**
+     * Reads the specified snapshot file and passes its products to the consumer in batches.
+     *
+     * @param file      The snapshot file.
+     * @param batchSize The number of products per batch.
+     * @param consumer  The consumer of each batch, the list is not reused.
+     * @return The number of products read.
+     * @throws IOException if the file can not be read, or is not a complete snapshot.
+     */
+    public static long read(Path file, int batchSize, Consumer<List<Product>> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Checked in a first pass over the mapping, which only skips the names, before anything is passed on
+            read(file, channel, batchSize, null);
+            return read(file, channel, batchSize, consumer);
+        }
+    }
+
+    private static long read(Path file, FileChannel channel, int batchSize, Consumer<List<Product>> consumer)
+            throws IOException {
+        Mapping mapping = new Mapping(channel);
+        ByteBuffer buffer = mapping.require(2 * Integer.BYTES);
+        if (buffer.getInt() != MAGIC)
+            throw new IOException(file + " is not a product snapshot");
+        int formatVersion = buffer.getInt();
+        if (formatVersion != FORMAT_VERSION)
+            throw new IOException("Unsupported product snapshot format version " + formatVersion);
+
+        long count = 0;
+        byte[] name = new byte[0xFFFF];
+        List<Product> batch = new ArrayList<>(batchSize);
+        while (true) {
+            buffer = mapping.require(Integer.BYTES);
+            int id = buffer.getInt();
+            if (id == END)
+                break;
+            buffer = mapping.require(2 * Integer.BYTES + Short.BYTES);
+            int quantity = buffer.getInt();
+            int version = buffer.getInt();
+            int length = Short.toUnsignedInt(buffer.getShort());
+            buffer = mapping.require(length);
+            count++;
+            if (consumer == null) {
+                buffer.position(buffer.position() + length);
+                continue;
+            }
+            buffer.get(name, 0, length);
+            batch.add(new Product(id, new String(name, 0, length, StandardCharsets.UTF_8), quantity, version));
+            if (batch.size() == batchSize) {
+                consumer.accept(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (mapping.require(Long.BYTES).getLong() != count)
+            throw new IOException(file + " is corrupted, its record count does not match");
+        if (!batch.isEmpty())
+            consumer.accept(batch);
+        return count;
+    }
+
+    /**
+     * A read only mapping of the file, moved forward a window at a time.
+     */
+    private static final class Mapping {
+
+        private final FileChannel channel;
+        private final long size;
+        private long position;
+        private MappedByteBuffer buffer;
+
+        Mapping(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0);
+        }
+
+        /**
+         * Returns the buffer, with at least the specified number of bytes remaining.
+         */
+        ByteBuffer require(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                map(position + buffer.position());
+                if (buffer.remaining() < bytes)
+                    throw new IOException("Product snapshot is truncated");
+            }
+            return buffer;
+        }
+
+        private void map(long from) throws IOException {
+            position = from;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(WINDOW, size - from));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.infinity.product.service;
+
+import com.infinity.product.config.ProductProperties;
+import com.infinity.product.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Exports the catalog as a binary snapshot, and imports the configured snapshot at startup, so that a new instance
+ * starts with the catalog of an existing one. The import writes the products in batches with their own ids,
+ * through the repository. It runs in the first lifecycle phase, so the web server does not accept requests and
+ * the instance does not register with discovery until it is done; the search index loads once the application
+ * is ready, after it.
+ **/
+@Component
+@Profile("!reactive")
+@Slf4j
+public class ProductSnapshotService implements SmartLifecycle {
+
+    private final ProductRepository repository;
+    private final int batchSize;
+    private final Path importPath;
+    private volatile boolean running;
+
+    public ProductSnapshotService(ProductRepository repository, ProductProperties properties) {
+        this.repository = repository;
+        this.batchSize = properties.getBatch().getChunkSize();
+        this.importPath = properties.getSnapshot().getImportPath();
+    }
+
+    /**
+     * Writes a snapshot of all products to the specified stream, reading them one row at a time.
+     *
+     * @param output The stream to write to, it is flushed but not closed.
+     * @return The number of exported products.
+     */
+    public long export(OutputStream output) throws IOException {
+        ProductSnapshot.Writer writer = new ProductSnapshot.Writer(output);
+        repository.streamAll(writer);
+        return writer.finish();
+    }
+
+    /**
+     * Imports the products of the specified snapshot file, overwriting the products with the same ids.
+     *
+     * @param file The snapshot file.
+     * @return The number of imported products.
+     * @throws IOException if the file can not be read or is not a complete snapshot, nothing is imported then.
+     */
+    public long importFrom(Path file) throws IOException {
+        long imported = ProductSnapshot.read(file, batchSize, repository::importAll);
+        repository.finishImport();
+        return imported;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (importPath == null)
+            return;
+        if (!Files.exists(importPath)) {
+            log.info("No product snapshot at {}, starting without import", importPath);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            long imported = importFrom(importPath);
+            log.info("Imported {} products from snapshot {} in {} ms", imported, importPath,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to import the product snapshot " + importPath, e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Started before the web server and the discovery registration, which start in later phases.
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+}
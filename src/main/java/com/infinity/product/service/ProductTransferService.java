@@ -0,0 +1,242 @@
+package com.infinity.product.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.infinity.product.config.ProductProperties;
+import com.infinity.product.domain.BatchItemResult;
+import com.infinity.product.domain.ImportSummary;
+import com.infinity.product.domain.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk import and export of products as CSV (with a header naming the columns) or newline delimited JSON, one product
+ * per line. Both directions stream: the import parses one row at a time and writes them in batches of the
+ * configured chunk size, the export writes each row as it is read from the database. Neither holds more than
+ * one batch in memory. Progress is logged every PROGRESS_INTERVAL rows, and counted in product.transfer.rows.
+ **/
+@Component
+@Profile("!reactive")
+@Slf4j
+public class ProductTransferService {
+
+    public enum Format {
+        CSV(MediaType.parseMediaType("text/csv")),
+        NDJSON(MediaType.parseMediaType("application/x-ndjson"));
+
+        private final MediaType mediaType;
+
+        Format(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+    }
+
+    private static final int PROGRESS_INTERVAL = 100_000;
+    private static final int MAX_NAME_LENGTH = 128;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final CsvSchema EXPORT_SCHEMA = CsvSchema.builder()
+            .addColumn("id", CsvSchema.ColumnType.NUMBER)
+            .addColumn("name")
+            .addColumn("quantity", CsvSchema.ColumnType.NUMBER)
+            .addColumn("version", CsvSchema.ColumnType.NUMBER)
+            .build()
+            .withHeader();
+
+    private final ProductService productService;
+    private final int batchSize;
+    private final ObjectReader ndjsonReader;
+    private final ObjectWriter ndjsonWriter;
+    private final ObjectReader csvReader;
+    private final ObjectWriter csvWriter;
+    private final Counter importedRows;
+    private final Counter rejectedRows;
+    private final Counter failedRows;
+    private final Counter exportedRows;
+
+    public ProductTransferService(ProductService productService, ProductProperties properties,
+                                  ObjectMapper objectMapper, MeterRegistry registry) {
+        this.productService = productService;
+        this.batchSize = properties.getBatch().getChunkSize();
+        this.ndjsonReader = objectMapper.readerFor(Product.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.ndjsonWriter = objectMapper.writerFor(Product.class).withRootValueSeparator("\n");
+        CsvMapper csvMapper = new CsvMapper();
+        // The columns are named by the header, so that an export can be imported back: its id and version are ignored
+        this.csvReader = csvMapper.readerFor(Product.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.csvWriter = csvMapper.writerFor(Product.class).with(EXPORT_SCHEMA);
+        this.importedRows = rowCounter(registry, "import", "imported");
+        this.rejectedRows = rowCounter(registry, "import", "rejected");
+        this.failedRows = rowCounter(registry, "import", "failed");
+        this.exportedRows = rowCounter(registry, "export", "exported");
+    }
+
+    /**
+     * Creates a product for each valid row of the specified body. Rows are validated one by one, a rejected row
+     * does not stop the import. A body that can not be parsed any further aborts the import, the batches written
+     * before are kept.
+     *
+     * @param input  The body to read.
+     * @param format The format of the body.
+     * @return The counts of read, imported, rejected and failed rows, with the reasons of the first rejections.
+     */
+    public ImportSummary importProducts(InputStream input, Format format) throws IOException {
+        ImportSummary summary = new ImportSummary();
+        long start = System.nanoTime();
+        List<Product> batch = new ArrayList<>(batchSize);
+        ObjectReader reader = format == Format.CSV ? csvReader : ndjsonReader;
+        try (MappingIterator<Product> rows = reader.readValues(input)) {
+            while (true) {
+                Product product;
+                try {
+                    if (!rows.hasNextValue())
+                        break;
+                    summary.setRead(summary.getRead() + 1);
+                    product = rows.nextValue();
+                } catch (JsonProcessingException e) {
+                    // A row of the wrong shape is skipped, the parser resumes on the next one
+                    reject(summary, e.getOriginalMessage());
+                    if (isUnrecoverable(e)) {
+                        summary.setAborted(true);
+                        break;
+                    }
+                    continue;
+                }
+
+                String invalid = validate(product);
+                if (invalid != null) {
+                    reject(summary, invalid);
+                    continue;
+                }
+                batch.add(new Product(product.getName(), product.getQuantity()));
+                if (batch.size() == batchSize) {
+                    write(batch, summary);
+                    batch = new ArrayList<>(batchSize);
+                }
+                if (summary.getRead() % PROGRESS_INTERVAL == 0)
+                    log.info("Import progress: {} rows read, {} imported, {} rows/s", summary.getRead(),
+                            summary.getImported(), rate(summary.getRead(), start));
+            }
+        }
+        if (!batch.isEmpty())
+            write(batch, summary);
+
+        summary.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        summary.setRowsPerSecond(rate(summary.getRead(), start));
+        log.info("Imported {} of {} rows ({} rejected, {} failed{}) in {} ms, {} rows/s", summary.getImported(),
+                summary.getRead(), summary.getRejected(), summary.getFailed(), summary.isAborted() ? ", aborted" : "",
+                summary.getElapsedMillis(), summary.getRowsPerSecond());
+        return summary;
+    }
+
+    /**
+     * Writes every product to the specified stream, as it is read from the database.
+     *
+     * @param output The stream to write to, it is closed at the end.
+     * @param format The format to write.
+     * @return The number of exported products.
+     */
+    public long exportProducts(OutputStream output, Format format) throws IOException {
+        long start = System.nanoTime();
+        AtomicLong count = new AtomicLong();
+        try (SequenceWriter rows = (format == Format.CSV ? csvWriter : ndjsonWriter).writeValues(output)) {
+            productService.streamAll(product -> {
+                try {
+                    rows.write(product);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                exportedRows.increment();
+                if (count.incrementAndGet() % PROGRESS_INTERVAL == 0)
+                    log.info("Export progress: {} rows written, {} rows/s", count.get(), rate(count.get(), start));
+            });
+            // Ends the last line too, the separator only goes between rows
+            if (format == Format.NDJSON && count.get() > 0) {
+                rows.flush();
+                output.write('\n');
+            }
+        }
+        log.info("Exported {} rows in {} ms, {} rows/s", count.get(), (System.nanoTime() - start) / 1_000_000,
+                rate(count.get(), start));
+        return count.get();
+    }
+
+    private void write(List<Product> batch, ImportSummary summary) {
+        for (BatchItemResult result : productService.saveAll(batch)) {
+            if (Objects.equals(result.getStatus(), HttpStatus.CREATED.value())) {
+                summary.setImported(summary.getImported() + 1);
+                importedRows.increment();
+            } else {
+                summary.setFailed(summary.getFailed() + 1);
+                failedRows.increment();
+            }
+        }
+    }
+
+    private void reject(ImportSummary summary, String message) {
+        summary.setRejected(summary.getRejected() + 1);
+        rejectedRows.increment();
+        if (summary.getErrors().size() < MAX_REPORTED_ERRORS)
+            summary.getErrors().add(new ImportSummary.RowError(summary.getRead(), message));
+    }
+
+    private static String validate(Product product) {
+        if (product == null)
+            return "Empty row";
+        if (product.getName() == null || product.getName().isBlank())
+            return "Missing name";
+        if (product.getName().length() > MAX_NAME_LENGTH)
+            return "Name longer than " + MAX_NAME_LENGTH + " characters";
+        if (product.getQuantity() == null)
+            return "Missing quantity";
+        return null;
+    }
+
+    /**
+     * Returns whether the parser can not resume after the specified error: a broken token, as opposed to
+     * a well formed row that does not map to a product.
+     */
+    private static boolean isUnrecoverable(JsonProcessingException e) {
+        return e instanceof JsonParseException;
+    }
+
+    private static double rate(long rows, long start) {
+        long elapsed = System.nanoTime() - start;
+        return elapsed > 0 ? Math.round(rows * 1e9 / elapsed * 10) / 10.0 : 0;
+    }
+
+    private static Counter rowCounter(MeterRegistry registry, String direction, String outcome) {
+        return Counter.builder("product.transfer.rows")
+                .description("Rows imported or exported in bulk")
+                .tag("direction", direction)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
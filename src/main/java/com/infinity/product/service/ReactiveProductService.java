@@ -0,0 +1,52 @@
+package com.infinity.product.service;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.WriteResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * @apiNote This is the non-blocking counterpart of ProductService, used by the reactive profile.
+ *
+ * */
+public interface ReactiveProductService {
+    /**
+     * Returns the product with specified ID.
+     *
+     * @param id The ID of the product to be retrieved.
+     * @return The requested product, or an empty Mono if it does not exist.
+     */
+    Mono<Product> findById(Integer id);
+
+    /**
+     * Returns all products in the database.
+     *
+     * @return All products in the database, streamed with backpressure.
+     */
+    Flux<Product> findAll();
+
+    /**
+     * Updates the specified product, identified with its ID, if its version still matches.
+     *
+     * @param product The product to update, carrying the version it was read with.
+     * @return SUCCESS if the update succeeded, NOT_FOUND if the product does not exist,
+     * or CONFLICT if the version does not match.
+     */
+    Mono<WriteResult> update(Product product);
+
+    /**
+     * Saves the specified product to the database.
+     *
+     * @param product The product to save to the database.
+     * @return The saved product.
+     */
+    Mono<Product> save(Product product);
+
+    /**
+     * Deletes the specified product, identified with its ID.
+     *
+     * @param id The id of the product to delete
+     * @return True if the Operation was successful, otherwise false.
+     */
+    Mono<Boolean> delete(Integer id);
+}
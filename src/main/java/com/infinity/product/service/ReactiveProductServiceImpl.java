@@ -0,0 +1,45 @@
+package com.infinity.product.service;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.WriteResult;
+import com.infinity.product.repository.ReactiveProductRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@Profile("reactive")
+public class ReactiveProductServiceImpl implements ReactiveProductService {
+    private final ReactiveProductRepository repository;
+
+    public ReactiveProductServiceImpl(ReactiveProductRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public Mono<Product> findById(Integer id) {
+        return repository.findById(id);
+    }
+
+    @Override
+    public Flux<Product> findAll() {
+        return repository.findAll();
+    }
+
+    @Override
+    public Mono<WriteResult> update(Product product) {
+        return repository.update(product);
+    }
+
+    @Override
+    public Mono<Product> save(Product product) {
+        product.setVersion(1);
+        return repository.save(product);
+    }
+
+    @Override
+    public Mono<Boolean> delete(Integer id) {
+        return repository.delete(id);
+    }
+}
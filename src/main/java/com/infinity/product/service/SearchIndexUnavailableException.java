@@ -0,0 +1,11 @@
+package com.infinity.product.service;
+
+/**
+ * Thrown when the product search index is not loaded yet, so that a search would miss products.
+ **/
+public class SearchIndexUnavailableException extends RuntimeException {
+
+    public SearchIndexUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,93 @@
+package com.infinity.product.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Shares one in-flight load among the concurrent callers of the same key: the first caller runs the load,
+ * the callers arriving while it runs wait for its result (or its exception) instead of loading again.
+ * Nothing is kept once the load completes, the next caller loads again.
+ * Callers only meet on the bin of their own key in a ConcurrentHashMap, so loads of different keys never contend.
+ * The result is handed to the waiting callers through the copier, so that none of them sees another's changes.
+ **/
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final UnaryOperator<V> copier;
+    private final Counter coalesced;
+
+    /**
+     * @param name     The name of the operation, the tag of the metrics.
+     * @param copier   Copies the result for each waiting caller.
+     * @param registry The registry of the metrics.
+     */
+    public SingleFlight(String name, UnaryOperator<V> copier, MeterRegistry registry) {
+        this.copier = copier;
+        this.coalesced = Counter.builder("product.singleflight.coalesced")
+                .description("Calls that waited for the load of a concurrent call instead of loading themselves")
+                .tag("operation", name)
+                .register(registry);
+        Gauge.builder("product.singleflight.inflight", inFlight, Map::size)
+                .description("Loads in progress")
+                .tag("operation", name)
+                .register(registry);
+    }
+
+    /**
+     * Returns the value of the specified key, joining the load of a concurrent caller if there is one.
+     *
+     * @param key    The key to load.
+     * @param loader Loads the value of the key, runs on the calling thread.
+     * @return The loaded value.
+     */
+    public V load(K key, Function<K, V> loader) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, load);
+        if (running != null) {
+            coalesced.increment();
+            return copier.apply(join(running));
+        }
+
+        try {
+            V value = loader.apply(key);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    /**
+     * Detaches the load in progress of the specified key, if any, so that later callers start their own.
+     * Called after a write, so that no caller arriving after it gets a value read before it.
+     *
+     * @param key The key that was written.
+     */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    private static <V> V join(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            // Rethrow what the loading caller got, so that all callers handle the same exception
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            if (e.getCause() instanceof Error cause)
+                throw cause;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.infinity.product.service;
+
+import com.infinity.product.config.ProductProperties;
+import com.infinity.product.repository.ProductRepository;
+import com.infinity.product.repository.ProductRepositoryBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accumulates stock adjustments in memory and applies them to the database in one batch per flush interval.
+ * Concurrent adjustments of a hot product only contend on its map entry in memory instead of on its database row,
+ * and N adjustments between two flushes cost a single UPDATE.
+ * A product is tracked from its first adjustment after a flush until the next flush, which removes its entry
+ * and writes the delta. Past the maximum number of tracked products, adjustments of new products are refused
+ * and the caller applies them directly, as it does for products that do not exist.
+ * A batch that fails for a reason other than the database being unavailable is retried one product at a time,
+ * so that one adjustment that can never be applied is dropped alone instead of blocking the others.
+ **/
+@Component
+@ConditionalOnProperty(prefix = "product.stock", name = "coalesce", havingValue = "true")
+@Profile("!reactive")
+@Slf4j
+public class StockAdjustmentAccumulator {
+
+    private final ProductRepository repository;
+    private final int maxTrackedProducts;
+    private final Map<Integer, Long> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final Counter coalesced;
+    private final Counter droppedMissing;
+    private final Counter droppedFailed;
+    private final Timer flushTimer;
+
+    public StockAdjustmentAccumulator(ProductRepository repository, ProductProperties properties,
+                                      MeterRegistry registry) {
+        this.repository = repository;
+        this.maxTrackedProducts = properties.getStock().getMaxTrackedProducts();
+        this.coalesced = Counter.builder("product.stock.coalesced")
+                .description("Stock adjustments accumulated in memory instead of applied directly")
+                .register(registry);
+        this.droppedMissing = droppedCounter(registry, "not_found");
+        this.droppedFailed = droppedCounter(registry, "failed");
+        this.flushTimer = Timer.builder("product.stock.flush")
+                .description("Time spent applying accumulated stock adjustments to the database")
+                .register(registry);
+        Gauge.builder("product.stock.tracked", pending, Map::size)
+                .description("Products whose stock adjustments are accumulated in memory")
+                .register(registry);
+
+        long interval = properties.getStock().getFlushInterval().toMillis();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Accumulates the specified adjustment until the next flush.
+     *
+     * @param id The id of the product to adjust.
+     * @param delta The amount to add to the quantity.
+     * @return true if the adjustment was accumulated, false if too many products are already tracked
+     * or the product does not exist.
+     */
+    public boolean add(Integer id, int delta) {
+        // Only the first adjustment of a product after a flush checks that it exists
+        if (!pending.containsKey(id)
+                && (pending.size() >= maxTrackedProducts || repository.findVersionById(id).isEmpty()))
+            return false;
+        // Atomic with the removal of the entry by flush, so an adjustment is either in the flushed delta or kept
+        pending.merge(id, (long) delta, Long::sum);
+        coalesced.increment();
+        return true;
+    }
+
+    /**
+     * Applies every accumulated adjustment to the database in one batch.
+     * Deltas that could not be written because the database was unavailable are put back to be retried at the next
+     * flush, as is the part of a delta beyond the range of an int; those failing for another reason are dropped.
+     * Never throws, so that the scheduled flushes keep running.
+     */
+    void flush() {
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (Integer id : pending.keySet()) {
+            Long delta = pending.remove(id);
+            if (delta == null || delta == 0)
+                continue;
+            int applied = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, delta));
+            deltas.put(id, applied);
+            if (applied != delta)
+                pending.merge(id, delta - applied, Long::sum);
+        }
+        if (deltas.isEmpty())
+            return;
+
+        try {
+            dropMissing(deltas, flushTimer.record(() -> repository.adjustQuantities(deltas)));
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                log.error("Unable to flush {} stock adjustments, retrying at next flush", deltas.size(), e);
+                deltas.forEach((id, delta) -> pending.merge(id, (long) delta, Long::sum));
+                return;
+            }
+            log.warn("Unable to flush {} stock adjustments in one batch, applying them one by one", deltas.size(), e);
+            deltas.forEach(this::flushOne);
+        }
+    }
+
+    private void flushOne(Integer id, Integer delta) {
+        try {
+            dropMissing(Map.of(id, delta), repository.adjustQuantities(Map.of(id, delta)));
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                pending.merge(id, (long) delta, Long::sum);
+            } else {
+                log.error("Dropped stock adjustment of {} for product {} that can not be applied", delta, id, e);
+                droppedFailed.increment();
+            }
+        }
+    }
+
+    private void dropMissing(Map<Integer, Integer> deltas, Map<Integer, Boolean> results) {
+        results.forEach((id, applied) -> {
+            if (!applied) {
+                log.warn("Dropped stock adjustment of {} for missing product {}", deltas.get(id), id);
+                droppedMissing.increment();
+            }
+        });
+    }
+
+    /**
+     * Returns whether the failure is likely to go away on its own, such as a busy or unreachable database,
+     * as opposed to one that a retry of the same adjustment would run into again.
+     */
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException || e instanceof ProductRepositoryBusyException;
+    }
+
+    private static Counter droppedCounter(MeterRegistry registry, String reason) {
+        return Counter.builder("product.stock.dropped")
+                .description("Accumulated stock adjustments dropped because they could not be applied")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+    }
+}
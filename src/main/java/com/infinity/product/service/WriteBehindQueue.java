@@ -0,0 +1,267 @@
+package com.infinity.product.service;
+
+import com.infinity.product.config.ProductProperties;
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.WriteResult;
+import com.infinity.product.domain.WriteTicket;
+import com.infinity.product.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bounded queue of product creations and updates, written to the database by a background flusher.
+ * The flusher drains up to a batch of writes at a time and applies the creations and the updates
+ * each with a single batched statement. When the queue is full, writers wait up to the offer timeout
+ * and are then rejected, which pushes back on clients instead of growing memory.
+ * Products are validated when they are queued, so that an invalid one is rejected alone instead of failing its batch.
+ * The tickets of queued writes are kept until they are written, and the outcome of the most recent writes
+ * after that, so that clients can poll them with their tracking id.
+ **/
+@Component
+@ConditionalOnProperty(prefix = "product.write-behind", name = "enabled", havingValue = "true")
+@Profile("!reactive")
+@Slf4j
+public class WriteBehindQueue {
+
+    private record PendingWrite(String trackingId, Product product, boolean create) {
+    }
+
+    // Length of the name column
+    private static final int MAX_NAME_LENGTH = 128;
+
+    private final ProductRepository repository;
+    private final BlockingQueue<PendingWrite> queue;
+    private final int maxBatchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    // Both guarded by pending: the tickets of the writes not flushed yet, never evicted, and the latest outcomes
+    private final Map<String, WriteTicket> pending = new HashMap<>();
+    private final Map<String, WriteTicket> results;
+    // Offers hold the read lock while they check running and queue, shutdown takes the write lock to stop,
+    // so that no write is queued once the flusher may have drained the queue for the last time
+    private final ReadWriteLock stopLock = new ReentrantReadWriteLock();
+    private final Thread flusher;
+    private final Counter rejections;
+    private final Timer flushTimer;
+    private volatile boolean running = true;
+
+    public WriteBehindQueue(ProductRepository repository, ProductProperties properties, MeterRegistry registry) {
+        ProductProperties.WriteBehind settings = properties.getWriteBehind();
+        this.repository = repository;
+        this.queue = new ArrayBlockingQueue<>(settings.getCapacity());
+        this.maxBatchSize = settings.getMaxBatchSize();
+        this.flushIntervalMillis = settings.getFlushInterval().toMillis();
+        this.offerTimeoutMillis = settings.getOfferTimeout().toMillis();
+        int retainedTickets = settings.getRetainedResults();
+        this.results = new LinkedHashMap<>(16, 0.75f) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, WriteTicket> eldest) {
+                return size() > retainedTickets;
+            }
+        };
+        this.rejections = Counter.builder("product.writebehind.rejections")
+                .description("Writes rejected because the write-behind queue was full")
+                .register(registry);
+        this.flushTimer = Timer.builder("product.writebehind.flush")
+                .description("Time spent writing one batch of queued writes to the database")
+                .register(registry);
+        Gauge.builder("product.writebehind.depth", queue, BlockingQueue::size)
+                .description("Writes waiting in the write-behind queue")
+                .register(registry);
+
+        this.flusher = new Thread(this::run, "write-behind-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queues the creation of the specified product.
+     *
+     * @param product The product to create.
+     * @return The ticket to track the write with.
+     * @throws IllegalArgumentException if the product has no name, a name too long, or no quantity.
+     * @throws WriteQueueFullException if the queue stays full for longer than the offer timeout.
+     */
+    public WriteTicket save(Product product) {
+        return offer(product, true);
+    }
+
+    /**
+     * Queues the update of the specified product, carrying the version it was read with.
+     *
+     * @param product The product to update.
+     * @return The ticket to track the write with.
+     * @throws IllegalArgumentException if the product has no id, no version, no name, a name too long, or no quantity.
+     * @throws WriteQueueFullException if the queue stays full for longer than the offer timeout.
+     */
+    public WriteTicket update(Product product) {
+        if (product.getId() == null || product.getVersion() == null)
+            throw new IllegalArgumentException("A queued update needs the id and version of the product");
+        return offer(product, false);
+    }
+
+    /**
+     * Returns the outcome so far of the write with the specified tracking id.
+     *
+     * @param trackingId The tracking id returned when the write was queued.
+     * @return The ticket, or empty if the id is unknown or its outcome is no longer retained.
+     */
+    public Optional<WriteTicket> find(String trackingId) {
+        synchronized (pending) {
+            WriteTicket ticket = pending.get(trackingId);
+            if (ticket == null)
+                ticket = results.get(trackingId);
+            return Optional.ofNullable(ticket).map(WriteBehindQueue::copy);
+        }
+    }
+
+    private WriteTicket offer(Product product, boolean create) {
+        if (product.getName() == null || product.getName().length() > MAX_NAME_LENGTH || product.getQuantity() == null)
+            throw new IllegalArgumentException("A queued write needs a name of at most " + MAX_NAME_LENGTH
+                    + " characters and a quantity");
+
+        String trackingId = UUID.randomUUID().toString();
+        WriteTicket ticket = new WriteTicket(trackingId, WriteTicket.State.PENDING, product.getId(), null);
+        stopLock.readLock().lock();
+        try {
+            if (!running)
+                throw new WriteQueueFullException("The write-behind queue is shutting down");
+            synchronized (pending) {
+                pending.put(trackingId, ticket);
+            }
+            if (queue.offer(new PendingWrite(trackingId, product, create), offerTimeoutMillis, TimeUnit.MILLISECONDS))
+                return copy(ticket);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stopLock.readLock().unlock();
+        }
+        synchronized (pending) {
+            pending.remove(trackingId);
+        }
+        rejections.increment();
+        throw new WriteQueueFullException("The write-behind queue is full");
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                flushTimer.record(() -> flush(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Unexpected failure of the write-behind flusher", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        List<PendingWrite> creations = new ArrayList<>();
+        List<PendingWrite> updates = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            (write.create() ? creations : updates).add(write);
+        }
+
+        if (!creations.isEmpty()) {
+            try {
+                List<Product> saved = repository.saveAll(creations.stream().map(PendingWrite::product).toList());
+                for (int i = 0; i < creations.size(); i++) {
+                    Product product = saved.get(i);
+                    record(new WriteTicket(creations.get(i).trackingId(), WriteTicket.State.APPLIED,
+                            product.getId(), product.getVersion()));
+                }
+            } catch (RuntimeException e) {
+                log.error("Unable to write {} queued creations", creations.size(), e);
+                creations.forEach(this::fail);
+            }
+        }
+
+        if (!updates.isEmpty()) {
+            try {
+                List<Product> products = updates.stream().map(PendingWrite::product).toList();
+                List<WriteResult> results = repository.updateAll(products);
+                for (int i = 0; i < updates.size(); i++) {
+                    Product product = products.get(i);
+                    record(switch (results.get(i)) {
+                        case SUCCESS, ACCEPTED -> new WriteTicket(updates.get(i).trackingId(),
+                                WriteTicket.State.APPLIED, product.getId(), product.getVersion());
+                        case CONFLICT -> new WriteTicket(updates.get(i).trackingId(),
+                                WriteTicket.State.CONFLICT, product.getId(), null);
+                        case NOT_FOUND -> new WriteTicket(updates.get(i).trackingId(),
+                                WriteTicket.State.NOT_FOUND, product.getId(), null);
+                    });
+                }
+            } catch (RuntimeException e) {
+                log.error("Unable to write {} queued updates", updates.size(), e);
+                updates.forEach(this::fail);
+            }
+        }
+    }
+
+    private void fail(PendingWrite write) {
+        record(new WriteTicket(write.trackingId(), WriteTicket.State.FAILED, write.product().getId(), null));
+    }
+
+    private void record(WriteTicket ticket) {
+        synchronized (pending) {
+            pending.remove(ticket.getTrackingId());
+            results.put(ticket.getTrackingId(), ticket);
+        }
+    }
+
+    private static WriteTicket copy(WriteTicket ticket) {
+        return new WriteTicket(ticket.getTrackingId(), ticket.getState(), ticket.getId(), ticket.getVersion());
+    }
+
+    /**
+     * Stops accepting writes and waits for the flusher to write everything still queued.
+     * The writes it could not flush in time are failed, so that no ticket stays pending.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Waits for the offers in progress, so that everything queued is seen by the flusher after it stops
+        stopLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stopLock.writeLock().unlock();
+        }
+        // The flusher polls with the flush interval as timeout, so it notices quickly and drains the queue
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        List<PendingWrite> unflushed = new ArrayList<>();
+        queue.drainTo(unflushed);
+        if (!unflushed.isEmpty()) {
+            log.warn("{} queued writes were not flushed before shutdown", unflushed.size());
+            unflushed.forEach(this::fail);
+        }
+    }
+}
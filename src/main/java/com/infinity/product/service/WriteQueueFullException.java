@@ -0,0 +1,11 @@
+package com.infinity.product.service;
+
+/**
+ * Thrown when the write-behind queue stays full for longer than the configured offer timeout.
+ **/
+public class WriteQueueFullException extends RuntimeException {
+
+    public WriteQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -6,3 +6,31 @@ CREATE TABLE IF NOT EXISTS products(
     version INTEGER NOT NULL,
     PRIMARY KEY(id)
 );
+
+-- Supports name prefix filters and sorting by name, substring filters still scan
+CREATE INDEX IF NOT EXISTS idx_products_name ON products(name);
+-- Supports quantity range filters and sorting by quantity
+CREATE INDEX IF NOT EXISTS idx_products_quantity ON products(quantity);
+
+-- Change feed: one row per committed write, in sequence order, written in the same transaction as the write
+CREATE TABLE IF NOT EXISTS product_changes(
+    seq BIGINT NOT NULL AUTO_INCREMENT,
+    product_id INTEGER NOT NULL,
+    operation VARCHAR2(8) NOT NULL,
+    name VARCHAR2(128),
+    quantity INTEGER,
+    version INTEGER,
+    changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    PRIMARY KEY(seq)
+);
+
+-- Supports pruning the changes older than the retention
+CREATE INDEX IF NOT EXISTS idx_product_changes_changed_at ON product_changes(changed_at);
+
+-- Single row locked by each write from the time it records its changes until it commits, so that sequence
+-- numbers become visible in order and readers of the feed never skip a change committed late
+CREATE TABLE IF NOT EXISTS product_change_lock(
+    id INTEGER NOT NULL,
+    PRIMARY KEY(id)
+);
+MERGE INTO product_change_lock KEY(id) VALUES (1);
@@ -0,0 +1,77 @@
+package com.infinity.product;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.repository.BulkheadProductRepository;
+import com.infinity.product.repository.ProductRepository;
+import com.infinity.product.repository.ProductRepositoryBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+public class BulkheadProductRepositoryTest {
+
+    ProductRepository delegate;
+    SimpleMeterRegistry registry;
+    BulkheadProductRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ProductRepository.class);
+        registry = new SimpleMeterRegistry();
+        // A single permit, so that one call in progress exhausts the bulkhead
+        repository = new BulkheadProductRepository(delegate, 1, Duration.ofMillis(50), registry);
+    }
+
+    @Test
+    @DisplayName("a call that gets no permit within the maximum wait is rejected as busy")
+    void permitsExhaustedTest() throws Exception {
+        // Setup our mock to hold the permit until the test lets it go
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return Optional.of(new Product(1, "Product name", 10, 1));
+        }).when(delegate).findById(1);
+        doReturn(Optional.empty()).when(delegate).findById(2);
+
+        // execute a call holding the permit, then another one
+        CompletableFuture<Optional<Product>> holder = CompletableFuture.supplyAsync(() -> repository.findById(1));
+        started.await();
+
+        // assert the second call is rejected and counted, and goes through once the permit is released
+        assertThrows(ProductRepositoryBusyException.class, () -> repository.findById(2));
+        assertEquals(1.0, registry.get("product.repository.bulkhead.rejections").counter().count());
+        assertEquals(0.0, registry.get("product.repository.bulkhead.available").gauge().value());
+        release.countDown();
+        assertTrue(holder.get().isPresent());
+        assertEquals(Optional.empty(), repository.findById(2));
+    }
+
+    @Test
+    @DisplayName("the permit is released when the delegate throws")
+    void permitReleasedOnExceptionTest() {
+        // Setup our mock
+        doThrow(new IllegalStateException("broken")).when(delegate).findById(1);
+
+        // execute failing calls, more of them than there are permits
+        assertThrows(IllegalStateException.class, () -> repository.findById(1));
+        assertThrows(IllegalStateException.class, () -> repository.findById(1));
+
+        // assert the failures were not taken for rejections and the permit is back
+        assertEquals(0.0, registry.get("product.repository.bulkhead.rejections").counter().count());
+        assertEquals(1.0, registry.get("product.repository.bulkhead.available").gauge().value());
+    }
+}
@@ -0,0 +1,153 @@
+package com.infinity.product;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.WriteResult;
+import com.infinity.product.repository.CachingProductRepository;
+import com.infinity.product.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CachingProductRepositoryTest {
+
+    ProductRepository delegate;
+    CachingProductRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ProductRepository.class);
+        repository = new CachingProductRepository(delegate, 2, Duration.ofMinutes(1));
+    }
+
+    @Test
+    @DisplayName("findById is served from the cache after the first load")
+    void findByIdHitTest() {
+        // Setup our mock
+        doReturn(Optional.of(new Product(1, "Product name", 10, 1))).when(delegate).findById(1);
+
+        // execute the repository calls
+        repository.findById(1);
+        Optional<Product> returnedProduct = repository.findById(1);
+
+        // assert the response
+        assertTrue(returnedProduct.isPresent(), "Product was not found");
+        assertEquals("Product name", returnedProduct.get().getName());
+        verify(delegate, times(1)).findById(1);
+        assertEquals(1, repository.getHitCount());
+        assertEquals(1, repository.getMissCount());
+    }
+
+    @Test
+    @DisplayName("update refreshes the cached product with the new version")
+    void updateRefreshesEntryTest() {
+        // Setup our mock
+        doReturn(Optional.of(new Product(1, "Product name", 10, 1))).when(delegate).findById(1);
+        doAnswer(invocation -> {
+            // the repository increments the version of an updated product
+            Product product = invocation.getArgument(0);
+            product.setVersion(product.getVersion() + 1);
+            return WriteResult.SUCCESS;
+        }).when(delegate).update(any());
+        repository.findById(1);
+
+        // execute the update of version 1
+        repository.update(new Product(1, "New name", 5, 1));
+
+        // assert the cached product is the updated one
+        Product cached = repository.findById(1).orElseThrow();
+        assertEquals("New name", cached.getName());
+        assertEquals(2, cached.getVersion().intValue());
+        verify(delegate, times(1)).findById(1);
+    }
+
+    @Test
+    @DisplayName("a cached product is never replaced by an older version")
+    void olderVersionIsIgnoredTest() {
+        // Setup our mock, the product is already cached at version 2
+        doReturn(Optional.of(new Product(1, "New name", 5, 2))).when(delegate).findById(1);
+        repository.findById(1);
+
+        // a stale save of version 1 must not win over version 2
+        doReturn(new Product(1, "Old name", 10, 1)).when(delegate).save(any());
+        repository.save(new Product("Old name", 10));
+
+        // assert the newer version is served
+        assertEquals(2, repository.findById(1).orElseThrow().getVersion().intValue());
+    }
+
+    @Test
+    @DisplayName("a load that started before a stock adjustment does not cache what it read")
+    void loadRacingAdjustmentTest() {
+        // Setup our mock, the adjustment commits while the first load is in flight
+        doAnswer(invocation -> {
+            repository.adjustQuantity(1, 5, false);
+            return Optional.of(new Product(1, "Product name", 10, 1));
+        }).doReturn(Optional.of(new Product(1, "Product name", 15, 2))).when(delegate).findById(1);
+        doReturn(WriteResult.SUCCESS).when(delegate).adjustQuantity(1, 5, false);
+
+        // execute the racing load, then two more
+        repository.findById(1);
+        Product reloaded = repository.findById(1).orElseThrow();
+        repository.findById(1);
+
+        // assert the stale load was not cached, and the next one was
+        assertEquals(15, reloaded.getQuantity().intValue());
+        verify(delegate, times(2)).findById(1);
+    }
+
+    @Test
+    @DisplayName("delete is remembered so the product is not found afterwards")
+    void deleteTest() {
+        // Setup our mock
+        doReturn(Optional.of(new Product(1, "Product name", 10, 1))).when(delegate).findById(1);
+        doReturn(Boolean.TRUE).when(delegate).delete(1);
+        repository.findById(1);
+
+        // execute the delete
+        repository.delete(1);
+
+        // assert the response
+        assertFalse(repository.findById(1).isPresent(), "Product was found, when it shouldn't be");
+        verify(delegate, times(1)).findById(1);
+    }
+
+    @Test
+    @DisplayName("the least recently used product is evicted when the cache is full")
+    void evictionTest() {
+        // Setup our mock
+        for (int id = 1; id <= 3; id++) {
+            doReturn(Optional.of(new Product(id, "Product name " + id, 10, 1))).when(delegate).findById(id);
+        }
+
+        // load three products into a cache of two
+        repository.findById(1);
+        repository.findById(2);
+        repository.findById(3);
+
+        // assert the response
+        assertEquals(2, repository.size());
+        assertEquals(1, repository.getEvictionCount());
+        repository.findById(1);
+        verify(delegate, times(2)).findById(1);
+    }
+
+    @Test
+    @DisplayName("returned products are copies of the cached ones")
+    void returnsCopiesTest() {
+        // Setup our mock
+        doReturn(Optional.of(new Product(1, "Product name", 10, 1))).when(delegate).findById(1);
+        repository.findById(1);
+
+        // mutate the returned product
+        repository.findById(1).orElseThrow().setName("Changed");
+
+        // assert the cached product is unchanged
+        assertEquals("Product name", repository.findById(1).orElseThrow().getName());
+    }
+}
@@ -0,0 +1,151 @@
+package com.infinity.product;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.domain.WriteResult;
+import com.infinity.product.repository.InMemoryProductRepository;
+import com.infinity.product.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class InMemoryProductRepositoryTest {
+
+    ProductRepository delegate;
+    InMemoryProductRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ProductRepository.class);
+        // Setup our mock, the catalog loaded at startup
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(0);
+            consumer.accept(new Product(1, "Product name 1", 10, 1));
+            consumer.accept(new Product(2, "Produit n°2", 20, 3));
+            return null;
+        }).when(delegate).streamAll(any());
+        repository = new InMemoryProductRepository(delegate);
+    }
+
+    @Test
+    @DisplayName("the catalog is loaded at startup and served from memory")
+    void findByIdTest() {
+        // execute the repository calls
+        Optional<Product> first = repository.findById(1);
+        Optional<Product> second = repository.findById(2);
+
+        // assert the response
+        assertEquals(new Product(1, "Product name 1", 10, 1), first.orElseThrow());
+        assertEquals(new Product(2, "Produit n°2", 20, 3), second.orElseThrow());
+        assertFalse(repository.findById(3).isPresent(), "Product was found, when it shouldn't be");
+        assertEquals(Optional.of(3), repository.findVersionById(2));
+        assertEquals(2, repository.size());
+        verify(delegate, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("findAll and streamAll return the products in id order")
+    void findAllTest() {
+        // execute the repository calls
+        List<Product> all = repository.findAll();
+        List<Product> streamed = new ArrayList<>();
+        repository.streamAll(streamed::add);
+
+        // assert the response
+        assertEquals(List.of(1, 2), all.stream().map(Product::getId).toList());
+        assertEquals(all, streamed);
+    }
+
+    @Test
+    @DisplayName("pages in id order are served from memory, filtered queries by the delegate")
+    void findTest() {
+        // Setup our mock
+        ProductQuery filtered = new ProductQuery();
+        filtered.setNamePrefix("Product");
+        doReturn(List.of(new Product(1, "Product name 1", 10, 1))).when(delegate).find(filtered);
+        ProductQuery descending = new ProductQuery(2, 10);
+        descending.setOrder("desc");
+
+        // execute the repository calls
+        List<Product> firstPage = repository.find(new ProductQuery(null, 1));
+        List<Product> secondPage = repository.find(new ProductQuery(1, 1));
+        List<Product> descendingPage = repository.find(descending);
+        repository.find(filtered);
+
+        // assert the response
+        assertEquals(List.of(1), firstPage.stream().map(Product::getId).toList());
+        assertEquals(List.of(2), secondPage.stream().map(Product::getId).toList());
+        assertEquals(List.of(1), descendingPage.stream().map(Product::getId).toList());
+        verify(delegate, times(1)).find(any());
+    }
+
+    @Test
+    @DisplayName("writes are applied to memory after the delegate succeeded")
+    void writesTest() {
+        // Setup our mock
+        doAnswer(invocation -> {
+            Product product = invocation.getArgument(0);
+            product.setVersion(product.getVersion() + 1);
+            return WriteResult.SUCCESS;
+        }).when(delegate).update(any());
+        doReturn(new Product(5000, "New product", 1, 1)).when(delegate).save(any());
+        doReturn(true).when(delegate).delete(2);
+
+        // execute the writes
+        repository.update(new Product(1, "Renamed product", 5, 1));
+        repository.save(new Product("New product", 1));
+        repository.delete(2);
+
+        // assert the response
+        assertEquals(new Product(1, "Renamed product", 5, 2), repository.findById(1).orElseThrow());
+        assertEquals(new Product(5000, "New product", 1, 1), repository.findById(5000).orElseThrow());
+        assertFalse(repository.findById(2).isPresent(), "Deleted product was found");
+        assertEquals(2, repository.size());
+    }
+
+    @Test
+    @DisplayName("a deleted product is never resurrected by a late write")
+    void deletedIsNotResurrectedTest() {
+        // Setup our mock
+        doReturn(true).when(delegate).delete(1);
+        doReturn(List.of(new Product(1, "Product name 1", 10, 2))).when(delegate).saveAll(any());
+
+        // execute the delete, then a stale write of the same product
+        repository.delete(1);
+        repository.saveAll(List.of(new Product("Product name 1", 10)));
+
+        // assert the product stays deleted
+        assertFalse(repository.findById(1).isPresent(), "Deleted product was found");
+    }
+
+    @Test
+    @DisplayName("names survive the compaction of the arena")
+    void compactionTest() {
+        // Setup our mock
+        doAnswer(invocation -> {
+            Product product = invocation.getArgument(0);
+            product.setVersion(product.getVersion() + 1);
+            return WriteResult.SUCCESS;
+        }).when(delegate).update(any());
+
+        // execute enough renames to fill the arena with replaced names
+        int version = 1;
+        for (int i = 0; i < 5000; i++) {
+            repository.update(new Product(1, "Renamed product " + i, 10, version++));
+        }
+
+        // assert the response
+        assertEquals("Renamed product 4999", repository.findById(1).orElseThrow().getName());
+        assertEquals("Produit n°2", repository.findById(2).orElseThrow().getName());
+        assertTrue(repository.getMemoryBytes() < 64 * 1024, "The arena was not compacted");
+    }
+}
@@ -0,0 +1,75 @@
+package com.infinity.product;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.WriteResult;
+import com.infinity.product.repository.MeteredProductRepository;
+import com.infinity.product.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+public class MeteredProductRepositoryTest {
+
+    ProductRepository delegate;
+    SimpleMeterRegistry registry;
+    MeteredProductRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ProductRepository.class);
+        registry = new SimpleMeterRegistry();
+        repository = new MeteredProductRepository(delegate, registry);
+    }
+
+    @Test
+    @DisplayName("operations are timed and not found outcomes are counted")
+    void findByIdTest() {
+        // Setup our mock
+        doReturn(Optional.empty()).when(delegate).findById(1);
+
+        // execute the repository call
+        repository.findById(1);
+
+        // assert the recorded metrics
+        assertEquals(1, registry.get("product.repository").tag("operation", "findById").timer().count());
+        assertEquals(1.0, registry.get("product.repository.outcomes")
+                .tag("operation", "findById").tag("outcome", "not_found").counter().count());
+    }
+
+    @Test
+    @DisplayName("conflicting updates are counted")
+    void updateConflictTest() {
+        // Setup our mock
+        doReturn(WriteResult.CONFLICT).when(delegate).update(any());
+
+        // execute the repository call
+        repository.update(new Product(1, "Product name", 10, 1));
+
+        // assert the recorded metrics
+        assertEquals(1.0, registry.get("product.repository.outcomes")
+                .tag("operation", "update").tag("outcome", "conflict").counter().count());
+    }
+
+    @Test
+    @DisplayName("rows returned by findAll are recorded")
+    void findAllRowsTest() {
+        // Setup our mock
+        doReturn(Arrays.asList(new Product(1, "Product name 1", 10, 1), new Product(2, "Product name 2", 10, 1)))
+                .when(delegate).findAll();
+
+        // execute the repository call
+        repository.findAll();
+
+        // assert the recorded metrics
+        assertEquals(2.0, registry.get("product.repository.rows").tag("operation", "findAll").summary().totalAmount());
+    }
+}
@@ -0,0 +1,110 @@
+package com.infinity.product;
+
+import com.infinity.product.domain.ProductChange;
+import com.infinity.product.repository.ProductChangedEvent;
+import com.infinity.product.service.ProductChangeFeed;
+import com.infinity.product.service.ProductService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ProductChangeControllerTest {
+    @MockBean
+    ProductService service;
+
+    @Autowired
+    ProductChangeFeed changeFeed;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    @DisplayName("GET /products/changes - Pending changes are returned at once")
+    void getChangesTest() throws Exception {
+        // Set up our mocked service
+        ProductChange change = new ProductChange(6L, 1, ProductChange.Operation.UPSERT, "Product Name", 10, 2);
+        doReturn(List.of(change)).when(service).findChanges("5", 100);
+
+        // Execute the GET request
+        MvcResult result = mockMvc.perform(get("/products/changes").param("since", "5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Validate the response code and content
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].seq", is(6)))
+                .andExpect(jsonPath("$[0].position", is("6")))
+                .andExpect(jsonPath("$[0].operation", is("UPSERT")));
+    }
+
+    @Test
+    @DisplayName("GET /products/changes - Long poll is answered by the next change")
+    void getChangesLongPollTest() throws Exception {
+        // Set up our mocked service, nothing changed yet at the first read
+        ProductChange change = new ProductChange(8L, 1, ProductChange.Operation.DELETE, null, null, null);
+        doReturn(Collections.emptyList(), List.of(change)).when(service).findChanges("7", 100);
+
+        // Execute the GET request, then commit a change
+        MvcResult result = mockMvc.perform(get("/products/changes").param("since", "7"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        changeFeed.onProductChanged(new ProductChangedEvent(List.of(1)));
+
+        // Validate the response code and content
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].seq", is(8)))
+                .andExpect(jsonPath("$[0].operation", is("DELETE")));
+    }
+
+    @Test
+    @DisplayName("GET /products/changes - Unknown position")
+    void getChangesUnknownPositionTest() throws Exception {
+        // Set up our mocked service
+        doThrow(new IllegalArgumentException("Change feed position must not be negative: -1"))
+                .when(service).findChanges("-1", 100);
+
+        // Execute the GET request
+        MvcResult result = mockMvc.perform(get("/products/changes").param("since", "-1")).andReturn();
+
+        // Validate the response code
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /products/changes - Invalid limit")
+    void getChangesBadRequestTest() throws Exception {
+        // Execute the GET request
+        MvcResult result = mockMvc.perform(get("/products/changes").param("limit", "0")).andReturn();
+
+        // Validate the response code
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest());
+    }
+}
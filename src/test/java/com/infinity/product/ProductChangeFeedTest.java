@@ -0,0 +1,140 @@
+package com.infinity.product;
+
+import com.infinity.product.config.ProductProperties;
+import com.infinity.product.domain.ProductChange;
+import com.infinity.product.repository.ProductChangedEvent;
+import com.infinity.product.repository.ProductRepository;
+import com.infinity.product.service.ProductChangeFeed;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class ProductChangeFeedTest {
+
+    ProductRepository repository;
+    ProductProperties properties;
+    List<ProductChange> committed;
+    ProductChangeFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        // Setup our mock, reading the changes committed so far after the position
+        repository = mock(ProductRepository.class);
+        committed = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            long since = Long.parseLong(invocation.getArgument(0));
+            int limit = invocation.getArgument(1);
+            return committed.stream().filter(change -> change.getSeq() > since).limit(limit).toList();
+        }).when(repository).findChanges(anyString(), anyInt());
+
+        properties = new ProductProperties();
+        properties.getChanges().setSubscriberBuffer(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.shutdown();
+    }
+
+    @Test
+    @DisplayName("a stalled subscriber neither holds back the others nor the long polls, and is dropped once behind")
+    void stalledSubscriberTest() throws Exception {
+        // Setup a subscriber stalled on its first change and another one collecting them
+        feed = new ProductChangeFeed(repository, properties);
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> slowSent = new CopyOnWriteArrayList<>();
+        CompletableFuture<Exception> slowClosed = new CompletableFuture<>();
+        feed.subscribe("0", subscriber(change -> {
+            stalled.countDown();
+            release.await();
+            slowSent.add(change.getSeq());
+        }, slowClosed));
+        List<Long> fastSent = new CopyOnWriteArrayList<>();
+        CompletableFuture<Exception> fastClosed = new CompletableFuture<>();
+        feed.subscribe("0", subscriber(change -> fastSent.add(change.getSeq()), fastClosed));
+
+        // execute changes one by one, more of them than the buffer holds, and long polls in between
+        commit(1);
+        assertTrue(stalled.await(5, TimeUnit.SECONDS));
+        for (long seq = 2; seq <= 5; seq++) {
+            CompletableFuture<Void> nextChange = feed.nextChange();
+            commit(seq);
+            nextChange.get(5, TimeUnit.SECONDS);
+            awaitSent(fastSent, seq);
+        }
+
+        // assert the other subscriber received every change while the first one was stalled
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), fastSent);
+        assertFalse(fastClosed.isDone());
+
+        // assert the stalled subscriber is dropped without an error once released, so that it reconnects
+        release.countDown();
+        assertNull(slowClosed.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1L), slowSent);
+    }
+
+    @Test
+    @DisplayName("a subscriber from an unknown position is closed with the error")
+    void unknownPositionTest() throws Exception {
+        // Setup our mock
+        doAnswer(invocation -> {
+            throw new IllegalArgumentException("Change feed position must not be negative: -1");
+        }).when(repository).findChanges("-1", 1000);
+        feed = new ProductChangeFeed(repository, properties);
+
+        // execute the subscription
+        CompletableFuture<Exception> closed = new CompletableFuture<>();
+        feed.subscribe("-1", subscriber(change -> fail("No change expected"), closed));
+
+        // assert the error
+        assertInstanceOf(IllegalArgumentException.class, closed.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void awaitSent(List<Long> sent, long seq) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!sent.contains(seq) && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+        assertTrue(sent.contains(seq), "Change " + seq + " was not sent");
+    }
+
+    private void commit(long seq) {
+        committed.add(new ProductChange(seq, 1, ProductChange.Operation.UPSERT, "Product name", (int) seq, (int) seq));
+        feed.onProductChanged(new ProductChangedEvent(List.of(1)));
+    }
+
+    private interface Sender {
+        void send(ProductChange change) throws Exception;
+    }
+
+    private static ProductChangeFeed.Subscriber subscriber(Sender sender, CompletableFuture<Exception> closed) {
+        return new ProductChangeFeed.Subscriber() {
+            @Override
+            public void send(ProductChange change) {
+                try {
+                    sender.send(change);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public void close(Exception error) {
+                closed.complete(error);
+            }
+        };
+    }
+}
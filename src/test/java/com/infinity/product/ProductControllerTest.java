@@ -1,7 +1,16 @@
 package com.infinity.product;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.infinity.product.domain.Product;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.domain.StockAdjustment;
+import com.infinity.product.domain.WriteResult;
+import com.infinity.product.domain.WriteTicket;
+import com.infinity.product.repository.UnknownCursorException;
 import com.infinity.product.service.ProductService;
+import com.infinity.product.service.SearchIndexUnavailableException;
 import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import org.junit.jupiter.api.DisplayName;
@@ -14,15 +23,25 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static com.infinity.product.TestUtils.asJsonString;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
@@ -49,7 +68,7 @@ public class ProductControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 // Validate the header
-                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"1\""))
                 .andExpect(header().string(HttpHeaders.LOCATION, "/product/1"))
                 // Validate the returned fields
                 .andExpect(jsonPath("$.id", is(1)))
@@ -58,6 +77,57 @@ public class ProductControllerTest {
                 .andExpect(jsonPath("$.version", is(1)));
     }
 
+    @Test
+    @DisplayName("GET /product/1 - Not Modified")
+    void getProductByIdNotModifiedTest() throws Exception {
+        // Set up our mocked service, the client already has version 2
+        doReturn(Optional.of(2)).when(service).findVersionById(1);
+
+        // Execute The conditional GET request
+        mockMvc.perform(get("/product/{id}", 1).header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+
+                // Validate that only the version was looked up and no body is returned
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"2\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(content().string(""));
+        verify(service, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("GET /product/1 - Modified")
+    void getProductByIdModifiedTest() throws Exception {
+        // Set up our mocked service, the client has an older version
+        Product mockProduct = new Product(1, "Product Name", 10, 3);
+        doReturn(Optional.of(3)).when(service).findVersionById(1);
+        doReturn(Optional.of(mockProduct)).when(service).findById(1);
+
+        // Execute The conditional GET request
+        mockMvc.perform(get("/product/{id}", 1).header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+
+                // Validate the full product is returned with its current version
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"3\""))
+                .andExpect(jsonPath("$.version", is(3)));
+    }
+
+    @Test
+    @DisplayName("GET /products - Not Modified")
+    void getProductsNotModifiedTest() throws Exception {
+        // Set up our mocked service
+        Product mockProduct = new Product(1, "Product Name 1", 10, 1);
+        doReturn(Arrays.asList(mockProduct)).when(service).find(any());
+
+        // Execute a first request to get the content ETag
+        String eTag = mockMvc.perform(get("/products"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Execute the conditional GET request with it
+        mockMvc.perform(get("/products").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     @DisplayName("GET /product/1 - NotFound")
     void getProductByIdNotFoundTest() throws Exception {
@@ -72,6 +142,229 @@ public class ProductControllerTest {
 
     }
 
+    @Test
+    @DisplayName("GET /products - Full Page")
+    void getProductsFullPageTest() throws Exception {
+        // Set up our mocked service
+        Product mockProduct1 = new Product(1, "Product Name 1", 10, 1);
+        Product mockProduct2 = new Product(2, "Product Name 2", 10, 1);
+        doReturn(Arrays.asList(mockProduct1, mockProduct2)).when(service).find(any());
+
+        // Execute the GET request
+        mockMvc.perform(get("/products").param("limit", "2"))
+
+                // Validate the response code and content
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+
+                // Validate the link to the next page
+                .andExpect(header().string(HttpHeaders.LINK, "</products?limit=2&after=2>; rel=\"next\""))
+
+                // Validate the returned fields
+                .andExpect(jsonPath("$[0].id", is(1)))
+                .andExpect(jsonPath("$[1].id", is(2)));
+    }
+
+    @Test
+    @DisplayName("GET /products - Next Page Keeps The Query")
+    void getProductsNextPageQueryTest() throws Exception {
+        // Set up our mocked service
+        Product mockProduct1 = new Product(4, null, 10, null);
+        Product mockProduct2 = new Product(2, null, 20, null);
+        doReturn(Arrays.asList(mockProduct1, mockProduct2)).when(service).find(any());
+
+        // Execute the GET request
+        mockMvc.perform(get("/products").param("limit", "2").param("namePrefix", "Red")
+                        .param("sort", "quantity").param("fields", "quantity"))
+
+                // Validate the response code
+                .andExpect(status().isOk())
+
+                // Validate the link to the next page
+                .andExpect(header().string(HttpHeaders.LINK,
+                        "</products?limit=2&namePrefix=Red&sort=quantity&fields=quantity&after=2>; rel=\"next\""));
+    }
+
+    @Test
+    @DisplayName("GET /products - Last Page")
+    void getProductsLastPageTest() throws Exception {
+        // Set up our mocked service
+        Product mockProduct = new Product(3, "Product Name 3", 10, 1);
+        doReturn(Arrays.asList(mockProduct)).when(service).find(new ProductQuery(2, 2));
+
+        // Execute the GET request
+        mockMvc.perform(get("/products").param("after", "2").param("limit", "2"))
+
+                // Validate that there is no next page
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LINK))
+                .andExpect(jsonPath("$[0].id", is(3)));
+    }
+
+    @Test
+    @DisplayName("GET /products/search - Found")
+    void searchProductsTest() throws Exception {
+        // Set up our mocked service
+        doReturn(Arrays.asList(new Product(1, "Blue shirt", null, null))).when(service).search("blue sh", 0, 20);
+
+        // Execute the GET request
+        mockMvc.perform(get("/products/search").param("q", "blue sh"))
+
+                // Validate the response code and content
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(1)))
+                .andExpect(jsonPath("$[0].name", is("Blue shirt")));
+    }
+
+    @Test
+    @DisplayName("GET /products/search - Index Loading")
+    void searchProductsUnavailableTest() throws Exception {
+        // Set up our mocked service, whose index is not loaded yet
+        doThrow(new SearchIndexUnavailableException("loading")).when(service).search("blue", 0, 20);
+
+        // Execute the GET request and validate that we get a 503 with Retry-After
+        mockMvc.perform(get("/products/search").param("q", "blue"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"));
+    }
+
+    @Test
+    @DisplayName("GET /products - After A Deleted Product")
+    void getProductsUnknownCursorTest() throws Exception {
+        // Set up our mocked service, whose after product was deleted
+        doThrow(new UnknownCursorException("deleted")).when(service).find(any());
+
+        // Execute the GET request and validate that we get a 410 rather than an empty last page
+        mockMvc.perform(get("/products").param("after", "2").param("sort", "name"))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    @DisplayName("GET /products/search - Blank Query")
+    void searchProductsBlankTest() throws Exception {
+        // Execute the GET request with a blank query
+        mockMvc.perform(get("/products/search").param("q", " "))
+                .andExpect(status().isBadRequest());
+        verify(service, never()).search(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("GET /products - Invalid Limit")
+    void getProductsInvalidLimitTest() throws Exception {
+        // Execute the GET request with a limit above the maximum
+        mockMvc.perform(get("/products").param("limit", "100000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /products - Filtered, Sorted and Projected")
+    void getProductsQueryTest() throws Exception {
+        // Set up our mocked service
+        ProductQuery query = new ProductQuery(null, 10);
+        query.setNamePrefix("Prod");
+        query.setMinQuantity(5);
+        query.setSort("quantity");
+        query.setOrder("desc");
+        query.setFields(Arrays.asList("id", "quantity"));
+        doReturn(Arrays.asList(new Product(2, null, 20, null))).when(service).find(query);
+
+        // Execute the GET request
+        mockMvc.perform(get("/products")
+                        .param("limit", "10")
+                        .param("namePrefix", "Prod")
+                        .param("minQuantity", "5")
+                        .param("sort", "quantity")
+                        .param("order", "desc")
+                        .param("fields", "id,quantity"))
+
+                // Validate only the projected fields are returned
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(2)))
+                .andExpect(jsonPath("$[0].quantity", is(20)))
+                .andExpect(jsonPath("$[0].name").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET /products - Unknown Column")
+    void getProductsUnknownColumnTest() throws Exception {
+        // Execute the GET request sorting on a column that does not exist
+        mockMvc.perform(get("/products").param("sort", "price"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /products/stream - Success")
+    void streamProductsTest() throws Exception {
+        // Set up our mocked service to push two rows to the consumer
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(0);
+            consumer.accept(new Product(1, "Product Name 1", 10, 1));
+            consumer.accept(new Product(2, "Product Name 2", 20, 1));
+            return null;
+        }).when(service).streamAll(any());
+
+        // Execute the GET request, the body is written asynchronously
+        MvcResult result = mockMvc.perform(get("/products/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Validate the streamed content
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(1)))
+                .andExpect(jsonPath("$[1].quantity", is(20)));
+    }
+
+    @Test
+    @DisplayName("GET /product/1 - CBOR")
+    void getProductByIdCborTest() throws Exception {
+        // Set up our mocked service
+        Product mockProduct = new Product(1, "Product Name", 10, 1);
+        doReturn(Optional.of(mockProduct)).when(service).findById(1);
+
+        // Execute The GET request asking for CBOR
+        MvcResult result = mockMvc.perform(get("/product/{id}", 1).accept("application/cbor"))
+
+                // Validate the response code and content type
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"1\""))
+                .andReturn();
+
+        // Validate the decoded content
+        Product product = new ObjectMapper(new CBORFactory())
+                .readValue(result.getResponse().getContentAsByteArray(), Product.class);
+        assertEquals(mockProduct, product);
+    }
+
+    @Test
+    @DisplayName("GET /products/stream - Smile")
+    void streamProductsSmileTest() throws Exception {
+        // Set up our mocked service to push two rows to the consumer
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(0);
+            consumer.accept(new Product(1, "Product Name 1", 10, 1));
+            consumer.accept(new Product(2, "Product Name 2", 20, 1));
+            return null;
+        }).when(service).streamAll(any());
+
+        // Execute the GET request asking for Smile, the body is written asynchronously
+        MvcResult result = mockMvc.perform(get("/products/stream").accept("application/x-jackson-smile"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+
+        // Validate the decoded content
+        Product[] products = new ObjectMapper(new SmileFactory())
+                .readValue(result.getResponse().getContentAsByteArray(), Product[].class);
+        assertEquals(2, products.length);
+        assertEquals(20, products[1].getQuantity().intValue());
+    }
+
     @Test
     @DisplayName("POST /product - Success")
     void postProductSuccessTest() throws Exception {
@@ -90,7 +383,7 @@ public class ProductControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
 
                 // Validate the header
-                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"1\""))
                 .andExpect(header().string(HttpHeaders.LOCATION, "/product/1"))
 
                 // Validate the returned fields
@@ -105,14 +398,12 @@ public class ProductControllerTest {
     void productPutSuccessTest() throws Exception {
         // Set up our mocked service
         Product putProduct = new Product("Product Name", 10);
-        Product mockProduct = new Product(1, "Product Name", 10, 1);
-        doReturn(Optional.of(mockProduct)).when(service).findById(1);
-        doReturn(Boolean.TRUE).when(service).update(any());
+        doReturn(WriteResult.SUCCESS).when(service).update(any());
 
         // Execute The PUT request
         mockMvc.perform(put("/product/{id}", 1)
                         .contentType(MediaType.APPLICATION_JSON)
-                        .header(HttpHeaders.IF_MATCH, 1)
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
                         .content(asJsonString(putProduct)))
 
                 // Validate the response code and content
@@ -120,7 +411,7 @@ public class ProductControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
 
                 // Validate the header
-                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"2\""))
                 .andExpect(header().string(HttpHeaders.LOCATION, "/product/1"))
 
                 // Validate the returned fields
@@ -136,9 +427,7 @@ public class ProductControllerTest {
     void productPutVersionMismatchTest() throws Exception {
         // Set up our mocked service
         Product putProduct = new Product("Product Name", 10);
-        Product mockProduct = new Product(1, "Product Name", 10, 2);
-        doReturn(Optional.of(mockProduct)).when(service).findById(1);
-        doReturn(Boolean.TRUE).when(service).update(any());
+        doReturn(WriteResult.CONFLICT).when(service).update(any());
 
         // Execute The PUT request
         mockMvc.perform(put("/product/{id}", 1)
@@ -156,7 +445,7 @@ public class ProductControllerTest {
 
         // Set up our mocked service
         Product putProduct = new Product("Product Name", 10);
-        doReturn(Optional.empty()).when(service).findById(1);
+        doReturn(WriteResult.NOT_FOUND).when(service).update(any());
 
         // Execute The PUT request
         mockMvc.perform(put("/product/{id}", 1)
@@ -169,6 +458,125 @@ public class ProductControllerTest {
 
     }
 
+    @Test
+    @DisplayName("POST /product/{id}/stock - Success")
+    void productAdjustStockSuccessTest() throws Exception {
+
+        // Set up our mocked service
+        doReturn(WriteResult.SUCCESS).when(service).adjustStock(1, -2, true);
+
+        // Execute The POST request
+        mockMvc.perform(post("/product/{id}/stock", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(new StockAdjustment(-2, true))))
+
+                // Validate the response code
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    @DisplayName("POST /product/{id}/stock - Accepted")
+    void productAdjustStockAcceptedTest() throws Exception {
+
+        // Set up our mocked service
+        doReturn(WriteResult.ACCEPTED).when(service).adjustStock(1, 5, false);
+
+        // Execute The POST request
+        mockMvc.perform(post("/product/{id}/stock", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(new StockAdjustment(5, false))))
+
+                // Validate the response code
+                .andExpect(status().isAccepted());
+    }
+
+    @Test
+    @DisplayName("POST /product/{id}/stock - Below zero")
+    void productAdjustStockConflictTest() throws Exception {
+
+        // Set up our mocked service
+        doReturn(WriteResult.CONFLICT).when(service).adjustStock(1, -20, true);
+
+        // Execute The POST request
+        mockMvc.perform(post("/product/{id}/stock", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(new StockAdjustment(-20, true))))
+
+                // Validate the response code
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @DisplayName("POST /product/{id}/stock - Missing delta")
+    void productAdjustStockBadRequestTest() throws Exception {
+
+        // Execute The POST request
+        mockMvc.perform(post("/product/{id}/stock", 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+
+                // Validate the response code
+                .andExpect(status().isBadRequest());
+
+        verify(service, never()).adjustStock(any(), anyInt(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("POST /product - Write-behind")
+    void productPostWriteBehindTest() throws Exception {
+
+        // Set up our mocked service
+        WriteTicket ticket = new WriteTicket("abc", WriteTicket.State.PENDING, null, null);
+        doReturn(Optional.of(ticket)).when(service).saveLater(any());
+
+        // Execute The POST request
+        mockMvc.perform(post("/product")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(new Product("Product Name", 10))))
+
+                // Validate the response code, location and content
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/product/writes/abc"))
+                .andExpect(jsonPath("$.trackingId", is("abc")))
+                .andExpect(jsonPath("$.state", is("PENDING")));
+
+        verify(service, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("POST /product - Write-behind of an invalid product")
+    void productPostWriteBehindInvalidTest() throws Exception {
+
+        // Set up our mocked service
+        doThrow(new IllegalArgumentException("No name")).when(service).saveLater(any());
+
+        // Execute The POST request
+        mockMvc.perform(post("/product")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(new Product(null, 10))))
+
+                // Validate the response code
+                .andExpect(status().isBadRequest());
+
+        verify(service, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("GET /product/writes/{trackingId} - Found")
+    void productGetWriteTest() throws Exception {
+
+        // Set up our mocked service
+        doReturn(Optional.of(new WriteTicket("abc", WriteTicket.State.APPLIED, 7, 1))).when(service).findWrite("abc");
+
+        // Execute The GET request
+        mockMvc.perform(get("/product/writes/{trackingId}", "abc"))
+
+                // Validate the response code and content
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state", is("APPLIED")))
+                .andExpect(jsonPath("$.id", is(7)));
+    }
+
     @Test
     @DisplayName("DELETE /product/{id} - Success")
     void productDeleteSuccessTest() throws Exception {
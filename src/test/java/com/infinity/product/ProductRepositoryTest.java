@@ -0,0 +1,301 @@
+package com.infinity.product;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.ProductChange;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.domain.WriteResult;
+import com.infinity.product.repository.ProductRepository;
+import com.infinity.product.repository.UnknownCursorException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ActiveProfiles("test")
+public class ProductRepositoryTest {
+    /***
+     * The JDBC repository, against the in-memory H2 database of ProductRepositoryTestConfiguration
+     */
+    @Autowired
+    @Qualifier("productRepositoryImpl")
+    ProductRepository repository;
+
+    @Test
+    @DisplayName("save and findById Test")
+    void saveAndFindByIdTest(){
+        // execute the repository calls
+        Product saved = repository.save(new Product(null, "Product name", 10, 1));
+        Optional<Product> returnedProduct = repository.findById(saved.getId());
+
+        // assert the response
+        assertTrue(returnedProduct.isPresent(), "Product was not found");
+        assertEquals("Product name", returnedProduct.get().getName());
+        assertEquals(10, returnedProduct.get().getQuantity().intValue());
+        assertEquals(1, returnedProduct.get().getVersion().intValue());
+    }
+
+    @Test
+    @DisplayName("conditional update Test")
+    void updateTest(){
+        // Setup a product to update
+        Product saved = repository.save(new Product(null, "Product name", 10, 1));
+
+        // execute the update with the current version
+        Product product = new Product(saved.getId(), "New name", 5, 1);
+        assertEquals(WriteResult.SUCCESS, repository.update(product));
+        assertEquals(2, product.getVersion().intValue());
+
+        // the same version can not be used twice
+        assertEquals(WriteResult.CONFLICT, repository.update(new Product(saved.getId(), "Other name", 1, 1)));
+        assertEquals(WriteResult.NOT_FOUND, repository.update(new Product(Integer.MAX_VALUE, "Other name", 1, 1)));
+
+        // assert the stored product
+        Product updated = repository.findById(saved.getId()).orElseThrow();
+        assertEquals("New name", updated.getName());
+        assertEquals(2, updated.getVersion().intValue());
+    }
+
+    @Test
+    @DisplayName("adjust quantity Test")
+    void adjustQuantityTest(){
+        // Setup a product to adjust
+        Product saved = repository.save(new Product(null, "Product name", 10, 1));
+
+        // execute the adjustments
+        assertEquals(WriteResult.SUCCESS, repository.adjustQuantity(saved.getId(), -4, true));
+        assertEquals(WriteResult.CONFLICT, repository.adjustQuantity(saved.getId(), -7, true));
+        assertEquals(WriteResult.NOT_FOUND, repository.adjustQuantity(Integer.MAX_VALUE, 1, false));
+
+        // assert the stored product
+        Product adjusted = repository.findById(saved.getId()).orElseThrow();
+        assertEquals(6, adjusted.getQuantity().intValue());
+        assertEquals(2, adjusted.getVersion().intValue());
+    }
+
+    @Test
+    @DisplayName("adjust quantities Test")
+    void adjustQuantitiesTest(){
+        // Setup a product to adjust
+        Product saved = repository.save(new Product(null, "Product name", 10, 1));
+
+        // execute the batch adjustment
+        Map<Integer, Integer> deltas = new LinkedHashMap<>();
+        deltas.put(saved.getId(), -15);
+        deltas.put(Integer.MAX_VALUE, 3);
+        Map<Integer, Boolean> results = repository.adjustQuantities(deltas);
+
+        // assert the results, the batch is not floored
+        assertTrue(results.get(saved.getId()));
+        assertFalse(results.get(Integer.MAX_VALUE));
+        assertEquals(-5, repository.findById(saved.getId()).orElseThrow().getQuantity().intValue());
+    }
+
+    @Test
+    @DisplayName("change feed Test")
+    void findChangesTest(){
+        // Setup a position in the feed
+        List<ProductChange> before = repository.findChanges("0", Integer.MAX_VALUE);
+        String since = before.isEmpty() ? "0" : before.get(before.size() - 1).getPosition();
+
+        // execute writes
+        Product saved = repository.save(new Product(null, "Product name", 10, 1));
+        repository.update(new Product(saved.getId(), "New name", 5, 1));
+        repository.delete(saved.getId());
+
+        // assert the changes, in order
+        List<ProductChange> changes = repository.findChanges(since, 10);
+        assertEquals(3, changes.size());
+        assertEquals(ProductChange.Operation.UPSERT, changes.get(0).getOperation());
+        assertEquals("Product name", changes.get(0).getName());
+        assertEquals("New name", changes.get(1).getName());
+        assertEquals(2, changes.get(1).getVersion().intValue());
+        assertEquals(ProductChange.Operation.DELETE, changes.get(2).getOperation());
+        assertEquals(saved.getId(), changes.get(2).getId());
+        assertTrue(changes.get(0).getSeq() < changes.get(1).getSeq());
+        assertEquals(Long.toString(changes.get(2).getSeq()), changes.get(2).getPosition());
+        assertThrows(IllegalArgumentException.class, () -> repository.findChanges("-1", 10));
+    }
+
+    @Test
+    @DisplayName("change feed read during concurrent writes skips no change")
+    void findChangesConcurrentWritersTest() throws Exception {
+        // Setup a position in the feed and writers on several threads
+        List<ProductChange> before = repository.findChanges("0", Integer.MAX_VALUE);
+        String since = before.isEmpty() ? "0" : before.get(before.size() - 1).getPosition();
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+        List<Future<?>> writes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            writes.add(writers.submit(() -> {
+                for (int j = 0; j < 25; j++) {
+                    Product saved = repository.save(new Product(null, "Product name", 10, 1));
+                    repository.adjustQuantity(saved.getId(), 1, false);
+                }
+            }));
+        }
+
+        // execute reads following the feed while the writers run, then once more after they are done
+        List<Long> read = new ArrayList<>();
+        String position = since;
+        boolean done = false;
+        while (!done) {
+            done = writes.stream().allMatch(Future::isDone);
+            for (ProductChange change : repository.findChanges(position, 1_000)) {
+                read.add(change.getSeq());
+                position = change.getPosition();
+            }
+        }
+        for (Future<?> write : writes)
+            write.get();
+        writers.shutdown();
+
+        // assert every committed change was read, each once
+        List<Long> committed = repository.findChanges(since, Integer.MAX_VALUE).stream().map(ProductChange::getSeq).toList();
+        assertEquals(400, committed.size());
+        assertEquals(committed, read);
+    }
+
+    @Test
+    @DisplayName("importAll Test")
+    void importAllTest(){
+        // Setup a product to overwrite
+        Product existing = repository.save(new Product(null, "Product name", 10, 1));
+        int importedId = existing.getId() + 1_000;
+
+        // execute the import of the overwritten product and of a product past the sequence
+        int imported = repository.importAll(Arrays.asList(
+                new Product(existing.getId(), "Imported name", 7, 4),
+                new Product(importedId, "Imported product", 3, 2)));
+        repository.finishImport();
+
+        // assert the products keep their ids and the sequence moved past them
+        assertEquals(2, imported);
+        assertEquals(new Product(existing.getId(), "Imported name", 7, 4), repository.findById(existing.getId()).orElseThrow());
+        assertEquals(new Product(importedId, "Imported product", 3, 2), repository.findById(importedId).orElseThrow());
+        assertTrue(repository.save(new Product(null, "Product name", 10, 1)).getId() > importedId,
+                "A generated id collides with an imported one");
+    }
+
+    @Test
+    @DisplayName("delete Test")
+    void deleteTest(){
+        // Setup a product to delete
+        Product saved = repository.save(new Product(null, "Product name", 10, 1));
+
+        // execute the repository calls
+        assertTrue(repository.delete(saved.getId()));
+        assertFalse(repository.delete(saved.getId()));
+
+        // assert the product is gone
+        assertFalse(repository.findById(saved.getId()).isPresent(), "Product was found, when it shouldn't be");
+    }
+
+    @Test
+    @DisplayName("saveAll, updateAll and deleteAll Test")
+    void batchTest(){
+        // execute the batch insert
+        List<Product> saved = repository.saveAll(new ArrayList<>(Arrays.asList(
+                new Product(null, "Batch product 1", 10, 1),
+                new Product(null, "Batch product 2", 20, 1))));
+        assertNotNull(saved.get(0).getId(), "Generated key was not returned");
+        assertNotNull(saved.get(1).getId(), "Generated key was not returned");
+
+        // execute the batch update, the second product has a stale version and the third does not exist
+        List<WriteResult> results = repository.updateAll(Arrays.asList(
+                new Product(saved.get(0).getId(), "Batch product 1", 5, 1),
+                new Product(saved.get(1).getId(), "Batch product 2", 5, 7),
+                new Product(Integer.MAX_VALUE, "Missing product", 5, 1)));
+        assertEquals(Arrays.asList(WriteResult.SUCCESS, WriteResult.CONFLICT, WriteResult.NOT_FOUND), results);
+        Product updated = repository.findById(saved.get(0).getId()).orElseThrow();
+        assertEquals(5, updated.getQuantity().intValue());
+        assertEquals(2, updated.getVersion().intValue());
+
+        // execute the batch delete
+        List<Boolean> deleted = repository.deleteAll(Arrays.asList(saved.get(0).getId(), Integer.MAX_VALUE));
+        assertEquals(Arrays.asList(Boolean.TRUE, Boolean.FALSE), deleted);
+    }
+
+    @Test
+    @DisplayName("find Page Test")
+    void findPageTest(){
+        // Setup three products
+        Product first = repository.save(new Product(null, "Page product 1", 1, 1));
+        repository.save(new Product(null, "Page product 2", 2, 1));
+        repository.save(new Product(null, "Page product 3", 3, 1));
+
+        // execute the repository call
+        List<Product> page = repository.find(new ProductQuery(first.getId(), 2));
+
+        // assert the page starts after the given id, in id order
+        assertEquals(2, page.size());
+        assertTrue(page.get(0).getId() > first.getId());
+        assertTrue(page.get(1).getId() > page.get(0).getId());
+    }
+
+    @Test
+    @DisplayName("find Filtered, Sorted and Projected Test")
+    void findQueryTest(){
+        // Setup products with a unique name prefix, two of them share a quantity
+        Product low = repository.save(new Product(null, "Query_product a", 1, 1));
+        Product high1 = repository.save(new Product(null, "Query_product b", 50, 1));
+        Product high2 = repository.save(new Product(null, "Query_product c", 50, 1));
+        repository.save(new Product(null, "Other product", 50, 1));
+
+        // execute the first page of the query, sorted by quantity descending
+        ProductQuery query = new ProductQuery(null, 2);
+        query.setNamePrefix("Query_product");
+        query.setMinQuantity(1);
+        query.setSort("quantity");
+        query.setOrder("desc");
+        query.setFields(List.of("quantity"));
+        List<Product> page = repository.find(query);
+
+        // assert ties are broken by id and only the projected fields are set
+        assertEquals(Arrays.asList(high1.getId(), high2.getId()), page.stream().map(Product::getId).toList());
+        assertEquals(50, page.get(0).getQuantity().intValue());
+        assertNull(page.get(0).getName());
+
+        // execute the next page, seeking past the last product
+        query.setAfter(high2.getId());
+        List<Product> next = repository.find(query);
+        assertEquals(1, next.size());
+        assertEquals(low.getId(), next.get(0).getId());
+    }
+
+    @Test
+    @DisplayName("find after a deleted product sorting by name Test")
+    void findAfterDeletedTest(){
+        // Setup a product seen last on a page sorted by name, then deleted
+        Product last = repository.save(new Product(null, "Deleted_cursor a", 1, 1));
+        repository.save(new Product(null, "Deleted_cursor b", 2, 1));
+        repository.delete(last.getId());
+
+        // execute the next page, and assert it is refused rather than empty
+        ProductQuery query = new ProductQuery(last.getId(), 10);
+        query.setNamePrefix("Deleted_cursor");
+        query.setSort("name");
+        assertThrows(UnknownCursorException.class, () -> repository.find(query));
+
+        // assert an empty page after an existing product is still a last page
+        Product end = repository.save(new Product(null, "Deleted_cursor c", 3, 1));
+        query.setAfter(end.getId());
+        assertTrue(repository.find(query).isEmpty());
+    }
+}
@@ -9,7 +9,7 @@ import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import javax.sql.DataSource;
 
 @Configuration
-@Profile("test")
+@Profile("test & !reactive")
 public class ProductRepositoryTestConfiguration {
 
     @Primary
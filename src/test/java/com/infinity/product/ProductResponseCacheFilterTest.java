@@ -0,0 +1,98 @@
+package com.infinity.product;
+
+import com.infinity.product.controller.ProductResponseCacheFilter;
+import com.infinity.product.repository.ProductChangedEvent;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductResponseCacheFilterTest {
+
+    private static final String BODY = "[{\"id\":1,\"name\":\"Product Name\",\"quantity\":10,\"version\":1}]";
+
+    ProductResponseCacheFilter filter;
+    AtomicInteger controllerCalls;
+
+    @BeforeEach
+    void setUp() {
+        filter = new ProductResponseCacheFilter(1024 * 1024, TimeUnit.MINUTES.toNanos(1), 0);
+        controllerCalls = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("repeated reads are served from the cache until a product changes")
+    void cacheHitTest() throws Exception {
+        // execute the same read twice
+        MockHttpServletResponse first = get("/products", null);
+        MockHttpServletResponse second = get("/products", null);
+
+        // assert the second one did not reach the controller
+        assertEquals(1, controllerCalls.get());
+        assertEquals(BODY, second.getContentAsString());
+        assertEquals("application/json", second.getContentType());
+        assertEquals(first.getContentAsString(), second.getContentAsString());
+
+        // a write clears the cache
+        filter.onProductChanged(new ProductChangedEvent(List.of(1)));
+        get("/products", null);
+        assertEquals(2, controllerCalls.get());
+    }
+
+    @Test
+    @DisplayName("cached responses are sent compressed to clients accepting gzip")
+    void gzipTest() throws Exception {
+        // execute the read twice, the second one accepting gzip
+        get("/product/1", null);
+        MockHttpServletResponse response = get("/product/1", "gzip, deflate");
+
+        // assert the compressed body
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertEquals(BODY, new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("other paths are not cached")
+    void notCachedTest() throws Exception {
+        // execute the same read twice
+        get("/product/writes/abc", null);
+        get("/product/writes/abc", null);
+
+        // assert both reached the controller
+        assertEquals(2, controllerCalls.get());
+    }
+
+    private MockHttpServletResponse get(String uri, String acceptEncoding) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        if (acceptEncoding != null)
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                controllerCalls.incrementAndGet();
+                resp.setContentType("application/json");
+                resp.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+            }
+        }));
+        return response;
+    }
+}
@@ -0,0 +1,152 @@
+package com.infinity.product;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.repository.ProductChangedEvent;
+import com.infinity.product.repository.ProductRepository;
+import com.infinity.product.service.ProductSearchIndex;
+import com.infinity.product.service.SearchIndexUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ProductSearchIndexTest {
+
+    ProductRepository repository;
+    ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        repository = mock(ProductRepository.class);
+        // Setup our mock, the products indexed at startup
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(0);
+            consumer.accept(new Product(1, "Blue Shirt", 10, 1));
+            consumer.accept(new Product(2, "Blue denim shirt", 10, 1));
+            consumer.accept(new Product(3, "Red Shoes", 10, 1));
+            consumer.accept(new Product(4, "Crème brûlée", 10, 1));
+            return null;
+        }).when(repository).streamAll(any());
+        index = new ProductSearchIndex(repository);
+        index.startLoading();
+        awaitLoaded();
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.shutdown();
+    }
+
+    @Test
+    @DisplayName("all words must match, exact matches and shorter names rank first")
+    void tokenSearchTest() {
+        // execute the search
+        List<Product> results = index.search("shirt blue", 0, 10);
+
+        // assert the ranking
+        assertEquals(List.of(1, 2), ids(results));
+        assertEquals("Blue Shirt", results.get(0).getName());
+        assertNull(results.get(0).getQuantity());
+    }
+
+    @Test
+    @DisplayName("the last word matches as a prefix, shorter names first")
+    void prefixSearchTest() {
+        // execute the search
+        List<Product> results = index.search("sh", 0, 10);
+
+        // assert the response
+        assertEquals(List.of(3, 1, 2), ids(results));
+    }
+
+    @Test
+    @DisplayName("words of 4 characters and more match with one typo, accents are ignored")
+    void fuzzySearchTest() {
+        // execute the searches
+        List<Product> typo = index.search("shrit dneim", 0, 10);
+        List<Product> accents = index.search("creme brulee", 0, 10);
+
+        // assert the response
+        assertEquals(List.of(2), ids(typo));
+        assertEquals(List.of(4), ids(accents));
+    }
+
+    @Test
+    @DisplayName("results are paginated with an offset and a limit")
+    void paginationTest() {
+        // execute the searches
+        List<Product> first = index.search("s", 0, 2);
+        List<Product> second = index.search("s", 2, 2);
+
+        // assert the response
+        assertEquals(List.of(3, 1), ids(first));
+        assertEquals(List.of(2), ids(second));
+    }
+
+    @Test
+    @DisplayName("the index follows committed writes")
+    void refreshTest() throws InterruptedException {
+        // Setup our mock, product 1 is renamed and product 3 deleted
+        doReturn(Optional.of(new Product(1, "Green Hat", 10, 2))).when(repository).findById(1);
+        doReturn(Optional.empty()).when(repository).findById(3);
+
+        // execute the change notification
+        index.onProductChanged(new ProductChangedEvent(List.of(1, 3)));
+        long deadline = System.currentTimeMillis() + 5000;
+        // product 3 is refreshed last
+        while (!index.search("shoes", 0, 10).isEmpty() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+
+        // assert the index was updated
+        assertEquals(List.of(2), ids(index.search("shirt", 0, 10)));
+        assertEquals(List.of(1), ids(index.search("hat", 0, 10)));
+        assertEquals(List.of(), ids(index.search("shoes", 0, 10)));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    @DisplayName("searches are refused until the index is loaded, and a failed load is retried")
+    void loadRetryTest() throws InterruptedException {
+        // Setup a second index whose first load fails
+        index.shutdown();
+        clearInvocations(repository);
+        doThrow(new DataAccessResourceFailureException("Database not ready"))
+                .doAnswer(invocation -> {
+                    Consumer<Product> consumer = invocation.getArgument(0);
+                    consumer.accept(new Product(1, "Blue Shirt", 10, 1));
+                    return null;
+                }).when(repository).streamAll(any());
+        index = new ProductSearchIndex(repository);
+
+        // assert searches are refused before the load
+        assertThrows(SearchIndexUnavailableException.class, () -> index.search("shirt", 0, 10));
+
+        // execute the load, which is retried
+        index.startLoading();
+        awaitLoaded();
+
+        // assert the index was loaded by the second attempt
+        verify(repository, times(2)).streamAll(any());
+        assertEquals(List.of(1), ids(index.search("shirt", 0, 10)));
+    }
+
+    private void awaitLoaded() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!index.isLoaded() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertTrue(index.isLoaded(), "The index was not loaded");
+    }
+
+    private static List<Integer> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+}
@@ -1,6 +1,8 @@
 package com.infinity.product;
 
+import com.infinity.product.domain.BatchItemResult;
 import com.infinity.product.domain.Product;
+import com.infinity.product.domain.WriteResult;
 import com.infinity.product.repository.ProductRepository;
 import com.infinity.product.service.ProductService;
 import org.junit.jupiter.api.*;
@@ -8,6 +10,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -17,7 +20,10 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 
 
 @ExtendWith(SpringExtension.class)
@@ -108,4 +114,101 @@ public class ProductServiceTest {
         assertNotEquals(null,mockProduct,"Returns saved Product, when it shouldn't");
     }
 
+
+    @Test
+    @DisplayName("saveAll Success Test")
+    void saveAllSuccessTest(){
+        // Setup our mock to assign ids to the saved products
+        doAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            for (int i = 0; i < products.size(); i++) {
+                products.get(i).setId(i + 1);
+            }
+            return products;
+        }).when(repository).saveAll(any());
+
+        // execute the service call, the second product is invalid
+        List<BatchItemResult> results = productService.saveAll(Arrays.asList(
+                new Product("Product name 1", 10),
+                new Product(null, 10),
+                new Product("Product name 3", 10)));
+
+        // assert the response
+        assertEquals(3, results.size());
+        assertEquals(201, results.get(0).getStatus().intValue());
+        assertEquals(1, results.get(0).getId().intValue());
+        assertEquals(1, results.get(0).getVersion().intValue());
+        assertEquals(400, results.get(1).getStatus().intValue());
+        assertEquals(201, results.get(2).getStatus().intValue());
+        assertEquals(2, results.get(2).getId().intValue());
+    }
+
+    @Test
+    @DisplayName("updateAll Statuses Test")
+    void updateAllStatusesTest(){
+        // Setup our mock
+        doReturn(Arrays.asList(WriteResult.SUCCESS, WriteResult.CONFLICT, WriteResult.NOT_FOUND))
+                .when(repository).updateAll(any());
+
+        // execute the service call
+        List<BatchItemResult> results = productService.updateAll(Arrays.asList(
+                new Product(1, "Product name 1", 10, 1),
+                new Product(2, "Product name 2", 10, 1),
+                new Product(3, "Product name 3", 10, 1)));
+
+        // assert the response
+        assertEquals(200, results.get(0).getStatus().intValue());
+        assertEquals(409, results.get(1).getStatus().intValue());
+        assertEquals(404, results.get(2).getStatus().intValue());
+    }
+
+    @Test
+    @DisplayName("updateAll Invalid Items Test")
+    void updateAllInvalidItemsTest(){
+        // Setup our mock
+        doReturn(Arrays.asList(WriteResult.SUCCESS)).when(repository).updateAll(any());
+
+        // execute the service call, without a quantity and with a name too long for the column
+        List<BatchItemResult> results = productService.updateAll(Arrays.asList(
+                new Product(1, "Product name 1", null, 1),
+                new Product(2, "x".repeat(129), 10, 1),
+                new Product(3, "Product name 3", 10, 1)));
+
+        // assert only the valid item was written and the invalid ones were refused alone
+        verify(repository).updateAll(List.of(new Product(3, "Product name 3", 10, 1)));
+        assertEquals(400, results.get(0).getStatus().intValue());
+        assertEquals(1, results.get(0).getId().intValue());
+        assertEquals(400, results.get(1).getStatus().intValue());
+        assertEquals(200, results.get(2).getStatus().intValue());
+    }
+
+    @Test
+    @DisplayName("deleteAll Failed Chunk Test")
+    void deleteAllFailedChunkTest(){
+        // Setup our mock
+        doThrow(new DataAccessResourceFailureException("Database down")).when(repository).deleteAll(any());
+
+        // execute the service call
+        List<BatchItemResult> results = productService.deleteAll(Arrays.asList(1, 2));
+
+        // assert the failed items keep their id
+        assertEquals(500, results.get(0).getStatus().intValue());
+        assertEquals(1, results.get(0).getId().intValue());
+        assertEquals(2, results.get(1).getId().intValue());
+    }
+
+    @Test
+    @DisplayName("deleteAll Statuses Test")
+    void deleteAllStatusesTest(){
+        // Setup our mock
+        doReturn(Arrays.asList(Boolean.TRUE, Boolean.FALSE)).when(repository).deleteAll(any());
+
+        // execute the service call
+        List<BatchItemResult> results = productService.deleteAll(Arrays.asList(1, 2));
+
+        // assert the response
+        assertEquals(200, results.get(0).getStatus().intValue());
+        assertEquals(404, results.get(1).getStatus().intValue());
+    }
+
 }
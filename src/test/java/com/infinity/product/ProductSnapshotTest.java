@@ -0,0 +1,104 @@
+package com.infinity.product;
+
+import com.infinity.product.config.ProductProperties;
+import com.infinity.product.domain.Product;
+import com.infinity.product.repository.ProductRepository;
+import com.infinity.product.service.ProductSnapshot;
+import com.infinity.product.service.ProductSnapshotService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+
+public class ProductSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("a written snapshot is read back in batches")
+    void roundTripTest() throws IOException {
+        // Setup a snapshot of three products
+        Path file = directory.resolve("products.snapshot");
+        List<Product> products = List.of(
+                new Product(1, "Product name 1", 10, 1),
+                new Product(2, "Produit n°2", 0, 3),
+                new Product(7, "", -5, 2));
+        try (OutputStream output = Files.newOutputStream(file)) {
+            ProductSnapshot.Writer writer = new ProductSnapshot.Writer(output);
+            products.forEach(writer);
+            assertEquals(3, writer.finish());
+        }
+
+        // execute the read, two products per batch
+        List<List<Product>> batches = new ArrayList<>();
+        long count = ProductSnapshot.read(file, 2, batches::add);
+
+        // assert the products and batches
+        assertEquals(3, count);
+        assertEquals(2, batches.size());
+        assertEquals(products, batches.stream().flatMap(List::stream).toList());
+    }
+
+    @Test
+    @DisplayName("a truncated snapshot is refused before any product is passed on")
+    void truncatedTest() throws IOException {
+        // Setup a snapshot cut in the middle of its last record
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ProductSnapshot.Writer writer = new ProductSnapshot.Writer(output);
+        writer.accept(new Product(1, "Product name 1", 10, 1));
+        writer.accept(new Product(2, "Product name 2", 20, 1));
+        writer.finish();
+        byte[] bytes = output.toByteArray();
+        Path file = Files.write(directory.resolve("truncated.snapshot"), Arrays.copyOf(bytes, bytes.length - 20));
+
+        // execute the read
+        List<Product> read = new ArrayList<>();
+        assertThrows(IOException.class, () -> ProductSnapshot.read(file, 1, read::addAll));
+
+        // assert nothing was passed on
+        assertTrue(read.isEmpty(), "Products of a truncated snapshot were passed on");
+    }
+
+    @Test
+    @DisplayName("an import writes each batch, then moves the id sequence once")
+    void importTest() throws IOException {
+        // Setup a snapshot of three products and our mock
+        Path file = directory.resolve("products.snapshot");
+        try (OutputStream output = Files.newOutputStream(file)) {
+            ProductSnapshot.Writer writer = new ProductSnapshot.Writer(output);
+            writer.accept(new Product(1, "Product name 1", 10, 1));
+            writer.accept(new Product(2, "Product name 2", 20, 1));
+            writer.accept(new Product(3, "Product name 3", 30, 1));
+            writer.finish();
+        }
+        ProductRepository repository = mock(ProductRepository.class);
+        ProductProperties properties = new ProductProperties();
+        properties.getBatch().setChunkSize(2);
+
+        // execute the import
+        long imported = new ProductSnapshotService(repository, properties).importFrom(file);
+
+        // assert both batches are written before the sequence is moved, and it is moved only once
+        assertEquals(3, imported);
+        InOrder order = inOrder(repository);
+        order.verify(repository, times(2)).importAll(anyList());
+        order.verify(repository).finishImport();
+        order.verifyNoMoreInteractions();
+    }
+}
@@ -0,0 +1,124 @@
+package com.infinity.product;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.infinity.product.config.ProductProperties;
+import com.infinity.product.domain.BatchItemResult;
+import com.infinity.product.domain.ImportSummary;
+import com.infinity.product.domain.Product;
+import com.infinity.product.service.ProductService;
+import com.infinity.product.service.ProductTransferService;
+import com.infinity.product.service.ProductTransferService.Format;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ProductTransferServiceTest {
+
+    private ProductService productService;
+    private ProductTransferService transferService;
+    private final List<List<Product>> batches = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        productService = mock(ProductService.class);
+        doAnswer(invocation -> {
+            List<Product> batch = invocation.getArgument(0);
+            batches.add(List.copyOf(batch));
+            return batch.stream().map(product -> new BatchItemResult(1, 1, HttpStatus.CREATED.value())).toList();
+        }).when(productService).saveAll(any(List.class));
+
+        ProductProperties properties = new ProductProperties();
+        properties.getBatch().setChunkSize(2);
+        transferService = new ProductTransferService(productService, properties, new ObjectMapper(),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("valid CSV rows are imported in batches and invalid ones are reported with their row")
+    void importCsvTest() throws IOException {
+        // Setup a body with two invalid rows, and an id column that is ignored
+        String csv = """
+                id,name,quantity
+                1,Product name 1,10
+                2,,20
+                3,Product name 3,
+                4,Product name 4,40
+                5,Product name 5,50
+                """;
+
+        // execute the import
+        ImportSummary summary = transferService.importProducts(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), Format.CSV);
+
+        // assert the counts, the rejected rows and the batches written
+        assertEquals(5, summary.getRead());
+        assertEquals(3, summary.getImported());
+        assertEquals(2, summary.getRejected());
+        assertFalse(summary.isAborted());
+        assertEquals(List.of(2L, 3L), summary.getErrors().stream().map(ImportSummary.RowError::row).toList());
+        assertEquals(List.of(
+                List.of(new Product("Product name 1", 10), new Product("Product name 4", 40)),
+                List.of(new Product("Product name 5", 50))), batches);
+    }
+
+    @Test
+    @DisplayName("an NDJSON import stops at a syntax error and keeps the rows before it")
+    void importNdjsonAbortTest() throws IOException {
+        // Setup a body broken on its third line
+        String ndjson = """
+                {"name":"Product name 1","quantity":10}
+                {"name":"Product name 2","quantity":"many"}
+                {"name":"Product name 3",
+                {"name":"Product name 4","quantity":40}
+                """;
+
+        // execute the import
+        ImportSummary summary = transferService.importProducts(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), Format.NDJSON);
+
+        // assert the row of the wrong type was skipped and the import aborted
+        assertTrue(summary.isAborted());
+        assertEquals(1, summary.getImported());
+        assertEquals(2, summary.getRejected());
+        assertEquals(List.of(List.of(new Product("Product name 1", 10))), batches);
+    }
+
+    @Test
+    @DisplayName("the export writes one product per line")
+    @SuppressWarnings("unchecked")
+    void exportNdjsonTest() throws IOException {
+        // Setup our mock
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(0);
+            consumer.accept(new Product(1, "Product name 1", 10, 1));
+            consumer.accept(new Product(2, "Product name 2", 20, 3));
+            return null;
+        }).when(productService).streamAll(any(Consumer.class));
+
+        // execute the export
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long exported = transferService.exportProducts(output, Format.NDJSON);
+
+        // assert the lines
+        assertEquals(2, exported);
+        assertEquals("""
+                {"id":1,"name":"Product name 1","quantity":10,"version":1}
+                {"id":2,"name":"Product name 2","quantity":20,"version":3}
+                """, output.toString(StandardCharsets.UTF_8));
+    }
+}
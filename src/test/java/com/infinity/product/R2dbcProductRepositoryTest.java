@@ -0,0 +1,118 @@
+package com.infinity.product;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.WriteResult;
+import com.infinity.product.repository.R2dbcProductRepository;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.test.StepVerifier;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class R2dbcProductRepositoryTest {
+
+    R2dbcProductRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        // A database of its own for each test, with the schema of the application
+        ConnectionFactory connectionFactory = ConnectionFactories.get(
+                "r2dbc:h2:mem:///" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).populate(connectionFactory).block();
+        repository = new R2dbcProductRepository(DatabaseClient.create(connectionFactory));
+    }
+
+    @Test
+    @DisplayName("a saved product is found with its generated id")
+    void saveAndFindTest() {
+        // execute the insert
+        Product saved = repository.save(newProduct()).block();
+
+        // assert the product is read back
+        assertNotNull(saved.getId());
+        StepVerifier.create(repository.findById(saved.getId()))
+                .assertNext(product -> {
+                    assertEquals("Product name", product.getName());
+                    assertEquals(10, product.getQuantity());
+                    assertEquals(1, product.getVersion());
+                })
+                .verifyComplete();
+        StepVerifier.create(repository.findById(saved.getId() + 1)).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("an update with the current version succeeds and increments the version")
+    void updateTest() {
+        // Setup our product
+        Product product = repository.save(newProduct()).block();
+
+        // execute the update
+        product.setQuantity(5);
+        StepVerifier.create(repository.update(product)).expectNext(WriteResult.SUCCESS).verifyComplete();
+
+        // assert the new version is both returned and stored
+        assertEquals(2, product.getVersion());
+        StepVerifier.create(repository.findById(product.getId()))
+                .assertNext(stored -> {
+                    assertEquals(5, stored.getQuantity());
+                    assertEquals(2, stored.getVersion());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("an update with a stale version is a conflict and changes nothing")
+    void updateConflictTest() {
+        // Setup our product, updated once already
+        Product product = repository.save(newProduct()).block();
+        Product stale = new Product(product.getId(), "Product name", 1, product.getVersion());
+        repository.update(product).block();
+
+        // execute the update with the version read before
+        StepVerifier.create(repository.update(stale)).expectNext(WriteResult.CONFLICT).verifyComplete();
+
+        // assert the stored product is left as it was
+        assertEquals(1, stale.getVersion());
+        StepVerifier.create(repository.findById(product.getId()))
+                .assertNext(stored -> {
+                    assertEquals(10, stored.getQuantity());
+                    assertEquals(2, stored.getVersion());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("an update of a missing product is not found")
+    void updateNotFoundTest() {
+        // execute the update
+        StepVerifier.create(repository.update(new Product(1, "Product name", 10, 1)))
+                .expectNext(WriteResult.NOT_FOUND)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("a delete removes the product once")
+    void deleteTest() {
+        // Setup our product
+        Product product = repository.save(newProduct()).block();
+
+        // execute the deletes and assert only the first one removes the product
+        StepVerifier.create(repository.delete(product.getId())).expectNext(true).verifyComplete();
+        StepVerifier.create(repository.delete(product.getId())).expectNext(false).verifyComplete();
+        StepVerifier.create(repository.findById(product.getId())).verifyComplete();
+    }
+
+    private static Product newProduct() {
+        Product product = new Product("Product name", 10);
+        product.setVersion(1);
+        return product;
+    }
+}
@@ -0,0 +1,144 @@
+package com.infinity.product;
+
+import com.infinity.product.config.ProductProperties;
+import com.infinity.product.controller.RateLimitFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimitFilterTest {
+
+    SimpleMeterRegistry registry;
+    RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        // Setup a scan group allowing a burst of 2 calls, then one call every 1000 seconds
+        ProductProperties.RateLimit.Group scan = new ProductProperties.RateLimit.Group();
+        scan.setMethods(List.of("GET"));
+        scan.setPaths(List.of("/products"));
+        scan.setBurst(2);
+        scan.setPermitsPerSecond(0.001);
+        scan.setMaxConcurrentCalls(1);
+        // The mock requests come from 127.0.0.1, acting as the proxy that sets the client header
+        ProductProperties.RateLimit settings = new ProductProperties.RateLimit();
+        settings.getGroups().put("scan", scan);
+        settings.setTrustedProxies(List.of("127.0.0.1"));
+
+        registry = new SimpleMeterRegistry();
+        filter = new RateLimitFilter(settings, registry);
+    }
+
+    @Test
+    @DisplayName("clients are limited independently, with 429 and Retry-After")
+    void rateLimitTest() throws Exception {
+        // execute the burst of the first client, then one more call
+        assertTrue(call("/products", "a"));
+        assertTrue(call("/products", "a"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request("/products", "a"), response, chain);
+
+        // assert the rejection
+        assertNull(chain.getRequest(), "A rate limited call went through");
+        assertEquals(429, response.getStatus());
+        assertTrue(Long.parseLong(response.getHeader(HttpHeaders.RETRY_AFTER)) > 1);
+        assertEquals(1.0, registry.get("product.ratelimit.rejections")
+                .tag("group", "scan").tag("reason", "rate").counter().count());
+
+        // another client and other endpoints are not affected
+        assertTrue(call("/products", "b"));
+        assertTrue(call("/product/1", "a"));
+    }
+
+    @Test
+    @DisplayName("calls of a group beyond its bulkhead are rejected until one completes")
+    void bulkheadTest() throws Exception {
+        // execute an async call that is still in progress, then another one
+        MockHttpServletRequest first = startAsync(request("/products", "a"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("/products", "b"), response, new MockFilterChain());
+
+        // assert the rejection, then the release of the permit once the async call completes
+        assertEquals(429, response.getStatus());
+        assertEquals(1.0, registry.get("product.ratelimit.rejections")
+                .tag("group", "scan").tag("reason", "concurrency").counter().count());
+        first.getAsyncContext().complete();
+        assertTrue(call("/products", "b"));
+    }
+
+    @Test
+    @DisplayName("a call rejected by the bulkhead does not use up a token, nor a rate limited call a permit")
+    void rejectionsKeepTokensAndPermitsTest() throws Exception {
+        // execute an async call that is still in progress, and calls of another client rejected by the bulkhead
+        MockHttpServletRequest first = startAsync(request("/products", "a"));
+        assertFalse(call("/products", "b"));
+        assertFalse(call("/products", "b"));
+        first.getAsyncContext().complete();
+
+        // assert the other client still has its whole burst, and the rate limited call leaves the permit free
+        assertTrue(call("/products", "b"));
+        assertTrue(call("/products", "b"));
+        assertFalse(call("/products", "b"));
+        assertTrue(call("/products", "a"));
+        assertEquals(1.0, registry.get("product.ratelimit.bulkhead.available").gauge().value());
+    }
+
+    @Test
+    @DisplayName("the client header is ignored on requests that do not come from a trusted proxy")
+    void untrustedClientHeaderTest() {
+        // execute the burst of an address, then calls claiming to be other clients
+        assertTrue(call(request("/products", "a", "10.0.0.1")));
+        assertTrue(call(request("/products", "b", "10.0.0.1")));
+
+        // assert the address is limited whatever client it claims to be, and other addresses are not
+        assertFalse(call(request("/products", "c", "10.0.0.1")));
+        assertTrue(call(request("/products", "a", "10.0.0.2")));
+    }
+
+    private boolean call(String uri, String client) {
+        return call(request(uri, client));
+    }
+
+    private boolean call(MockHttpServletRequest request) {
+        MockFilterChain chain = new MockFilterChain();
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return chain.getRequest() != null;
+    }
+
+    /**
+     * Runs the request through the filter to a handler that starts async processing, and returns it in progress.
+     */
+    private MockHttpServletRequest startAsync(MockHttpServletRequest request) throws Exception {
+        request.setAsyncSupported(true);
+        filter.doFilter(request, new MockHttpServletResponse(),
+                (servletRequest, servletResponse) -> servletRequest.startAsync());
+        assertTrue(request.isAsyncStarted());
+        return request;
+    }
+
+    private static MockHttpServletRequest request(String uri, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.addHeader("X-Client-Id", client);
+        return request;
+    }
+
+    private static MockHttpServletRequest request(String uri, String client, String address) {
+        MockHttpServletRequest request = request(uri, client);
+        request.setRemoteAddr(address);
+        return request;
+    }
+}
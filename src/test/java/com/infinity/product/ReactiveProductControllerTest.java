@@ -0,0 +1,108 @@
+package com.infinity.product;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.WriteResult;
+import com.infinity.product.repository.ProductRepository;
+import com.infinity.product.service.ReactiveProductService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+@ActiveProfiles({"test", "reactive"})
+public class ReactiveProductControllerTest {
+    @MockBean
+    ReactiveProductService service;
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    ApplicationContext context;
+
+    @Test
+    @DisplayName("the reactive profile starts without the JDBC stack")
+    void noJdbcBeansTest() {
+        // assert neither a connection pool nor the blocking repositories are created
+        assertEquals(0, context.getBeanNamesForType(DataSource.class).length);
+        assertEquals(0, context.getBeanNamesForType(ProductRepository.class).length);
+    }
+
+    @Test
+    @DisplayName("GET /product/1 - Found")
+    void getProductByIdTest() {
+        // Set up our mocked service
+        doReturn(Mono.just(new Product(1, "Product Name", 10, 1))).when(service).findById(1);
+
+        // Execute The GET request and validate the response
+        webTestClient.get().uri("/product/{id}", 1)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.LOCATION, "/product/1")
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.name").isEqualTo("Product Name")
+                .jsonPath("$.version").isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("GET /product/1 - NotFound")
+    void getProductByIdNotFoundTest() {
+        // Set up our mocked service
+        doReturn(Mono.empty()).when(service).findById(1);
+
+        // Execute the GET request and validate that we get a 404 Not Found response code
+        webTestClient.get().uri("/product/{id}", 1)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("GET /products - Success")
+    void getProductsTest() {
+        // Set up our mocked service
+        doReturn(Flux.just(new Product(1, "Product Name 1", 10, 1), new Product(2, "Product Name 2", 10, 1)))
+                .when(service).findAll();
+
+        // Execute the GET request and validate the response
+        webTestClient.get().uri("/products")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Product.class).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("PUT /product/{id} - version Mismatch")
+    void productPutVersionMismatchTest() {
+        // Set up our mocked service
+        doReturn(Mono.just(WriteResult.CONFLICT)).when(service).update(any());
+
+        // Execute The PUT request and validate the response code
+        webTestClient.put().uri("/product/{id}", 1)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "1")
+                .bodyValue(new Product("Product Name", 10))
+                .exchange()
+                .expectStatus().isEqualTo(409);
+    }
+}
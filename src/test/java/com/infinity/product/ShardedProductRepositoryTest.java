@@ -0,0 +1,189 @@
+package com.infinity.product;
+
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.ProductChange;
+import com.infinity.product.domain.ProductQuery;
+import com.infinity.product.domain.WriteResult;
+import com.infinity.product.repository.ProductRepositoryImpl;
+import com.infinity.product.repository.ShardedProductRepository;
+import com.infinity.product.repository.UnknownCursorException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedProductRepositoryTest {
+
+    private static final int SHARDS = 3;
+
+    private ShardedProductRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        // Setup three in-memory databases, fresh for each test
+        List<ProductRepositoryImpl> shards = new ArrayList<>();
+        String run = UUID.randomUUID().toString();
+        for (int i = 0; i < SHARDS; i++) {
+            DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                    "jdbc:h2:mem:shard-" + i + "-" + run + ";DB_CLOSE_DELAY=-1", "sa", "");
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+            ProductRepositoryImpl shard = new ProductRepositoryImpl(new JdbcTemplate(dataSource), dataSource,
+                    event -> {
+                    }, i, SHARDS);
+            shard.alignSequences();
+            shards.add(shard);
+        }
+        repository = new ShardedProductRepository(shards);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.shutdown();
+    }
+
+    @Test
+    @DisplayName("generated ids are unique and each product is found on its shard")
+    void saveAndFindByIdTest() {
+        // execute the saves, one by one and in a batch
+        List<Product> saved = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            saved.add(repository.save(new Product(null, "Product name " + i, i, 1)));
+        List<Product> batch = new ArrayList<>();
+        for (int i = 5; i < 12; i++)
+            batch.add(new Product(null, "Product name " + i, i, 1));
+        saved.addAll(repository.saveAll(batch));
+
+        // assert the ids and the products read back
+        assertEquals(12, saved.stream().map(Product::getId).distinct().count());
+        for (Product product : saved) {
+            assertEquals(product, repository.findById(product.getId()).orElseThrow());
+        }
+        // Products are spread evenly over the shards
+        assertEquals(List.of(4L, 4L, 4L), List.of(0, 1, 2).stream()
+                .map(shard -> saved.stream().filter(product -> repository.shardOf(product.getId()) == shard).count())
+                .toList());
+    }
+
+    @Test
+    @DisplayName("listings, streams and pages are merged across the shards")
+    void mergeTest() {
+        // Setup products on all shards
+        List<Product> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            batch.add(new Product(null, "Product " + (char) ('j' - i), i, 1));
+        repository.saveAll(batch);
+
+        // assert the full listing and the stream are in id order
+        List<Integer> ids = repository.findAll().stream().map(Product::getId).toList();
+        assertEquals(ids.stream().sorted().toList(), ids);
+        List<Integer> streamed = new ArrayList<>();
+        repository.streamAll(product -> streamed.add(product.getId()));
+        assertEquals(ids, streamed);
+
+        // execute two pages sorted by name, without projecting the name
+        ProductQuery query = new ProductQuery(null, 4);
+        query.setSort("name");
+        query.setFields(List.of("quantity"));
+        List<Product> first = repository.find(query);
+        query.setAfter(first.get(first.size() - 1).getId());
+        List<Product> second = repository.find(query);
+
+        // assert the pages follow each other in name order, whatever shard the products are on
+        assertEquals(List.of(9, 8, 7, 6), first.stream().map(Product::getQuantity).toList());
+        assertEquals(List.of(5, 4, 3, 2), second.stream().map(Product::getQuantity).toList());
+        assertNull(first.get(0).getName(), "Name was returned without being projected");
+
+        // assert a page after a deleted product is refused rather than empty
+        repository.delete(second.get(second.size() - 1).getId());
+        query.setAfter(second.get(second.size() - 1).getId());
+        assertThrows(UnknownCursorException.class, () -> repository.find(query));
+    }
+
+    @Test
+    @DisplayName("batched writes are routed by id and their results keep the order of the batch")
+    void batchWritesTest() {
+        // Setup products on all shards
+        List<Product> saved = repository.saveAll(new ArrayList<>(List.of(
+                new Product(null, "Product name 1", 10, 1),
+                new Product(null, "Product name 2", 20, 1),
+                new Product(null, "Product name 3", 30, 1))));
+
+        // execute the updates, one of them with a stale version, and the adjustments
+        List<WriteResult> updates = repository.updateAll(List.of(
+                new Product(saved.get(2).getId(), "New name 3", 31, 1),
+                new Product(saved.get(0).getId(), "New name 1", 11, 7)));
+        Map<Integer, Boolean> adjusted = repository.adjustQuantities(Map.of(saved.get(1).getId(), 5, Integer.MAX_VALUE - 1, 5));
+
+        // assert the results
+        assertEquals(List.of(WriteResult.SUCCESS, WriteResult.CONFLICT), updates);
+        assertEquals(Map.of(saved.get(1).getId(), true, Integer.MAX_VALUE - 1, false), adjusted);
+        assertEquals(25, repository.findById(saved.get(1).getId()).orElseThrow().getQuantity().intValue());
+        assertEquals(List.of(true, false), repository.deleteAll(List.of(saved.get(0).getId(), saved.get(0).getId())));
+    }
+
+    @Test
+    @DisplayName("imported products keep their ids and later ids do not collide with them")
+    void importAllTest() {
+        // execute the import of products with ids of a single database
+        int imported = repository.importAll(List.of(
+                new Product(1, "Product name 1", 10, 1),
+                new Product(2, "Product name 2", 20, 1),
+                new Product(3, "Product name 3", 30, 1),
+                new Product(40, "Product name 40", 40, 1)));
+        repository.finishImport();
+        List<Product> saved = new ArrayList<>();
+        for (int i = 0; i < 6; i++)
+            saved.add(repository.save(new Product(null, "New product " + i, i, 1)));
+
+        // assert the imported products are found and the new ids are all new
+        assertEquals(4, imported);
+        assertEquals("Product name 40", repository.findById(40).orElseThrow().getName());
+        assertTrue(saved.stream().allMatch(product -> product.getId() > 3 && product.getId() != 40),
+                "A generated id collided with an imported one");
+        assertEquals(6, saved.stream().map(Product::getId).distinct().count());
+    }
+
+    @Test
+    @DisplayName("the change feeds of the shards are merged with a position per shard, so lagging shards skip nothing")
+    void findChangesTest() {
+        // Setup changes on the first shard only, so that the sequences of the others lag behind, then read them
+        Product product = repository.save(new Product(null, "Product name 1", 10, 1));
+        for (int i = 0; i < 3; i++)
+            repository.adjustQuantity(product.getId(), 1, false);
+        List<ProductChange> first = repository.findChanges("0", 100);
+        assertEquals(4, first.size());
+        ProductChange last = first.get(first.size() - 1);
+        assertEquals(last.getSeq() + ".0.0", last.getPosition());
+
+        // execute changes on the other shards, numbered before the changes already read
+        Product second = repository.save(new Product(null, "Product name 2", 20, 1));
+        Product third = repository.save(new Product(null, "Product name 3", 30, 1));
+
+        // assert they are still read after the position, which moves on their shards only
+        List<ProductChange> next = repository.findChanges(last.getPosition(), 100);
+        assertEquals(List.of(second.getId(), third.getId()), next.stream().map(ProductChange::getId).toList());
+        assertTrue(next.get(0).getSeq() < last.getSeq());
+        assertEquals(last.getSeq() + "." + next.get(0).getSeq() + "." + next.get(1).getSeq(),
+                next.get(1).getPosition());
+        assertTrue(repository.findChanges(next.get(1).getPosition(), 100).isEmpty());
+    }
+
+    @Test
+    @DisplayName("a position without one sequence number per shard is rejected")
+    void findChangesInvalidPositionTest() {
+        assertThrows(IllegalArgumentException.class, () -> repository.findChanges("5", 100));
+        assertThrows(IllegalArgumentException.class, () -> repository.findChanges("1.2", 100));
+        assertThrows(IllegalArgumentException.class, () -> repository.findChanges("1.-2.3", 100));
+    }
+}
@@ -0,0 +1,119 @@
+package com.infinity.product;
+
+import com.infinity.product.service.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    SimpleMeterRegistry registry;
+    SingleFlight<Integer, String> singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight<>("test", String::new, registry);
+    }
+
+    @Test
+    @DisplayName("concurrent loads of the same key share one load")
+    void coalesceTest() throws Exception {
+        // Setup a load that blocks until every caller is waiting
+        int callers = 8;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> singleFlight.load(1, key -> {
+                loads.incrementAndGet();
+                await(release);
+                return "Product " + key;
+            })));
+            // execute the other calls while the first one is loading
+            while (registry.get("product.singleflight.inflight").gauge().value() < 1)
+                Thread.onSpinWait();
+            for (int i = 1; i < callers; i++) {
+                results.add(executor.submit(() -> singleFlight.load(1, key -> {
+                    loads.incrementAndGet();
+                    return "Product " + key;
+                })));
+            }
+            while (registry.get("product.singleflight.coalesced").counter().count() < callers - 1)
+                Thread.onSpinWait();
+            release.countDown();
+
+            // assert all callers got the value of the single load
+            for (Future<String> result : results) {
+                assertEquals("Product 1", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(0.0, registry.get("product.singleflight.inflight").gauge().value());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("a failed load is reported to the waiting callers and not kept")
+    void failureTest() throws Exception {
+        // Setup a load that fails once every caller is waiting
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> singleFlight.load(1, key -> {
+                await(release);
+                throw new IllegalStateException("Database down");
+            }));
+            while (registry.get("product.singleflight.inflight").gauge().value() < 1)
+                Thread.onSpinWait();
+            Future<String> second = executor.submit(() -> singleFlight.load(1, key -> "Product " + key));
+            while (registry.get("product.singleflight.coalesced").counter().count() < 1)
+                Thread.onSpinWait();
+            release.countDown();
+
+            // assert both callers got the exception and the next call loads again
+            Exception firstError = assertThrows(Exception.class, () -> first.get(5, TimeUnit.SECONDS));
+            Exception secondError = assertThrows(Exception.class, () -> second.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, firstError.getCause());
+            assertInstanceOf(IllegalStateException.class, secondError.getCause());
+            assertEquals("Product 1", singleFlight.load(1, key -> "Product " + key));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("loads of different keys are not shared")
+    void differentKeysTest() {
+        // execute loads of two keys
+        String first = singleFlight.load(1, key -> "Product " + key);
+        String second = singleFlight.load(2, key -> "Product " + key);
+
+        // assert nothing was coalesced
+        assertEquals("Product 1", first);
+        assertEquals("Product 2", second);
+        assertEquals(0.0, registry.get("product.singleflight.coalesced").counter().count());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
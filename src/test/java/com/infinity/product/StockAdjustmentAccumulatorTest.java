@@ -0,0 +1,171 @@
+package com.infinity.product;
+
+import com.infinity.product.config.ProductProperties;
+import com.infinity.product.repository.ProductRepository;
+import com.infinity.product.repository.ProductRepositoryBusyException;
+import com.infinity.product.service.StockAdjustmentAccumulator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class StockAdjustmentAccumulatorTest {
+
+    ProductRepository repository;
+    ProductProperties properties;
+    List<Map<Integer, Integer>> flushed;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repository = mock(ProductRepository.class);
+        doReturn(Optional.of(1)).when(repository).findVersionById(anyInt());
+        flushed = new ArrayList<>();
+        doAnswer(invocation -> {
+            Map<Integer, Integer> deltas = invocation.getArgument(0);
+            synchronized (flushed) {
+                flushed.add(Map.copyOf(deltas));
+            }
+            Map<Integer, Boolean> results = new HashMap<>();
+            deltas.keySet().forEach(id -> results.put(id, true));
+            return results;
+        }).when(repository).adjustQuantities(any(Map.class));
+
+        properties = new ProductProperties();
+        // Long enough that only the test flushes, unless it says otherwise
+        properties.getStock().setFlushInterval(Duration.ofHours(1));
+    }
+
+    @Test
+    @DisplayName("adjustments of a product that does not exist are refused")
+    void addMissingProductTest() throws InterruptedException {
+        // Setup our mock
+        doReturn(Optional.empty()).when(repository).findVersionById(2);
+        StockAdjustmentAccumulator accumulator = accumulator();
+
+        // execute the adjustments
+        boolean existing = accumulator.add(1, 5);
+        boolean missing = accumulator.add(2, 5);
+        accumulator.shutdown();
+
+        // assert only the existing product was flushed
+        assertTrue(existing);
+        assertFalse(missing);
+        assertEquals(List.of(Map.of(1, 5)), flushed);
+    }
+
+    @Test
+    @DisplayName("a flush frees its products, so that new ones are tracked again")
+    void maxTrackedProductsTest() throws InterruptedException {
+        // Setup an accumulator tracking a single product
+        properties.getStock().setMaxTrackedProducts(1);
+        StockAdjustmentAccumulator accumulator = accumulator();
+
+        // execute adjustments of two products around a flush
+        assertTrue(accumulator.add(1, 5));
+        assertTrue(accumulator.add(1, 2));
+        assertFalse(accumulator.add(2, 3));
+        accumulator.shutdown();
+
+        // assert the second product is tracked once the first one was flushed
+        assertTrue(accumulator.add(2, 3));
+        accumulator.shutdown();
+        assertEquals(List.of(Map.of(1, 7), Map.of(2, 3)), flushed);
+    }
+
+    @Test
+    @DisplayName("a failed flush is retried, whatever the exception")
+    @SuppressWarnings("unchecked")
+    void flushFailureTest() throws InterruptedException {
+        // Setup our mock to be busy once
+        doThrow(new ProductRepositoryBusyException("busy"))
+                .doAnswer(invocation -> Map.of(1, true))
+                .when(repository).adjustQuantities(any(Map.class));
+        StockAdjustmentAccumulator accumulator = accumulator();
+
+        // execute the adjustment and two flushes
+        accumulator.add(1, 5);
+        accumulator.shutdown();
+        accumulator.shutdown();
+
+        // assert the delta was written again by the second flush
+        verify(repository, times(2)).adjustQuantities(Map.of(1, 5));
+    }
+
+    @Test
+    @DisplayName("an adjustment that can never be applied is dropped alone, the others are written")
+    @SuppressWarnings("unchecked")
+    void poisonAdjustmentTest() throws InterruptedException {
+        // Setup our mock to refuse any batch adjusting product 2
+        doAnswer(invocation -> {
+            Map<Integer, Integer> deltas = invocation.getArgument(0);
+            if (deltas.containsKey(2))
+                throw new DataIntegrityViolationException("Quantity out of range");
+            flushed.add(Map.copyOf(deltas));
+            return Map.of(1, true);
+        }).when(repository).adjustQuantities(any(Map.class));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        StockAdjustmentAccumulator accumulator = new StockAdjustmentAccumulator(repository, properties, registry);
+
+        // execute the adjustments and two flushes
+        accumulator.add(1, 5);
+        accumulator.add(2, 3);
+        accumulator.shutdown();
+        accumulator.add(1, 2);
+        accumulator.shutdown();
+
+        // assert product 1 was written both times and the adjustment of product 2 was dropped and counted
+        assertEquals(List.of(Map.of(1, 5), Map.of(1, 2)), flushed);
+        assertEquals(1.0, registry.get("product.stock.dropped").tag("reason", "failed").counter().count());
+    }
+
+    @Test
+    @DisplayName("adjustments racing with flushes are all written, once")
+    void concurrentFlushTest() throws Exception {
+        // Setup an accumulator flushing continuously
+        properties.getStock().setFlushInterval(Duration.ofMillis(1));
+        StockAdjustmentAccumulator accumulator = accumulator();
+        ExecutorService adjusters = Executors.newFixedThreadPool(4);
+        AtomicLong added = new AtomicLong();
+
+        // execute adjustments of a few hot products on several threads
+        List<Future<?>> adjustments = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            adjustments.add(adjusters.submit(() -> {
+                for (int j = 0; j < 20_000; j++) {
+                    accumulator.add(j % 3, 1);
+                    added.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> adjustment : adjustments)
+            adjustment.get();
+        adjusters.shutdown();
+        accumulator.shutdown();
+
+        // assert the flushed deltas add up to the adjustments
+        long total = flushed.stream().flatMap(deltas -> deltas.values().stream()).mapToLong(Integer::longValue).sum();
+        assertEquals(added.get(), total);
+    }
+
+    private StockAdjustmentAccumulator accumulator() {
+        return new StockAdjustmentAccumulator(repository, properties, new SimpleMeterRegistry());
+    }
+}
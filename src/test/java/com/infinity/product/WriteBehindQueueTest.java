@@ -0,0 +1,173 @@
+package com.infinity.product;
+
+import com.infinity.product.config.ProductProperties;
+import com.infinity.product.domain.Product;
+import com.infinity.product.domain.WriteResult;
+import com.infinity.product.domain.WriteTicket;
+import com.infinity.product.repository.ProductRepository;
+import com.infinity.product.repository.ProductRepositoryBusyException;
+import com.infinity.product.service.WriteBehindQueue;
+import com.infinity.product.service.WriteQueueFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+public class WriteBehindQueueTest {
+
+    ProductRepository repository;
+    SimpleMeterRegistry registry;
+    WriteBehindQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ProductRepository.class);
+        registry = new SimpleMeterRegistry();
+        queue = new WriteBehindQueue(repository, new ProductProperties(), registry);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        queue.shutdown();
+    }
+
+    @Test
+    @DisplayName("queued creations are flushed in a batch and their tickets applied")
+    void saveTest() throws InterruptedException {
+        // Setup our mock
+        doAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            for (int i = 0; i < products.size(); i++) {
+                products.get(i).setId(i + 1);
+            }
+            return products;
+        }).when(repository).saveAll(anyList());
+
+        // execute the queued write
+        WriteTicket ticket = queue.save(new Product(null, "Product name", 10, 1));
+        assertEquals(WriteTicket.State.PENDING, ticket.getState());
+        queue.shutdown();
+
+        // assert the outcome of the write
+        WriteTicket applied = queue.find(ticket.getTrackingId()).orElseThrow();
+        assertEquals(WriteTicket.State.APPLIED, applied.getState());
+        assertEquals(1, applied.getId().intValue());
+        assertEquals(1.0, registry.get("product.writebehind.flush").timer().count());
+    }
+
+    @Test
+    @DisplayName("queued updates report version conflicts")
+    void updateConflictTest() throws InterruptedException {
+        // Setup our mock
+        doReturn(List.of(WriteResult.CONFLICT)).when(repository).updateAll(anyList());
+
+        // execute the queued write
+        WriteTicket ticket = queue.update(new Product(1, "Product name", 10, 1));
+        queue.shutdown();
+
+        // assert the outcome of the write
+        assertEquals(WriteTicket.State.CONFLICT, queue.find(ticket.getTrackingId()).orElseThrow().getState());
+    }
+
+    @Test
+    @DisplayName("any failure of a batch fails its tickets")
+    void flushFailureTest() throws InterruptedException {
+        // Setup our mock
+        doThrow(new ProductRepositoryBusyException("busy")).when(repository).saveAll(anyList());
+
+        // execute the queued write
+        WriteTicket ticket = queue.save(new Product(null, "Product name", 10, 1));
+        queue.shutdown();
+
+        // assert the outcome of the write
+        assertEquals(WriteTicket.State.FAILED, queue.find(ticket.getTrackingId()).orElseThrow().getState());
+    }
+
+    @Test
+    @DisplayName("invalid products are rejected before they are queued")
+    void invalidProductTest() throws InterruptedException {
+        // execute the queued writes
+        assertThrows(IllegalArgumentException.class, () -> queue.save(new Product(null, null, 10, 1)));
+        assertThrows(IllegalArgumentException.class, () -> queue.save(new Product(null, "x".repeat(129), 10, 1)));
+        assertThrows(IllegalArgumentException.class, () -> queue.update(new Product(1, "Product name", null, 1)));
+        queue.shutdown();
+
+        // assert nothing was written
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("tickets of writes not flushed yet are never evicted")
+    void pendingTicketsRetainedTest() throws InterruptedException {
+        // Setup a queue retaining a single outcome, and a database that does not answer yet
+        ProductProperties properties = new ProductProperties();
+        properties.getWriteBehind().setRetainedResults(1);
+        properties.getWriteBehind().setMaxBatchSize(1);
+        queue.shutdown();
+        queue = new WriteBehindQueue(repository, properties, registry);
+        CountDownLatch database = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            database.await();
+            return List.of(WriteResult.SUCCESS);
+        }).when(repository).updateAll(anyList());
+
+        // execute more queued writes than the outcomes retained
+        List<WriteTicket> tickets = new ArrayList<>();
+        for (int i = 1; i <= 3; i++)
+            tickets.add(queue.update(new Product(i, "Product name", 10, 1)));
+
+        // assert they are all still tracked, then all written
+        for (WriteTicket ticket : tickets)
+            assertEquals(WriteTicket.State.PENDING, queue.find(ticket.getTrackingId()).orElseThrow().getState());
+        database.countDown();
+        queue.shutdown();
+        assertEquals(WriteTicket.State.APPLIED, queue.find(tickets.get(2).getTrackingId()).orElseThrow().getState());
+    }
+
+    @Test
+    @DisplayName("writes queued while the queue shuts down are all flushed")
+    void shutdownRaceTest() throws Exception {
+        // Setup our mock
+        doAnswer(invocation -> invocation.getArgument(0)).when(repository).saveAll(anyList());
+
+        // execute writes on several threads until the queue refuses them, and shut it down meanwhile
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        List<Future<List<WriteTicket>>> writes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            writes.add(writers.submit(() -> {
+                List<WriteTicket> accepted = new ArrayList<>();
+                try {
+                    while (true)
+                        accepted.add(queue.save(new Product(null, "Product name", 10, 1)));
+                } catch (WriteQueueFullException e) {
+                    return accepted;
+                }
+            }));
+        }
+        Thread.sleep(20);
+        queue.shutdown();
+
+        // assert no accepted write was left pending
+        for (Future<List<WriteTicket>> write : writes) {
+            for (WriteTicket ticket : write.get())
+                assertNotEquals(WriteTicket.State.PENDING, queue.find(ticket.getTrackingId()).orElseThrow().getState());
+        }
+        writers.shutdown();
+    }
+}